@@ -0,0 +1,185 @@
+package net.alexblass.chess;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.models.ComputerPlayer;
+import net.alexblass.chess.models.Game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs the engine for the game on a background thread, so the board stays responsive
+ * while the computer thinks.
+ *
+ * The game itself is only touched on the main thread. A request copies the position,
+ * searches the copy on the engine thread and posts the move back to the main thread,
+ * where it's played if the request is still current. Each request has its own stop
+ * signal, so moving, taking back or leaving the screen cancels that request's search
+ * even if it hasn't started yet, and asking again for the same position while a
+ * search is already on its way does nothing.
+ *
+ * The controller also times the main thread's work for each tap, and logs the taps
+ * that go over the budget.
+ */
+
+public class GameController {
+
+    private static final String LOG_TAG = GameController.class.getSimpleName();
+
+    // The main thread's share of one 60fps frame a tap may use
+    public static final long TAP_BUDGET_NANOS = 8000000L;
+
+    // Told on the main thread when the computer has played its move
+    public interface Listener {
+        void onComputerMove(int move);
+    }
+
+    private final Game mGame;
+    private final ComputerPlayer mComputer;
+    private final Listener mListener;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService mExecutor;
+
+    // Set when the current request is cancelled or replaced: its search stops and its
+    // result is dropped. Only replaced on the main thread.
+    private AtomicBoolean mCancelled;
+
+    // The key of the position being searched, while a search is on its way
+    private boolean mThinking;
+    private long mThinkingKey;
+
+    // Main thread time for taps
+    private long mTapStart;
+    private long mLastTapNanos;
+    private long mMaxTapNanos;
+    private int mTapCount;
+    private int mSlowTapCount;
+
+    public GameController(Game game, int hashMegabytes, long moveMillis, Listener listener) {
+        mGame = game;
+        mComputer = new ComputerPlayer(hashMegabytes, new SearchLimits().setTimeMillis(moveMillis));
+        mListener = listener;
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Leave the main thread's core free for drawing
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, "engine");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // Let the computer find and play a move for the side to move. Call on the main thread.
+    public void requestComputerMove() {
+        final long key = mGame.getBoard().getPosition().getKey();
+        if (mThinking && mThinkingKey == key) {
+            // Already searching this position, the move is on its way
+            return;
+        }
+        cancel();
+        mThinking = true;
+        mThinkingKey = key;
+
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        mCancelled = cancelled;
+        final Position position = new Position(mGame.getBoard().getPosition());
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Skip requests that were cancelled or replaced while waiting their turn
+                if (cancelled.get()) {
+                    return;
+                }
+                final int move = mComputer.findMove(position, cancelled);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        deliver(cancelled, move);
+                    }
+                });
+            }
+        });
+    }
+
+    // Stop any search in progress and drop its result. Call on the main thread.
+    public void cancel() {
+        if (mCancelled != null) {
+            mCancelled.set(true);
+            mCancelled = null;
+        }
+        mThinking = false;
+    }
+
+    public boolean isThinking() {
+        return mThinking;
+    }
+
+    // Cancel the search and stop the engine thread for good
+    public void shutdown() {
+        cancel();
+        mExecutor.shutdownNow();
+    }
+
+    // Call at the start of a tap's handling on the main thread
+    public void startTap() {
+        mTapStart = System.nanoTime();
+    }
+
+    // Call at the end of a tap's handling on the main thread
+    public void endTap() {
+        mLastTapNanos = System.nanoTime() - mTapStart;
+        mMaxTapNanos = Math.max(mMaxTapNanos, mLastTapNanos);
+        mTapCount++;
+        if (mLastTapNanos > TAP_BUDGET_NANOS) {
+            mSlowTapCount++;
+            Log.w(LOG_TAG, "Tap took " + (mLastTapNanos / 1000) + " us on the main thread, budget "
+                    + (TAP_BUDGET_NANOS / 1000) + " us");
+        }
+    }
+
+    public long getLastTapNanos() {
+        return mLastTapNanos;
+    }
+
+    public long getMaxTapNanos() {
+        return mMaxTapNanos;
+    }
+
+    public int getTapCount() {
+        return mTapCount;
+    }
+
+    // The taps that went over TAP_BUDGET_NANOS
+    public int getSlowTapCount() {
+        return mSlowTapCount;
+    }
+
+    private void deliver(AtomicBoolean cancelled, int move) {
+        if (cancelled.get()) {
+            return;
+        }
+        mThinking = false;
+        if (move == Move.NONE) {
+            return;
+        }
+        mGame.makeMove(move);
+        mListener.onComputerMove(move);
+    }
+}
@@ -0,0 +1,98 @@
+package net.alexblass.chess.utilities;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import net.alexblass.chess.R;
+import net.alexblass.chess.engine.Pieces;
+
+/**
+ * The piece images, decoded once and scaled to the size of a tile.
+ *
+ * Setting a drawable resource on a tile decodes the PNG again each time the tile is
+ * bound. These bitmaps are decoded the first time they're needed and then drawn
+ * straight from memory. They're kept for the life of the process, so the activity
+ * being recreated on rotation reuses them, and they're only decoded again if the
+ * tile size changes.
+ */
+
+public final class PieceSprites {
+
+    // The image for each piece, indexed by its code: the white pieces from
+    // pawn to king, then the black pieces (see Pieces.code())
+    private static final int[] PIECE_IMAGES = {
+            R.drawable.pawn_w, R.drawable.knight_w, R.drawable.bishop_w,
+            R.drawable.rook_w, R.drawable.queen_w, R.drawable.king_w,
+            R.drawable.pawn_b, R.drawable.knight_b, R.drawable.bishop_b,
+            R.drawable.rook_b, R.drawable.queen_b, R.drawable.king_b
+    };
+
+    // The sprites last decoded, shared by every board in the process
+    private static PieceSprites sInstance;
+
+    private final Bitmap[] mBitmaps = new Bitmap[Pieces.CODES];
+    private final int mTileSize;
+
+    private PieceSprites(Resources resources, int tileSize) {
+        mTileSize = tileSize;
+        for (int code = 0; code < Pieces.CODES; code++) {
+            mBitmaps[code] = decode(resources, PIECE_IMAGES[code], tileSize);
+        }
+    }
+
+    // The sprites for tiles of the given size in pixels, decoding them if the
+    // size changed since last time. Call on the main thread.
+    public static PieceSprites get(Context context, int tileSize) {
+        PieceSprites sprites = sInstance;
+        if (sprites == null || sprites.mTileSize != tileSize) {
+            // Use the application's resources so no activity is held on to
+            sprites = new PieceSprites(context.getApplicationContext().getResources(), tileSize);
+            sInstance = sprites;
+        }
+        return sprites;
+    }
+
+    // The image file for a piece
+    public static int getImageResourceId(int code) {
+        return PIECE_IMAGES[code];
+    }
+
+    // The sprite for a piece code
+    public Bitmap getBitmap(int code) {
+        return mBitmaps[code];
+    }
+
+    public int getTileSize() {
+        return mTileSize;
+    }
+
+    private static Bitmap decode(Resources resources, int id, int size) {
+        // Read the size first so a large image can be sampled down while decoding.
+        // The images are in the mdpi folder, so skip the density scaling that would
+        // blow them up on denser screens only for them to be scaled down again.
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, id, options);
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= size
+                && options.outHeight / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+
+        options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inSampleSize = sampleSize;
+        Bitmap decoded = BitmapFactory.decodeResource(resources, id, options);
+        if (decoded.getWidth() == size && decoded.getHeight() == size) {
+            return decoded;
+        }
+        Bitmap scaled = Bitmap.createScaledBitmap(decoded, size, size, true);
+        if (scaled != decoded) {
+            decoded.recycle();
+        }
+        return scaled;
+    }
+}
@@ -1,106 +1,219 @@
 package net.alexblass.chess.utilities;
 
 import android.content.Context;
+import android.content.res.Resources;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 
 import net.alexblass.chess.R;
+import net.alexblass.chess.engine.Pieces;
 import net.alexblass.chess.models.Piece;
 
+import java.util.List;
+
 /**
  * A class to correctly display the game tiles on the board.
+ *
+ * Each of the 64 tiles keeps its place, so a tile's id is its position. When the
+ * board changes the adapter compares the new pieces with the ones it's showing and
+ * only rebinds the tiles that changed, which is 2 to 4 tiles for a move. Selecting a
+ * piece only rebinds the tile's background. The pieces are drawn from PieceSprites,
+ * so binding a tile never decodes an image.
  */
 
-public class TileAdapter extends ArrayAdapter{
+public class TileAdapter extends RecyclerView.Adapter<TileAdapter.TileViewHolder> {
+
+    // The selection when no piece is selected
+    public static final int NO_SELECTION = -1;
 
-    // Context of the activity so we can access resources
-    private Context mContext;
+    // The parts of a tile that changed, for binding just that part
+    private static final Object PAYLOAD_PIECE = new Object();
+    private static final Object PAYLOAD_SELECTION = new Object();
+
+    private static final int TILES = 64;
+
+    // Told which tile was tapped
+    public interface OnTileClickListener {
+        void onTileClick(int position);
+    }
 
     // An inflater so we can set our tiles to the right layout
-    private LayoutInflater mInflater;
+    private final LayoutInflater mInflater;
 
-    // The tiles on the gameboard
-    private Piece[] mGameBoardTiles;
+    // The tile colors, looked up once
+    private final int mWhiteColor;
+    private final int mBlackColor;
+    private final int mSelectedColor;
 
-    public TileAdapter(Context context, Piece[] pieces) {
-        super(context, R.layout.item_tile, pieces);
+    // The piece images, decoded and scaled to the tile size
+    private final PieceSprites mSprites;
+
+    // The code of the piece on each tile, or Pieces.NONE, as last shown
+    private int[] mCodes;
 
-        this.mContext = context;
+    private int mSelectedPosition = NO_SELECTION;
+
+    private OnTileClickListener mListener;
+
+    public TileAdapter(Context context, Piece[] pieces) {
         this.mInflater = LayoutInflater.from(context);
-        this.mGameBoardTiles = pieces;
+
+        Resources resources = context.getResources();
+        this.mWhiteColor = resources.getColor(R.color.white);
+        this.mBlackColor = resources.getColor(R.color.black);
+        this.mSelectedColor = resources.getColor(R.color.selected);
+        this.mSprites = PieceSprites.get(context, resources.getDimensionPixelSize(R.dimen.tile_size));
+
+        this.mCodes = codesOf(pieces);
+        setHasStableIds(true);
+    }
+
+    public void setOnTileClickListener(OnTileClickListener listener) {
+        this.mListener = listener;
     }
 
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        View gameTile = convertView;
-        ViewHolder holder;
-
-        Piece thisGamePiece = mGameBoardTiles[position];
-
-        // Inflate the layout for the tile
-        if (gameTile == null) {
-            gameTile = mInflater.inflate(R.layout.item_tile, parent, false);
-            holder = new ViewHolder();
-            holder.tileImageView = (ImageView) gameTile.findViewById(R.id.tileImageView);
-            gameTile.setTag(holder);
-        } else {
-            holder = (ViewHolder) gameTile.getTag();
-        }
+    public TileViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View gameTile = mInflater.inflate(R.layout.item_tile, parent, false);
+        final TileViewHolder holder = new TileViewHolder(gameTile);
+        gameTile.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int position = holder.getAdapterPosition();
+                if (mListener != null && position != RecyclerView.NO_POSITION) {
+                    mListener.onTileClick(position);
+                }
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(TileViewHolder holder, int position) {
+        bindPiece(holder, position);
+        bindBackground(holder, position);
+    }
 
-        // Set the Piece image on the tile if there is a Piece on this tile
-        if (thisGamePiece != null) {
-            holder.tileImageView.setImageResource(thisGamePiece.getImageResourceId());
-        } else { // Reset empty tiles for pieces that have been moved
-            holder.tileImageView.setImageResource(0);
+    @Override
+    public void onBindViewHolder(TileViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        if (payloads.contains(PAYLOAD_PIECE)) {
+            bindPiece(holder, position);
+        }
+        if (payloads.contains(PAYLOAD_SELECTION)) {
+            bindBackground(holder, position);
         }
+    }
 
-        // Set the background color to the checker pattern
-        int backgroundColor = setBackgroundColor(position);
-        holder.tileImageView.setBackgroundColor(mContext.getResources().getColor(backgroundColor));
+    @Override
+    public int getItemCount() {
+        return TILES;
+    }
 
-        return gameTile;
+    @Override
+    public long getItemId(int position) {
+        return position;
     }
 
-    // Determine which color the tile should be
-    public int setBackgroundColor(int position){
+    // Determine which color the tile should be: the top left tile is white,
+    // and the colors alternate along each row and column
+    public int getBackgroundColor(int position) {
+        if (position == mSelectedPosition) {
+            return mSelectedColor;
+        }
         int row = position / 8;
         int col = position % 8;
+        return ((row + col) & 1) == 0 ? mWhiteColor : mBlackColor;
+    }
 
-        // Determine which row color pattern is starting
-        // 0 and even rows start with white
-        // Odd rows start with black
-        boolean startsWhite;
-        if (row % 2 == 0) {
-            startsWhite = true;
-        } else {
-            startsWhite = false;
-        }
+    // The image file for a piece
+    public static int getImageResourceId(Piece piece) {
+        return PieceSprites.getImageResourceId(piece.getCode());
+    }
 
-        // Once determined the first tile color, apply black and white color pattern appropriately
-        if (startsWhite) {
-            if (col % 2 == 0) {
-                return R.color.white;
-            } else {
-                return R.color.black;
+    // Show the new board, rebinding only the tiles whose piece changed,
+    // and clear the selection
+    public void setGameBoard(Piece[] boardPlacement) {
+        final int[] oldCodes = mCodes;
+        final int[] newCodes = codesOf(boardPlacement);
+        mCodes = newCodes;
+        setSelectedPosition(NO_SELECTION);
+
+        // Tiles never move, so only the contents of each position are compared
+        DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return TILES;
             }
-        } else {
-            if (col % 2 == 0) {
-                return R.color.black;
-            } else {
-                return R.color.white;
+
+            @Override
+            public int getNewListSize() {
+                return TILES;
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldPosition == newPosition;
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return oldCodes[oldPosition] == newCodes[newPosition];
+            }
+
+            @Override
+            public Object getChangePayload(int oldPosition, int newPosition) {
+                return PAYLOAD_PIECE;
             }
+        }, false).dispatchUpdatesTo(this);
+    }
+
+    // Highlight the tile of the selected piece, or NO_SELECTION to clear it
+    public void setSelectedPosition(int position) {
+        if (position == mSelectedPosition) {
+            return;
+        }
+        int previous = mSelectedPosition;
+        mSelectedPosition = position;
+        if (previous != NO_SELECTION) {
+            notifyItemChanged(previous, PAYLOAD_SELECTION);
+        }
+        if (position != NO_SELECTION) {
+            notifyItemChanged(position, PAYLOAD_SELECTION);
         }
     }
 
-    public void setGameBoard(Piece[] boardPlacement) {
-        this.mGameBoardTiles = boardPlacement;
-        notifyDataSetChanged();
+    private void bindPiece(TileViewHolder holder, int position) {
+        int code = mCodes[position];
+        // Reset empty tiles for pieces that have been moved
+        holder.tileImageView.setImageBitmap(code == Pieces.NONE ? null : mSprites.getBitmap(code));
+    }
+
+    private void bindBackground(TileViewHolder holder, int position) {
+        holder.tileImageView.setBackgroundColor(getBackgroundColor(position));
+    }
+
+    private static int[] codesOf(Piece[] pieces) {
+        int[] codes = new int[TILES];
+        for (int position = 0; position < TILES; position++) {
+            codes[position] = pieces[position] == null ? Pieces.NONE : pieces[position].getCode();
+        }
+        return codes;
     }
 
-    static class ViewHolder {
-        ImageView tileImageView;
+    public static class TileViewHolder extends RecyclerView.ViewHolder {
+        final ImageView tileImageView;
+
+        TileViewHolder(View gameTile) {
+            super(gameTile);
+            tileImageView = (ImageView) gameTile.findViewById(R.id.tileImageView);
+        }
     }
-}
\ No newline at end of file
+}
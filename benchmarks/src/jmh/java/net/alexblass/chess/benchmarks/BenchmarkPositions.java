@@ -0,0 +1,63 @@
+package net.alexblass.chess.benchmarks;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Position;
+
+/**
+ * Fixed sets of positions so every run measures the same work.
+ */
+
+public final class BenchmarkPositions {
+
+    public static final String OPENING = "opening";
+    public static final String MIDDLEGAME = "middlegame";
+    public static final String ENDGAME = "endgame";
+
+    private static final String[] OPENING_FENS = {
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkb1r/pppp1ppp/5n2/4p3/2B1P3/8/PPPP1PPP/RNBQK1NR w KQkq - 2 3",
+            "r1bqkbnr/pp1ppppp/2n5/2p5/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+            "rnbqkb1r/ppp2ppp/4pn2/3p4/2PP4/2N5/PP2PPPP/R1BQKBNR w KQkq - 2 4"
+    };
+
+    private static final String[] MIDDLEGAME_FENS = {
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2q1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP2BPPP/R2Q1RK1 b - - 3 9",
+            "2rq1rk1/pb1nbppp/1p2pn2/2pp4/3P4/1P1BPN2/PBPN1PPP/2RQ1RK1 w - - 4 11"
+    };
+
+    private static final String[] ENDGAME_FENS = {
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 1",
+            "8/5pk1/6p1/8/3R4/6P1/5PK1/r7 w - - 0 40",
+            "6k1/5p2/6p1/8/7P/6P1/5PK1/3q4 b - - 0 50"
+    };
+
+    private BenchmarkPositions() {
+    }
+
+    // Parse every position in the named set
+    public static Position[] load(String set) {
+        String[] fens;
+        switch (set) {
+            case OPENING:
+                fens = OPENING_FENS;
+                break;
+            case MIDDLEGAME:
+                fens = MIDDLEGAME_FENS;
+                break;
+            case ENDGAME:
+                fens = ENDGAME_FENS;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown position set: " + set);
+        }
+        Position[] positions = new Position[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            positions[i] = new Position();
+            Fen.parse(fens[i], positions[i]);
+        }
+        return positions;
+    }
+}
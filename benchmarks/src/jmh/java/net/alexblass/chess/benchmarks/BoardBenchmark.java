@@ -0,0 +1,129 @@
+package net.alexblass.chess.benchmarks;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.GameBoard;
+import net.alexblass.chess.models.Piece;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board access and update: reading each square, moving a piece, taking a move back,
+ * and copying a position.
+ * Each operation runs over every position in the set, both on the bare Position and
+ * through GameBoard, which also keeps the Piece view for the app.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BoardBenchmark {
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String positionSet;
+
+    private Position[] mPositions;
+
+    // One legal move per position, for the move benchmark
+    private int[] mFirstMoves;
+
+    private final Position mScratch = new Position();
+    private GameBoard[] mBoards;
+
+    @Setup
+    public void setUp() {
+        mPositions = BenchmarkPositions.load(positionSet);
+        mFirstMoves = new int[mPositions.length];
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        mBoards = new GameBoard[mPositions.length];
+        for (int i = 0; i < mPositions.length; i++) {
+            generator.generate(mPositions[i], moves, MoveGenerator.ALL);
+            mFirstMoves[i] = moves[0];
+            mBoards[i] = new GameBoard(mPositions[i]);
+        }
+    }
+
+    // The lookup behind GameBoard.getPieceAtCoordinates, for all 64 tiles
+    @Benchmark
+    public void pieceAtEverySquare(Blackhole blackhole) {
+        for (Position position : mPositions) {
+            for (int square = 0; square < Bitboards.SQUARES; square++) {
+                blackhole.consume(position.getPieceAt(square));
+            }
+        }
+    }
+
+    @Benchmark
+    public void gameBoardPieceAtCoordinates(Blackhole blackhole) {
+        for (GameBoard board : mBoards) {
+            for (int x = 0; x < GameBoard.BOARD_LENGTH; x++) {
+                for (int y = 0; y < GameBoard.BOARD_LENGTH; y++) {
+                    blackhole.consume(board.getPieceAtCoordinates(x, y));
+                }
+            }
+        }
+    }
+
+    // Reset each board, then move a piece the way the app does
+    @Benchmark
+    public void gameBoardMovePieceTo(Blackhole blackhole) {
+        for (int i = 0; i < mBoards.length; i++) {
+            GameBoard board = mBoards[i];
+            board.setPosition(mPositions[i]);
+            int from = Move.from(mFirstMoves[i]);
+            int to = Move.to(mFirstMoves[i]);
+            Piece piece = board.getPieceAtCoordinates(Bitboards.row(from), Bitboards.col(from));
+            board.movePieceTo(piece, Bitboards.row(to), Bitboards.col(to));
+            blackhole.consume(board.getGameBoardTiles());
+        }
+    }
+
+    // Copy a position and play one move on the copy
+    @Benchmark
+    public long copyAndMove() {
+        long occupied = 0;
+        for (int i = 0; i < mPositions.length; i++) {
+            mScratch.copyFrom(mPositions[i]);
+            mScratch.makeMove(mFirstMoves[i]);
+            occupied ^= mScratch.getOccupied();
+        }
+        return occupied;
+    }
+
+    // Play one move and take it back, which search and perft now do instead of copying
+    @Benchmark
+    public long makeAndUnmake() {
+        long occupied = 0;
+        for (int i = 0; i < mPositions.length; i++) {
+            mPositions[i].makeMove(mFirstMoves[i]);
+            occupied ^= mPositions[i].getOccupied();
+            mPositions[i].unmakeMove();
+        }
+        return occupied;
+    }
+
+    // Copy a position into a scratch position and back again
+    @Benchmark
+    public long copyAndRestore() {
+        long occupied = 0;
+        for (Position position : mPositions) {
+            mScratch.copyFrom(position);
+            occupied ^= mScratch.getOccupied();
+            position.copyFrom(mScratch);
+        }
+        return occupied;
+    }
+}
@@ -0,0 +1,72 @@
+package net.alexblass.chess.benchmarks;
+
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Perft;
+import net.alexblass.chess.engine.Position;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Legal move generation over each position set, plus a shallow perft
+ * that adds making moves on top of generating them.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoveGenerationBenchmark {
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String positionSet;
+
+    private Position[] mPositions;
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final Perft mPerft = new Perft();
+    private final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+
+    @Setup
+    public void setUp() {
+        mPositions = BenchmarkPositions.load(positionSet);
+    }
+
+    @Benchmark
+    public int allMoves() {
+        return generate(MoveGenerator.ALL);
+    }
+
+    @Benchmark
+    public int captures() {
+        return generate(MoveGenerator.CAPTURES);
+    }
+
+    @Benchmark
+    public int quietMoves() {
+        return generate(MoveGenerator.QUIETS);
+    }
+
+    @Benchmark
+    public long perft2() {
+        long nodes = 0;
+        for (Position position : mPositions) {
+            nodes += mPerft.count(position, 2);
+        }
+        return nodes;
+    }
+
+    private int generate(int mode) {
+        int count = 0;
+        for (Position position : mPositions) {
+            count += mGenerator.generate(position, mMoves, mode);
+        }
+        return count;
+    }
+}
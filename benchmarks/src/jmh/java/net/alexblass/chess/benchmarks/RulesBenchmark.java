@@ -0,0 +1,75 @@
+package net.alexblass.chess.benchmarks;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.Game;
+import net.alexblass.chess.models.GameBoard;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move validation the way the app does it, one tap at a time through Game.checkMoveValidity.
+ * Every legal move in each position is checked, along with the same move made backwards,
+ * which is almost never allowed.
+ */
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RulesBenchmark {
+
+    @Param({BenchmarkPositions.OPENING, BenchmarkPositions.MIDDLEGAME, BenchmarkPositions.ENDGAME})
+    public String positionSet;
+
+    private Game[] mGames;
+
+    // The legal moves of each position
+    private int[][] mMoves;
+
+    @Setup
+    public void setUp() {
+        Position[] positions = BenchmarkPositions.load(positionSet);
+        mGames = new Game[positions.length];
+        mMoves = new int[positions.length][];
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int i = 0; i < positions.length; i++) {
+            mGames[i] = new Game(new GameBoard(positions[i]));
+            int count = generator.generate(positions[i], moves, MoveGenerator.ALL);
+            mMoves[i] = new int[count];
+            System.arraycopy(moves, 0, mMoves[i], 0, count);
+        }
+    }
+
+    @Benchmark
+    public int checkMoveValidity() {
+        int valid = 0;
+        for (int i = 0; i < mGames.length; i++) {
+            Game game = mGames[i];
+            for (int move : mMoves[i]) {
+                int from = Move.from(move);
+                int to = Move.to(move);
+                if (game.checkMoveValidity(Bitboards.row(from), Bitboards.col(from),
+                        Bitboards.row(to), Bitboards.col(to))) {
+                    valid++;
+                }
+                if (game.checkMoveValidity(Bitboards.row(to), Bitboards.col(to),
+                        Bitboards.row(from), Bitboards.col(from))) {
+                    valid++;
+                }
+            }
+        }
+        return valid;
+    }
+}
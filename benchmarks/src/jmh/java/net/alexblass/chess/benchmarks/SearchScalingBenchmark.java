@@ -0,0 +1,73 @@
+package net.alexblass.chess.benchmarks;
+
+import net.alexblass.chess.engine.ParallelSearch;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.engine.TranspositionTable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to reach a fixed depth over the middlegame positions with each thread count.
+ * Dividing the 1 thread time by the N thread time gives the parallel speedup.
+ *
+ * The table is cleared before each iteration, so iterations don't help each other.
+ * The positions searched within one iteration share it, as moves of a game would.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class SearchScalingBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"9"})
+    public int depth;
+
+    private Position[] mPositions;
+    private TranspositionTable mTable;
+    private ParallelSearch mSearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mPositions = BenchmarkPositions.load(BenchmarkPositions.MIDDLEGAME);
+        mTable = new TranspositionTable(64);
+        mSearch = new ParallelSearch(mTable, threads);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        mTable.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mSearch.shutdown();
+    }
+
+    @Benchmark
+    public int timeToDepth() {
+        int moves = 0;
+        for (Position position : mPositions) {
+            moves += mSearch.search(position, new SearchLimits().setDepth(depth)).getBestMove();
+        }
+        return moves;
+    }
+}
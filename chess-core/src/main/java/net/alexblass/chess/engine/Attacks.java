@@ -0,0 +1,265 @@
+package net.alexblass.chess.engine;
+
+import static net.alexblass.chess.engine.Bitboards.SQUARES;
+
+/**
+ * Precomputed attack tables for every piece type.
+ *
+ * Knights, kings and pawns attack the same squares wherever the other pieces are, so
+ * their attacks are a single table lookup by square. Rooks and bishops are blocked by
+ * other pieces, so their attacks are looked up with magic bitboards: the occupied
+ * squares on the piece's rays are multiplied by a magic number to make an index into
+ * a table of every possible set of blockers. Either way a piece's attacks cost the
+ * same no matter how far it can move.
+ */
+
+public final class Attacks {
+
+    // Row and column steps for each piece's directions
+    private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+            {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+    private static final int[][] KING_STEPS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
+            {0, 1}, {1, -1}, {1, 0}, {1, 1}};
+    private static final int[][] ROOK_STEPS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+    private static final int[][] BISHOP_STEPS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    private static final long[] KNIGHT_ATTACKS = new long[SQUARES];
+    private static final long[] KING_ATTACKS = new long[SQUARES];
+
+    // Pawn captures, indexed by [color][square]. White pawns attack
+    // towards row 0 and black pawns attack towards row 7.
+    private static final long[][] PAWN_ATTACKS = new long[Pieces.COLORS][SQUARES];
+
+    // Magic numbers found offline for these masks. Any number that maps
+    // every blocker set to an index without a conflicting attack set works.
+    private static final long[] ROOK_MAGICS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL,
+            0x8880041000800800L, 0x1200100201200804L, 0x0200020004011008L,
+            0x2180010000800600L, 0x0200005088210204L, 0x0400800040008021L,
+            0x0400400020005000L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L,
+            0x8020802300104280L, 0x0080004000402000L, 0xE010104000402000L,
+            0x0800808010002000L, 0xA280210008100100L, 0x0001818014000800L,
+            0xA002010100080400L, 0x0080240001020870L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L,
+            0x0200080080100080L, 0x8083080100100500L, 0x4406000901000400L,
+            0x0005020080800100L, 0x0090204200008114L, 0x0010400094800420L,
+            0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0002001004040020L, 0x0281195814001002L,
+            0x1240800040800100L, 0x0880042000524004L, 0x02C080410206002CL,
+            0x0801200241050010L, 0x8400080010008080L, 0x0008000500090010L,
+            0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L,
+            0x001B080080900080L, 0x001A002008100600L, 0x0004008004020080L,
+            0x5181000600040300L, 0x0000044401128A00L, 0x8044110480002441L,
+            0x2008110084402202L, 0x90806005090010C1L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL,
+            0x0000019025040042L
+    };
+    private static final long[] BISHOP_MAGICS = {
+            0x0045010808008680L, 0x2002080204004898L, 0x0210009A10400006L,
+            0x0824050200810200L, 0x0006061105004090L, 0x00010108C0000000L,
+            0x0814040282104004L, 0x0012012201106800L, 0x10823014100C1040L,
+            0x0080C2088802808CL, 0x0281108410404000L, 0x0101212041826200L,
+            0x0020141028221058L, 0x2201020202200202L, 0x000082A801482000L,
+            0x0000008401411044L, 0x0007103014300404L, 0x0002091110010100L,
+            0x42140012040C0808L, 0x0800808802004020L, 0x90C4004210140000L,
+            0x0800200900A01000L, 0x00D0400201108810L, 0x80820183814412A0L,
+            0x00A01008202202B4L, 0x01C2021A09500402L, 0x0084440208042400L,
+            0x800400400C090100L, 0xBA10040010802100L, 0xD182009006005000L,
+            0x5011021001009004L, 0x0020420200510400L, 0x0292104000468800L,
+            0x00043009091C0500L, 0x0280441000020025L, 0x0042820080080080L,
+            0x0440101010010040L, 0x1000900100808080L, 0x0108108120089800L,
+            0x0044010200012682L, 0xC002500420900400L, 0x0040482210710800L,
+            0x0002060024000200L, 0x0281020A44000800L, 0xA0021200A4000200L,
+            0x0001301000840840L, 0x2868500108444220L, 0x0004111041000200L,
+            0x8044020842080200L, 0x0000220104210200L, 0x0000021201044000L,
+            0x0000280884040028L, 0x4012114010858003L, 0x0000081004082B88L,
+            0x3892700508208002L, 0x00220A041B060400L, 0x0812020284014881L,
+            0x010434A282103100L, 0x0490400824020800L, 0x4A20002C00208800L,
+            0x000000A011020200L, 0x4002940A02482202L, 0x5100100202140406L,
+            0x02102000840540C1L
+    };
+
+    // The squares on each slider's rays that can hold a blocker.
+    // The last square of each ray is left out since a piece there
+    // doesn't change which squares are attacked.
+    private static final long[] ROOK_MASKS = new long[SQUARES];
+    private static final long[] BISHOP_MASKS = new long[SQUARES];
+
+    // How far to shift the magic product to get an index for each square
+    private static final int[] ROOK_SHIFTS = new int[SQUARES];
+    private static final int[] BISHOP_SHIFTS = new int[SQUARES];
+
+    // Where each square's entries start in the shared attack tables
+    private static final int[] ROOK_OFFSETS = new int[SQUARES];
+    private static final int[] BISHOP_OFFSETS = new int[SQUARES];
+
+    private static final long[] ROOK_ATTACKS;
+    private static final long[] BISHOP_ATTACKS;
+
+    // The squares strictly between two squares on the same row, column or diagonal,
+    // and the whole line through them (including both), indexed by (a * 64) + b.
+    // Both are empty for squares that don't share a line.
+    private static final long[] BETWEEN = new long[SQUARES * SQUARES];
+    private static final long[] LINE = new long[SQUARES * SQUARES];
+
+    static {
+        for (int square = 0; square < SQUARES; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[Pieces.WHITE][square] = stepAttacks(square, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN_ATTACKS[Pieces.BLACK][square] = stepAttacks(square, new int[][]{{1, -1}, {1, 1}});
+        }
+        ROOK_ATTACKS = buildSliderTable(ROOK_STEPS, ROOK_MAGICS, ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS);
+        BISHOP_ATTACKS = buildSliderTable(BISHOP_STEPS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_SHIFTS,
+                BISHOP_OFFSETS);
+
+        for (int a = 0; a < SQUARES; a++) {
+            for (int b = 0; b < SQUARES; b++) {
+                if (a == b) {
+                    continue;
+                }
+                long both = Bitboards.bit(a) | Bitboards.bit(b);
+                if (Bitboards.contains(rookAttacks(a, 0L), b)) {
+                    BETWEEN[(a << 6) + b] = rookAttacks(a, both) & rookAttacks(b, both);
+                    LINE[(a << 6) + b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | both;
+                } else if (Bitboards.contains(bishopAttacks(a, 0L), b)) {
+                    BETWEEN[(a << 6) + b] = bishopAttacks(a, both) & bishopAttacks(b, both);
+                    LINE[(a << 6) + b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | both;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    // The squares a pawn of the given color on the given square can capture on
+    public static long pawnAttacks(int color, int square) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[ROOK_OFFSETS[square]
+                + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square]
+                + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    // The squares strictly between two squares that share a row, column or diagonal.
+    // A piece on one attacks the other along the line only if these are all empty.
+    public static long between(int a, int b) {
+        return BETWEEN[(a << 6) + b];
+    }
+
+    // Every square on the row, column or diagonal through both squares,
+    // or 0 if they don't share one. A pinned piece can only move along this line.
+    public static long line(int a, int b) {
+        return LINE[(a << 6) + b];
+    }
+
+    // The attacks of any piece type, pawns use the attacks of the given color
+    public static long attacks(int color, int type, int square, long occupied) {
+        switch (type) {
+            case Pieces.PAWN:
+                return pawnAttacks(color, square);
+            case Pieces.KNIGHT:
+                return knightAttacks(square);
+            case Pieces.BISHOP:
+                return bishopAttacks(square, occupied);
+            case Pieces.ROOK:
+                return rookAttacks(square, occupied);
+            case Pieces.QUEEN:
+                return queenAttacks(square, occupied);
+            default:
+                return kingAttacks(square);
+        }
+    }
+
+    // Fill the attack table for one slider type, along with its masks, shifts and offsets
+    private static long[] buildSliderTable(int[][] steps, long[] magics,
+                                           long[] masks, int[] shifts, int[] offsets) {
+        int size = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            masks[square] = rayAttacks(square, 0L, steps, true);
+            int bits = Long.bitCount(masks[square]);
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+
+        long[] table = new long[size];
+        for (int square = 0; square < SQUARES; square++) {
+            // Walk every subset of the mask (Carry-Rippler trick)
+            long mask = masks[square];
+            long blockers = 0L;
+            do {
+                int index = (int) ((blockers * magics[square]) >>> shifts[square]);
+                table[offsets[square] + index] = rayAttacks(square, blockers, steps, false);
+                blockers = (blockers - mask) & mask;
+            } while (blockers != 0L);
+        }
+        return table;
+    }
+
+    // Attacks of a piece that moves one step in each direction
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0L;
+        int row = Bitboards.row(square);
+        int col = Bitboards.col(square);
+        for (int[] step : steps) {
+            int r = row + step[0];
+            int c = col + step[1];
+            if (onBoard(r, c)) {
+                attacks |= Bitboards.bit(Bitboards.square(r, c));
+            }
+        }
+        return attacks;
+    }
+
+    // Walk each ray square by square until it hits a blocker or the edge.
+    // This is only used to fill the tables. When building a mask, the edge
+    // square of each ray is left out.
+    private static long rayAttacks(int square, long occupied, int[][] steps, boolean mask) {
+        long attacks = 0L;
+        int row = Bitboards.row(square);
+        int col = Bitboards.col(square);
+        for (int[] step : steps) {
+            int r = row + step[0];
+            int c = col + step[1];
+            while (onBoard(r, c)) {
+                if (mask && !onBoard(r + step[0], c + step[1])) {
+                    break;
+                }
+                int target = Bitboards.square(r, c);
+                attacks |= Bitboards.bit(target);
+                if (Bitboards.contains(occupied, target)) {
+                    break;
+                }
+                r += step[0];
+                c += step[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static boolean onBoard(int row, int col) {
+        return row >= 0 && row < 8 && col >= 0 && col < 8;
+    }
+}
@@ -0,0 +1,83 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Helpers for working with bitboards, 64-bit words that hold one bit for each square.
+ */
+
+public final class Bitboards {
+
+    // Squares are numbered the same way as the GameBoard tiles:
+    // (row * 8) + col, where row 0 is black's home row and row 7
+    // is white's home row. Bit n of a bitboard is set when square
+    // n is part of the set.
+    public static final int SQUARES = 64;
+    public static final int NO_SQUARE = -1;
+
+    public static final long EMPTY = 0L;
+    public static final long ALL = -1L;
+
+    // Masks for single rows and columns
+    public static final long ROW_0 = 0xFFL;
+    public static final long ROW_1 = ROW_0 << 8;
+    public static final long ROW_2 = ROW_0 << 16;
+    public static final long ROW_5 = ROW_0 << 40;
+    public static final long ROW_6 = ROW_0 << 48;
+    public static final long ROW_7 = ROW_0 << 56;
+    public static final long COL_0 = 0x0101010101010101L;
+    public static final long COL_7 = COL_0 << 7;
+
+    private Bitboards() {
+    }
+
+    public static int square(int row, int col) {
+        return (row << 3) + col;
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int col(int square) {
+        return square & 7;
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static boolean contains(long bitboard, int square) {
+        return ((bitboard >>> square) & 1L) != 0;
+    }
+
+    public static int count(long bitboard) {
+        return Long.bitCount(bitboard);
+    }
+
+    // The lowest square in the set, only valid for non-empty sets
+    public static int first(long bitboard) {
+        return Long.numberOfTrailingZeros(bitboard);
+    }
+
+    // The set without its lowest square, used to walk the set one square at a time
+    public static long withoutFirst(long bitboard) {
+        return bitboard & (bitboard - 1);
+    }
+
+    public static long rowMask(int row) {
+        return ROW_0 << (row << 3);
+    }
+
+    public static long colMask(int col) {
+        return COL_0 << col;
+    }
+
+    // Draws the bitboard as an 8 x 8 grid, row 0 first, for debugging
+    public static String toString(long bitboard) {
+        StringBuilder builder = new StringBuilder(SQUARES * 2 + 8);
+        for (int square = 0; square < SQUARES; square++) {
+            builder.append(contains(bitboard, square) ? 'x' : '.');
+            builder.append(col(square) == 7 ? '\n' : ' ');
+        }
+        return builder.toString();
+    }
+}
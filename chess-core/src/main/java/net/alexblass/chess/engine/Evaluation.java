@@ -0,0 +1,121 @@
+package net.alexblass.chess.engine;
+
+import static net.alexblass.chess.engine.Pieces.KING;
+import static net.alexblass.chess.engine.Pieces.PAWN;
+
+/**
+ * Scores a position for the search, in centipawns (hundredths of a pawn).
+ *
+ * The score counts material, using the same points the game awards for captures
+ * (see Pieces.pointsValue) scaled to centipawns, plus the piece-square bonuses (see
+ * PieceSquareTables). The middlegame and endgame bonuses are blended by the game phase,
+ * so the score slides from one to the other as pieces come off. Position keeps all of
+ * these totals up to date as moves are made and taken back, so evaluating is a few
+ * reads and a multiply instead of a pass over the board.
+ *
+ * The score is from the point of view of the side to move, so a positive score means
+ * the side to move is ahead.
+ */
+
+public final class Evaluation {
+
+    // Signed material for each piece code: positive for white, negative for black
+    private static final int[] MATERIAL = new int[Pieces.CODES];
+
+    static {
+        for (int type = PAWN; type <= KING; type++) {
+            MATERIAL[Pieces.code(Pieces.WHITE, type)] = pieceValue(type);
+            MATERIAL[Pieces.code(Pieces.BLACK, type)] = -pieceValue(type);
+        }
+    }
+
+    private Evaluation() {
+    }
+
+    // The value of a piece type in centipawns
+    public static int pieceValue(int type) {
+        return Pieces.pointsValue(type) * 100;
+    }
+
+    // The material a piece adds to white's side of the score
+    static int material(int code) {
+        return MATERIAL[code];
+    }
+
+    public static int evaluate(Position position) {
+        int score = position.getMaterial() + pieceSquares(position);
+        return position.getSideToMove() == Pieces.WHITE ? score : -score;
+    }
+
+    // Break the score into its terms, for debugging the evaluation
+    public static Breakdown breakdown(Position position) {
+        return new Breakdown(position);
+    }
+
+    // Whether the color has any pieces besides pawns and the king. Without them,
+    // passing the turn can be the best move (zugzwang), so null moves aren't tried.
+    public static boolean hasNonPawnMaterial(Position position, int color) {
+        return (position.getColorPieces(color) & ~position.getPieces(color, PAWN)
+                & ~position.getPieces(color, KING)) != 0;
+    }
+
+    // The middlegame and endgame bonuses blended by the phase, white minus black
+    private static int pieceSquares(Position position) {
+        int phase = Math.min(position.getPhase(), PieceSquareTables.MAX_PHASE);
+        return (position.getMidgameScore() * phase
+                + position.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+    }
+
+    // The terms of the score for one position, all from white's point of view
+    public static class Breakdown {
+        private final int mMaterial;
+        private final int mMidgame;
+        private final int mEndgame;
+        private final int mPhase;
+        private final int mPieceSquares;
+
+        Breakdown(Position position) {
+            this.mMaterial = position.getMaterial();
+            this.mMidgame = position.getMidgameScore();
+            this.mEndgame = position.getEndgameScore();
+            this.mPhase = position.getPhase();
+            this.mPieceSquares = pieceSquares(position);
+        }
+
+        public int getMaterial() {
+            return mMaterial;
+        }
+
+        public int getMidgame() {
+            return mMidgame;
+        }
+
+        public int getEndgame() {
+            return mEndgame;
+        }
+
+        public int getPhase() {
+            return mPhase;
+        }
+
+        // The middlegame and endgame bonuses blended by the phase
+        public int getPieceSquares() {
+            return mPieceSquares;
+        }
+
+        public int getTotal() {
+            return mMaterial + mPieceSquares;
+        }
+
+        @Override
+        public String toString() {
+            return "material " + mMaterial
+                    + " midgame " + mMidgame
+                    + " endgame " + mEndgame
+                    + " phase " + mPhase + "/" + PieceSquareTables.MAX_PHASE
+                    + " piece-squares " + mPieceSquares
+                    + " total " + getTotal();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package net.alexblass.chess.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation (FEN).
+ *
+ * The text is read one character at a time straight into the position, so no
+ * intermediate strings are created. It can be read from any CharSequence, or from
+ * ASCII bytes in a buffer such as a memory-mapped file of test positions, without
+ * creating any objects per record.
+ */
+
+public final class Fen {
+
+    // The position at the start of a new game
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Piece letters indexed by type, white pieces use upper case
+    private static final String PIECE_LETTERS = "pnbrqk";
+
+    private Fen() {
+    }
+
+    // Set up the position from a FEN record. The halfmove clock and fullmove
+    // number may be left off, as they are in EPD files.
+    public static void parse(CharSequence fen, Position position) {
+        parse(fen, null, 0, fen.length(), position);
+    }
+
+    // Set up the position from the FEN record on the line starting at the buffer's
+    // position, read as ASCII. The buffer is left at the start of the next line, so a
+    // file of records can be read by calling this until the buffer has none remaining.
+    public static void parse(ByteBuffer buffer, Position position) {
+        int start = buffer.position();
+        int end = start;
+        while (end < buffer.limit() && buffer.get(end) != '\n' && buffer.get(end) != '\r') {
+            end++;
+        }
+        parse(null, buffer, start, end, position);
+
+        // Skip the line ending, whether it's \n or \r\n
+        if (end < buffer.limit() && buffer.get(end) == '\r') {
+            end++;
+        }
+        if (end < buffer.limit() && buffer.get(end) == '\n') {
+            end++;
+        }
+        buffer.position(end);
+    }
+
+    // Read the record between start and end from the text or, if the text is null,
+    // from the bytes. Indexing either one directly keeps a file of records from
+    // creating anything per record.
+    private static void parse(CharSequence text, ByteBuffer bytes, int start, int end,
+            Position position) {
+        position.clear();
+        int i = skipSpaces(text, bytes, start, end);
+
+        // Piece placement, starting from row 0 (black's home row)
+        int row = 0;
+        int col = 0;
+        while (i < end && charAt(text, bytes, i) != ' ') {
+            char c = charAt(text, bytes, i++);
+            if (c == '/') {
+                if (col != 8 || ++row == 8) {
+                    throw badRecord("Bad piece placement", text, bytes, start, end);
+                }
+                col = 0;
+                continue;
+            }
+            if (c >= '1' && c <= '8') {
+                col += c - '0';
+            } else {
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col >= 8) {
+                    throw badRecord("Bad piece placement", text, bytes, start, end);
+                }
+                int color = Character.isUpperCase(c) ? Pieces.WHITE : Pieces.BLACK;
+                position.putPiece(Bitboards.square(row, col++), color, type);
+            }
+            if (col > 8) {
+                throw badRecord("Bad piece placement", text, bytes, start, end);
+            }
+        }
+        if (row != 7 || col != 8) {
+            throw badRecord("Bad piece placement", text, bytes, start, end);
+        }
+
+        // Side to move
+        i = skipSpaces(text, bytes, i, end);
+        if (i >= end) {
+            throw badRecord("Missing side to move", text, bytes, start, end);
+        }
+        int sideToMove = charAt(text, bytes, i++) == 'b' ? Pieces.BLACK : Pieces.WHITE;
+        position.setSideToMove(sideToMove);
+
+        // Castling rights
+        i = skipSpaces(text, bytes, i, end);
+        int rights = Position.NO_CASTLING;
+        while (i < end && charAt(text, bytes, i) != ' ') {
+            switch (charAt(text, bytes, i++)) {
+                case 'K':
+                    rights |= Position.WHITE_KINGSIDE;
+                    break;
+                case 'Q':
+                    rights |= Position.WHITE_QUEENSIDE;
+                    break;
+                case 'k':
+                    rights |= Position.BLACK_KINGSIDE;
+                    break;
+                case 'q':
+                    rights |= Position.BLACK_QUEENSIDE;
+                    break;
+            }
+        }
+        position.setCastlingRights(rights);
+
+        // En passant square, kept only if a pawn can take there, as after the pawn's move
+        i = skipSpaces(text, bytes, i, end);
+        char file = i < end ? charAt(text, bytes, i) : ' ';
+        if (i + 1 < end && file >= 'a' && file <= 'h') {
+            int passedRow = '8' - charAt(text, bytes, i + 1);
+            if (passedRow == (sideToMove == Pieces.BLACK ? 5 : 2)) {
+                position.setEnPassantSquare(position.enPassantSquareAfter(
+                        Pieces.opposite(sideToMove), Bitboards.square(passedRow, file - 'a')));
+            }
+            i += 2;
+        } else {
+            i++;
+        }
+
+        // Halfmove clock and fullmove number
+        i = skipSpaces(text, bytes, i, end);
+        if (i < end) {
+            int digits = skipDigits(text, bytes, i, end);
+            position.setHalfmoveClock(parseInt(text, bytes, i, digits));
+            i = skipSpaces(text, bytes, digits, end);
+            if (i < end) {
+                digits = skipDigits(text, bytes, i, end);
+                position.setFullmoveNumber(Math.max(1, parseInt(text, bytes, i, digits)));
+            }
+        }
+    }
+
+    // The FEN record for the position
+    public static String toString(Position position) {
+        StringBuilder fen = new StringBuilder(90);
+        write(position, fen);
+        return fen.toString();
+    }
+
+    // Append the FEN record for the position
+    public static void write(Position position, StringBuilder out) {
+        // Piece placement, starting from row 0 (black's home row)
+        for (int row = 0; row < 8; row++) {
+            if (row > 0) {
+                out.append('/');
+            }
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int code = position.getPieceAt(Bitboards.square(row, col));
+                if (code == Pieces.NONE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    out.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(Pieces.typeOf(code));
+                out.append(Pieces.colorOf(code) == Pieces.WHITE
+                        ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                out.append((char) ('0' + empty));
+            }
+        }
+
+        out.append(position.getSideToMove() == Pieces.WHITE ? " w " : " b ");
+
+        int rights = position.getCastlingRights();
+        if (rights == Position.NO_CASTLING) {
+            out.append('-');
+        } else {
+            if ((rights & Position.WHITE_KINGSIDE) != 0) {
+                out.append('K');
+            }
+            if ((rights & Position.WHITE_QUEENSIDE) != 0) {
+                out.append('Q');
+            }
+            if ((rights & Position.BLACK_KINGSIDE) != 0) {
+                out.append('k');
+            }
+            if ((rights & Position.BLACK_QUEENSIDE) != 0) {
+                out.append('q');
+            }
+        }
+
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant == Bitboards.NO_SQUARE) {
+            out.append(" - ");
+        } else {
+            out.append(' ')
+                    .append((char) ('a' + Bitboards.col(enPassant)))
+                    .append((char) ('8' - Bitboards.row(enPassant)))
+                    .append(' ');
+        }
+
+        out.append(position.getHalfmoveClock()).append(' ').append(position.getFullmoveNumber());
+    }
+
+    private static char charAt(CharSequence text, ByteBuffer bytes, int i) {
+        return text != null ? text.charAt(i) : (char) (bytes.get(i) & 0xFF);
+    }
+
+    private static int skipSpaces(CharSequence text, ByteBuffer bytes, int i, int end) {
+        while (i < end && charAt(text, bytes, i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipDigits(CharSequence text, ByteBuffer bytes, int i, int end) {
+        while (i < end && charAt(text, bytes, i) >= '0' && charAt(text, bytes, i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int parseInt(CharSequence text, ByteBuffer bytes, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (charAt(text, bytes, i) - '0');
+        }
+        return value;
+    }
+
+    // Only built when the record is rejected
+    private static IllegalArgumentException badRecord(String problem, CharSequence text,
+            ByteBuffer bytes, int start, int end) {
+        StringBuilder record = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            record.append(charAt(text, bytes, i));
+        }
+        return new IllegalArgumentException(problem + " in FEN: " + record);
+    }
+}
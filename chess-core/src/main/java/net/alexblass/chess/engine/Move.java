@@ -0,0 +1,105 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Moves are packed into a single int so they can be stored in plain int arrays.
+ *
+ * Bits  0-5   from square
+ * Bits  6-11  to square
+ * Bits 12-14  type of the piece that moves
+ * Bits 15-17  type of the piece that's captured, if any
+ * Bits 18-20  type the pawn is promoted to, if any
+ * Bits 21-25  flags for captures, promotions, en passant, castling and 2 space pawn moves
+ */
+
+public final class Move {
+
+    // No move. A real move never has the same from and to square.
+    public static final int NONE = 0;
+
+    private static final int TO_SHIFT = 6;
+    private static final int PIECE_SHIFT = 12;
+    private static final int CAPTURED_SHIFT = 15;
+    private static final int PROMOTION_SHIFT = 18;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TYPE_MASK = 0x7;
+
+    public static final int CAPTURE = 1 << 21;
+    public static final int PROMOTION = 1 << 22;
+    public static final int EN_PASSANT = 1 << 23;
+    public static final int CASTLE = 1 << 24;
+    public static final int DOUBLE_PUSH = 1 << 25;
+
+    private Move() {
+    }
+
+    // Captured and promotion types are ignored unless the matching flag is set
+    public static int create(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from
+                | (to << TO_SHIFT)
+                | (piece << PIECE_SHIFT)
+                | (captured << CAPTURED_SHIFT)
+                | (promotion << PROMOTION_SHIFT)
+                | flags;
+    }
+
+    public static int from(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int to(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    public static int piece(int move) {
+        return (move >>> PIECE_SHIFT) & TYPE_MASK;
+    }
+
+    public static int captured(int move) {
+        return (move >>> CAPTURED_SHIFT) & TYPE_MASK;
+    }
+
+    public static int promotion(int move) {
+        return (move >>> PROMOTION_SHIFT) & TYPE_MASK;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return (move & EN_PASSANT) != 0;
+    }
+
+    public static boolean isCastle(int move) {
+        return (move & CASTLE) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    // Coordinate notation such as "e2e4" or "e7e8q", with files a-h
+    // for columns 0-7 and ranks 8-1 for rows 0-7
+    public static String toString(int move) {
+        if (move == NONE) {
+            return "0000";
+        }
+        StringBuilder builder = new StringBuilder(5);
+        appendSquare(builder, from(move));
+        appendSquare(builder, to(move));
+        if (isPromotion(move)) {
+            builder.append("nbrq".charAt(promotion(move) - Pieces.KNIGHT));
+        }
+        return builder.toString();
+    }
+
+    public static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + Bitboards.col(square)));
+        builder.append((char) ('8' - Bitboards.row(square)));
+    }
+}
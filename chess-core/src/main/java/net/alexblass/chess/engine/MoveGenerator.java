@@ -0,0 +1,334 @@
+package net.alexblass.chess.engine;
+
+import static net.alexblass.chess.engine.Bitboards.NO_SQUARE;
+import static net.alexblass.chess.engine.Pieces.BISHOP;
+import static net.alexblass.chess.engine.Pieces.KING;
+import static net.alexblass.chess.engine.Pieces.KNIGHT;
+import static net.alexblass.chess.engine.Pieces.PAWN;
+import static net.alexblass.chess.engine.Pieces.QUEEN;
+import static net.alexblass.chess.engine.Pieces.ROOK;
+import static net.alexblass.chess.engine.Pieces.WHITE;
+
+/**
+ * Lists every legal move in a position.
+ *
+ * Only legal moves are generated, without playing any of them. The generator first finds
+ * the enemy pieces giving check and our pieces pinned against our king. In check, the
+ * other pieces may only capture the checking piece or block its line, and in double
+ * check only the king moves. Pinned pieces may only move along the pin, and the king
+ * only steps onto squares the enemy doesn't attack.
+ *
+ * Moves are written as encoded ints (see Move) into an array supplied by the caller,
+ * so generating moves doesn't allocate anything. A generator keeps the check and pin
+ * masks for the position it's working on, so each thread should use its own.
+ */
+
+public class MoveGenerator {
+
+    // Generation modes
+    public static final int ALL = 0;
+    public static final int CAPTURES = 1; // Only moves that capture a piece
+    public static final int QUIETS = 2; // Only moves that don't capture anything
+
+    // More than the most legal moves any position can have (218)
+    public static final int MAX_MOVES = 256;
+
+    // Types a pawn can be promoted to, best first
+    private static final int[] PROMOTION_TYPES = {QUEEN, KNIGHT, ROOK, BISHOP};
+
+    // For the position being generated: our king's square, the squares other pieces
+    // may move to (all of them unless in check), and our pinned pieces
+    private int mKingSquare;
+    private long mCheckMask;
+    private long mPinned;
+
+    // Generate the legal moves for the side to move into moves, starting at index 0.
+    // Returns the number of moves written.
+    public int generate(Position position, int[] moves, int mode) {
+        return generate(position, moves, 0, mode);
+    }
+
+    // Generate the legal moves for the side to move into moves, starting at offset.
+    // Returns the number of moves written.
+    public int generate(Position position, int[] moves, int offset, int mode) {
+        int us = position.getSideToMove();
+        int them = Pieces.opposite(us);
+        long occupied = position.getOccupied();
+        long enemies = position.getColorPieces(them);
+
+        // The squares each piece may move to in this mode
+        long targets;
+        switch (mode) {
+            case CAPTURES:
+                targets = enemies;
+                break;
+            case QUIETS:
+                targets = ~occupied;
+                break;
+            default:
+                targets = ~position.getColorPieces(us);
+        }
+
+        mKingSquare = position.getKingSquare(us);
+        long checkers = position.attackersTo(mKingSquare, them, occupied);
+
+        // The king may step anywhere the enemy doesn't attack. The king is taken off
+        // the board first, so it can't hide from a slider behind its own square.
+        long enemyAttacks = position.getAttackedSquares(them, occupied & ~Bitboards.bit(mKingSquare));
+        int count = offset;
+        long kingMoves = Attacks.kingAttacks(mKingSquare) & targets & ~enemyAttacks;
+        while (kingMoves != 0) {
+            int to = Bitboards.first(kingMoves);
+            kingMoves = Bitboards.withoutFirst(kingMoves);
+            count = addMove(position, moves, count, mKingSquare, to, KING, 0, 0);
+        }
+
+        // In double check, only moving the king can help
+        if (Bitboards.count(checkers) > 1) {
+            return count - offset;
+        }
+        if (checkers != 0) {
+            int checker = Bitboards.first(checkers);
+            mCheckMask = checkers | Attacks.between(mKingSquare, checker);
+        } else {
+            mCheckMask = Bitboards.ALL;
+        }
+        mPinned = findPinned(position, us, them);
+
+        count = generatePawnMoves(position, moves, count, mode);
+
+        for (int type = KNIGHT; type < KING; type++) {
+            long pieces = position.getPieces(us, type);
+            while (pieces != 0) {
+                int from = Bitboards.first(pieces);
+                pieces = Bitboards.withoutFirst(pieces);
+
+                long attacks = Attacks.attacks(us, type, from, occupied) & targets & mCheckMask;
+                if (Bitboards.contains(mPinned, from)) {
+                    attacks &= Attacks.line(mKingSquare, from);
+                }
+                while (attacks != 0) {
+                    int to = Bitboards.first(attacks);
+                    attacks = Bitboards.withoutFirst(attacks);
+                    count = addMove(position, moves, count, from, to, type, 0, 0);
+                }
+            }
+        }
+
+        if (mode != CAPTURES && checkers == 0) {
+            count = generateCastling(position, moves, count, enemyAttacks);
+        }
+        return count - offset;
+    }
+
+    // Whether the side to move has any legal move at all
+    public boolean hasLegalMove(Position position, int[] moves) {
+        return generate(position, moves, 0, ALL) > 0;
+    }
+
+    // Find the legal move from one square to another. Pawns reaching the last row
+    // are promoted to the given type. Returns Move.NONE if there's no such move.
+    public int findMove(Position position, int from, int to, int promotion, int[] moves) {
+        int count = generate(position, moves, 0, ALL);
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (!Move.isPromotion(move) || Move.promotion(move) == promotion)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    // Play a move that follows each piece's movement rules, check whether it leaves
+    // the mover's own king attacked, and take it back. Generated moves are always
+    // legal; this is for checking moves from elsewhere, like the transposition table.
+    public boolean isLegal(Position position, int move) {
+        int us = position.getSideToMove();
+        position.makeMove(move);
+        boolean legal = !position.isSquareAttacked(position.getKingSquare(us), Pieces.opposite(us));
+        position.unmakeMove();
+        return legal;
+    }
+
+    // Our pieces that are the only thing between our king and an enemy slider
+    private long findPinned(Position position, int us, int them) {
+        long queens = position.getPieces(them, QUEEN);
+        long snipers = (Attacks.rookAttacks(mKingSquare, 0L) & (position.getPieces(them, ROOK) | queens))
+                | (Attacks.bishopAttacks(mKingSquare, 0L) & (position.getPieces(them, BISHOP) | queens));
+        long occupied = position.getOccupied();
+        long ours = position.getColorPieces(us);
+
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Bitboards.first(snipers);
+            snipers = Bitboards.withoutFirst(snipers);
+            long blockers = Attacks.between(mKingSquare, sniper) & occupied;
+            if (blockers != 0 && Bitboards.withoutFirst(blockers) == 0 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    // Whether a pawn may move between the squares without exposing the king
+    private boolean isPawnMoveAllowed(int from, int to) {
+        return Bitboards.contains(mCheckMask, to)
+                && (!Bitboards.contains(mPinned, from)
+                || Bitboards.contains(Attacks.line(mKingSquare, from), to));
+    }
+
+    private int generatePawnMoves(Position position, int[] moves, int count, int mode) {
+        int us = position.getSideToMove();
+        long pawns = position.getPieces(us, PAWN);
+        long empty = ~position.getOccupied();
+        long enemies = position.getColorPieces(Pieces.opposite(us));
+
+        // White pawns move towards row 0, black pawns towards row 7
+        int forward = us == WHITE ? -8 : 8;
+        long lastRow = us == WHITE ? Bitboards.ROW_0 : Bitboards.ROW_7;
+        long doublePushRow = us == WHITE ? Bitboards.ROW_5 : Bitboards.ROW_2;
+
+        if (mode != CAPTURES) {
+            long singlePushes = shift(pawns, forward) & empty;
+            long doublePushes = shift(singlePushes & doublePushRow, forward) & empty & mCheckMask;
+            singlePushes &= mCheckMask;
+
+            while (singlePushes != 0) {
+                int to = Bitboards.first(singlePushes);
+                singlePushes = Bitboards.withoutFirst(singlePushes);
+                if (!isPawnMoveAllowed(to - forward, to)) {
+                    continue;
+                }
+                if (Bitboards.contains(lastRow, to)) {
+                    count = addPromotions(position, moves, count, to - forward, to);
+                } else {
+                    count = addMove(position, moves, count, to - forward, to, PAWN, 0, 0);
+                }
+            }
+            while (doublePushes != 0) {
+                int to = Bitboards.first(doublePushes);
+                doublePushes = Bitboards.withoutFirst(doublePushes);
+                if (isPawnMoveAllowed(to - 2 * forward, to)) {
+                    count = addMove(position, moves, count, to - 2 * forward, to, PAWN, 0,
+                            Move.DOUBLE_PUSH);
+                }
+            }
+        }
+
+        if (mode != QUIETS) {
+            long attackers = pawns;
+            while (attackers != 0) {
+                int from = Bitboards.first(attackers);
+                attackers = Bitboards.withoutFirst(attackers);
+
+                long captures = Attacks.pawnAttacks(us, from) & enemies & mCheckMask;
+                while (captures != 0) {
+                    int to = Bitboards.first(captures);
+                    captures = Bitboards.withoutFirst(captures);
+                    if (!isPawnMoveAllowed(from, to)) {
+                        continue;
+                    }
+                    if (Bitboards.contains(lastRow, to)) {
+                        count = addPromotions(position, moves, count, from, to);
+                    } else {
+                        count = addMove(position, moves, count, from, to, PAWN, 0, 0);
+                    }
+                }
+            }
+
+            // En passant: our pawns that attack the skipped square
+            // are the ones the enemy pawn moved past
+            int enPassantSquare = position.getEnPassantSquare();
+            if (enPassantSquare != NO_SQUARE) {
+                long capturers = Attacks.pawnAttacks(Pieces.opposite(us), enPassantSquare) & pawns;
+                while (capturers != 0) {
+                    int from = Bitboards.first(capturers);
+                    capturers = Bitboards.withoutFirst(capturers);
+                    if (isEnPassantLegal(position, from, enPassantSquare, forward)) {
+                        moves[count++] = Move.create(from, enPassantSquare, PAWN, PAWN, 0,
+                                Move.CAPTURE | Move.EN_PASSANT);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    // En passant takes two pawns off one row at once, which can uncover an attack on
+    // the king that no pin mask shows, so check the sliders with both pawns gone
+    private boolean isEnPassantLegal(Position position, int from, int to, int forward) {
+        int capturedSquare = to - forward;
+        if (!Bitboards.contains(mCheckMask, to) && !Bitboards.contains(mCheckMask, capturedSquare)) {
+            return false;
+        }
+        int them = Pieces.opposite(position.getSideToMove());
+        long occupied = (position.getOccupied() & ~Bitboards.bit(from) & ~Bitboards.bit(capturedSquare))
+                | Bitboards.bit(to);
+        long queens = position.getPieces(them, QUEEN);
+        return (Attacks.rookAttacks(mKingSquare, occupied) & (position.getPieces(them, ROOK) | queens)) == 0
+                && (Attacks.bishopAttacks(mKingSquare, occupied)
+                & (position.getPieces(them, BISHOP) | queens)) == 0;
+    }
+
+    private int generateCastling(Position position, int[] moves, int count, long enemyAttacks) {
+        int us = position.getSideToMove();
+        int rights = position.getCastlingRights();
+        int kingSquare;
+        int kingside;
+        int queenside;
+        if (us == WHITE) {
+            kingSquare = Position.WHITE_KING_START;
+            kingside = Position.WHITE_KINGSIDE;
+            queenside = Position.WHITE_QUEENSIDE;
+        } else {
+            kingSquare = Position.BLACK_KING_START;
+            kingside = Position.BLACK_KINGSIDE;
+            queenside = Position.BLACK_QUEENSIDE;
+        }
+        if ((rights & (kingside | queenside)) == 0) {
+            return count;
+        }
+
+        // The king can't castle out of check (the caller checks that),
+        // through an attacked square or onto one
+        long occupied = position.getOccupied();
+        long kingsidePath = Bitboards.bit(kingSquare + 1) | Bitboards.bit(kingSquare + 2);
+        long queensidePath = Bitboards.bit(kingSquare - 1) | Bitboards.bit(kingSquare - 2);
+
+        if ((rights & kingside) != 0
+                && (occupied & kingsidePath) == 0 && (enemyAttacks & kingsidePath) == 0) {
+            moves[count++] = Move.create(kingSquare, kingSquare + 2, KING, 0, 0, Move.CASTLE);
+        }
+        if ((rights & queenside) != 0
+                && (occupied & (queensidePath | Bitboards.bit(kingSquare - 3))) == 0
+                && (enemyAttacks & queensidePath) == 0) {
+            moves[count++] = Move.create(kingSquare, kingSquare - 2, KING, 0, 0, Move.CASTLE);
+        }
+        return count;
+    }
+
+    private int addPromotions(Position position, int[] moves, int count, int from, int to) {
+        for (int promotion : PROMOTION_TYPES) {
+            count = addMove(position, moves, count, from, to, PAWN, promotion, Move.PROMOTION);
+        }
+        return count;
+    }
+
+    private int addMove(Position position, int[] moves, int count,
+                        int from, int to, int type, int promotion, int flags) {
+        int target = position.getPieceAt(to);
+        int captured = 0;
+        if (target != Pieces.NONE) {
+            captured = Pieces.typeOf(target);
+            flags |= Move.CAPTURE;
+        }
+        moves[count] = Move.create(from, to, type, captured, promotion, flags);
+        return count + 1;
+    }
+
+    // Shift every square forward by a signed number of squares
+    private static long shift(long bitboard, int squares) {
+        return squares > 0 ? bitboard << squares : bitboard >>> -squares;
+    }
+}
@@ -0,0 +1,193 @@
+package net.alexblass.chess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * An opening book in the Polyglot ".bin" layout: 16 byte entries sorted by position
+ * key, each holding the key, a move, the move's weight and a learning value, all
+ * big-endian.
+ *
+ * The file is memory-mapped, so a large book stays off the heap and only the pages a
+ * lookup touches are read. A lookup binary-searches for the position's key and matches
+ * the book moves against the legal moves, writing into the caller's arrays, so it
+ * allocates nothing.
+ *
+ * Positions are keyed with Polyglot's own random numbers (see polyglotKey), so books
+ * made by other programs can be read as well as those from OpeningBookBuilder. Moves
+ * use Polyglot's encoding (see toBookMove). Lookups share move buffers, so use one
+ * book per thread.
+ */
+
+public class OpeningBook {
+
+    // The size of one entry in bytes
+    public static final int ENTRY_SIZE = 16;
+
+    private final ByteBuffer mEntries;
+    private final int mCount;
+
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final int[] mLegalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    // Use a buffer of entries already sorted by key
+    public OpeningBook(ByteBuffer entries) {
+        if (entries.remaining() % ENTRY_SIZE != 0) {
+            throw new IllegalArgumentException("Book size " + entries.remaining()
+                    + " isn't a multiple of " + ENTRY_SIZE);
+        }
+        mEntries = entries.slice();
+        mCount = mEntries.remaining() / ENTRY_SIZE;
+    }
+
+    // Memory-map a book file. The mapping stays valid after the file is closed.
+    public static OpeningBook open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            input.close();
+        }
+    }
+
+    public int getEntryCount() {
+        return mCount;
+    }
+
+    // Fill in the book moves for the position and their weights, and return how many
+    // there are. Book moves that aren't legal in the position are left out.
+    public int getMoves(Position position, int[] moves, int[] weights) {
+        long key = polyglotKey(position);
+        int count = 0;
+        int legalCount = -1;
+        for (int i = firstEntry(key); i < mCount && keyAt(i) == key && count < moves.length; i++) {
+            if (legalCount < 0) {
+                legalCount = mGenerator.generate(position, mLegalMoves, MoveGenerator.ALL);
+            }
+            int move = fromBookMove(mEntries.getShort(i * ENTRY_SIZE + 8) & 0xFFFF,
+                    mLegalMoves, legalCount);
+            if (move != Move.NONE) {
+                moves[count] = move;
+                weights[count] = mEntries.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // A book move picked at random in proportion to the weights,
+    // or Move.NONE if the position isn't in the book
+    public int pickMove(Position position, Random random, int[] moves, int[] weights) {
+        int count = getMoves(position, moves, weights);
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total == 0) {
+            return count == 0 ? Move.NONE : moves[random.nextInt(count)];
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < count; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return moves[i];
+            }
+        }
+        return moves[count - 1];
+    }
+
+    // The position's key as Polyglot computes it. The en passant file only counts when
+    // a pawn of the side to move stands next to the pawn that just moved two squares.
+    public static long polyglotKey(Position position) {
+        long key = 0L;
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            int code = position.getPieceAt(square);
+            if (code != Pieces.NONE) {
+                // Black pawn, white pawn, black knight and so on
+                int kind = Pieces.typeOf(code) * 2 + 1 - Pieces.colorOf(code);
+                key ^= PolyglotRandom.RANDOM64[64 * kind
+                        + 8 * (7 - Bitboards.row(square)) + Bitboards.col(square)];
+            }
+        }
+
+        int rights = position.getCastlingRights();
+        if ((rights & Position.WHITE_KINGSIDE) != 0) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.CASTLING];
+        }
+        if ((rights & Position.WHITE_QUEENSIDE) != 0) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.CASTLING + 1];
+        }
+        if ((rights & Position.BLACK_KINGSIDE) != 0) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.CASTLING + 2];
+        }
+        if ((rights & Position.BLACK_QUEENSIDE) != 0) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.CASTLING + 3];
+        }
+
+        int side = position.getSideToMove();
+        int enPassant = position.getEnPassantSquare();
+        if (enPassant != Bitboards.NO_SQUARE && (Attacks.pawnAttacks(Pieces.opposite(side),
+                enPassant) & position.getPieces(side, Pieces.PAWN)) != 0) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.EN_PASSANT + Bitboards.col(enPassant)];
+        }
+        if (side == Pieces.WHITE) {
+            key ^= PolyglotRandom.RANDOM64[PolyglotRandom.TURN];
+        }
+        return key;
+    }
+
+    // A move in Polyglot's encoding: the target column in bits 0-2 and row in bits 3-5,
+    // the starting column in bits 6-8 and row in bits 9-11, and the promotion type in
+    // bits 12-14 (1 for a knight up to 4 for a queen). Rows count up from white's home
+    // row, and castling is written as the king taking its own rook.
+    public static int toBookMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int toCol = Bitboards.col(to);
+        if (Move.isCastle(move)) {
+            toCol = toCol == 6 ? 7 : 0;
+        }
+        int bookMove = toCol | ((7 - Bitboards.row(to)) << 3)
+                | (Bitboards.col(from) << 6) | ((7 - Bitboards.row(from)) << 9);
+        if (Move.isPromotion(move)) {
+            bookMove |= Move.promotion(move) << 12;
+        }
+        return bookMove;
+    }
+
+    // The legal move with the book encoding, or Move.NONE
+    private static int fromBookMove(int bookMove, int[] legalMoves, int count) {
+        for (int i = 0; i < count; i++) {
+            if (toBookMove(legalMoves[i]) == bookMove) {
+                return legalMoves[i];
+            }
+        }
+        return Move.NONE;
+    }
+
+    // The index of the first entry with a key at least as large as the key,
+    // comparing keys as unsigned numbers like Polyglot does
+    private int firstEntry(long key) {
+        long target = key ^ Long.MIN_VALUE;
+        int low = 0;
+        int high = mCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((keyAt(middle) ^ Long.MIN_VALUE) < target) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int index) {
+        return mEntries.getLong(index * ENTRY_SIZE);
+    }
+}
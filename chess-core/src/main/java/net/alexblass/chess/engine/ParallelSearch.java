@@ -0,0 +1,220 @@
+package net.alexblass.chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches with several threads at once ("Lazy SMP").
+ *
+ * Every thread runs its own Search on the same position, and they all share one
+ * transposition table. The threads don't divide the work between them; they speed each
+ * other up through the table, since one thread's results cut off whole subtrees for the
+ * others. Half the helper threads start each iteration one ply deeper than the rest, so
+ * the threads spread over different depths instead of repeating the same one.
+ *
+ * The first thread follows the limits. When it finishes, or any thread completes the
+ * depth limit, every thread is stopped and the deepest completed iteration is returned.
+ * Node limits count the first thread's nodes only.
+ */
+
+public class ParallelSearch {
+
+    private final TranspositionTable mTable;
+    private final Search[] mSearches;
+    private final ExecutorService mExecutor;
+
+    private Search.Listener mListener;
+
+    // The deepest result any thread has completed in the current search
+    private SearchResult mBest;
+    private int mDepthLimit;
+
+    public ParallelSearch(TranspositionTable table, int threads) {
+        mTable = table;
+        mSearches = new Search[Math.max(1, threads)];
+        for (int i = 0; i < mSearches.length; i++) {
+            final Search search = new Search(table);
+            search.setListener(new Search.Listener() {
+                @Override
+                public void onIteration(SearchResult result) {
+                    onThreadIteration(search, result);
+                }
+            });
+            mSearches[i] = search;
+        }
+        mExecutor = Executors.newFixedThreadPool(mSearches.length, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "search-" + mCount.getAndIncrement());
+                // Don't keep the JVM alive if the owner forgets to shut down
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // Told each time the deepest completed iteration gets deeper, from any thread
+    public void setListener(Search.Listener listener) {
+        this.mListener = listener;
+    }
+
+    // Share a tablebase between all the threads
+    public void setTablebase(Tablebase tablebase) {
+        for (Search search : mSearches) {
+            search.setTablebase(tablebase);
+        }
+    }
+
+    public int getThreadCount() {
+        return mSearches.length;
+    }
+
+    public TranspositionTable getTable() {
+        return mTable;
+    }
+
+    // Search the position with every thread until the limits are reached, and return
+    // the deepest completed iteration. Blocks until all the threads have stopped.
+    public SearchResult search(final Position position, final SearchLimits limits) {
+        mTable.newSearch();
+        synchronized (this) {
+            mBest = null;
+            mDepthLimit = limits.getDepth();
+        }
+
+        AtomicInteger completedDepth = new AtomicInteger();
+        SearchLimits helperLimits = new SearchLimits().setDepth(limits.getDepth())
+                .setStopSignal(limits.getStopSignal());
+        List<Future<SearchResult>> futures = new ArrayList<>(mSearches.length);
+        for (int i = 0; i < mSearches.length; i++) {
+            final Search search = mSearches[i];
+            final SearchLimits threadLimits = i == 0 ? limits : helperLimits;
+            search.shareDepth(completedDepth, i == 0 ? 0 : i % 2);
+            futures.add(mExecutor.submit(new Callable<SearchResult>() {
+                @Override
+                public SearchResult call() {
+                    return search.iterate(position, threadLimits);
+                }
+            }));
+        }
+
+        SearchResult fallback = null;
+        try {
+            fallback = futures.get(0).get();
+            stop();
+            for (Future<SearchResult> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            stop();
+            throw new IllegalStateException("Search thread failed", e.getCause());
+        }
+
+        synchronized (this) {
+            if (mBest == null || (fallback != null && fallback.getDepth() > mBest.getDepth())) {
+                return fallback;
+            }
+            return mBest;
+        }
+    }
+
+    // Stop every thread as soon as possible. May be called from any thread.
+    public void stop() {
+        for (Search search : mSearches) {
+            search.stop();
+        }
+    }
+
+    // Stop the threads for good
+    public void shutdown() {
+        stop();
+        mExecutor.shutdownNow();
+    }
+
+    // The nodes each thread searched in the last search
+    public long[] getThreadNodes() {
+        long[] nodes = new long[mSearches.length];
+        for (int i = 0; i < mSearches.length; i++) {
+            nodes[i] = mSearches[i].getNodes();
+        }
+        return nodes;
+    }
+
+    public long getNodes() {
+        long total = 0;
+        for (Search search : mSearches) {
+            total += search.getNodes();
+        }
+        return total;
+    }
+
+    // How the threads used the table in the last search, all together
+    public TranspositionTable.Statistics getTableStatistics() {
+        TranspositionTable.Statistics total = new TranspositionTable.Statistics();
+        for (Search search : mSearches) {
+            total.add(search.getTableStatistics());
+        }
+        return total;
+    }
+
+    private void onThreadIteration(Search search, SearchResult result) {
+        SearchResult report;
+        synchronized (this) {
+            if (mBest != null && result.getDepth() <= mBest.getDepth()) {
+                return;
+            }
+            // Report the work of all the threads, not just the one that got there
+            mBest = new SearchResult(result.getPrincipalVariation(), result.getScore(),
+                    result.getDepth(), getNodes(), result.getNanos());
+            report = mBest;
+        }
+        if (result.getDepth() >= mDepthLimit) {
+            stop();
+        }
+        if (mListener != null) {
+            mListener.onIteration(report);
+        }
+    }
+
+    // Usage: ParallelSearch <milliseconds> [threads] [hash MB] [fen]
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        String fen = args.length > 3 ? args[3] : Fen.START;
+
+        Position position = new Position();
+        Fen.parse(fen, position);
+
+        TranspositionTable table = new TranspositionTable(megabytes);
+        ParallelSearch search = new ParallelSearch(table, threads);
+        search.setListener(new Search.Listener() {
+            @Override
+            public void onIteration(SearchResult result) {
+                System.out.println(result);
+            }
+        });
+        SearchResult result = search.search(position, new SearchLimits().setTimeMillis(millis));
+        System.out.println("bestmove " + Move.toString(result.getBestMove()));
+
+        long[] nodes = search.getThreadNodes();
+        for (int i = 0; i < nodes.length; i++) {
+            System.out.println("thread " + i + " nodes " + nodes[i]);
+        }
+        System.out.println("hash " + table + ", " + search.getTableStatistics());
+        search.shutdown();
+    }
+}
@@ -0,0 +1,186 @@
+package net.alexblass.chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the move tree to a fixed depth ("perft").
+ *
+ * Comparing the counts with published numbers for well known positions shows whether
+ * the move generator gets every rule right, and the time it takes tracks its speed.
+ * The moves at the root can be split across a fork-join pool to use every core.
+ */
+
+public class Perft {
+
+    private final MoveGenerator mGenerator = new MoveGenerator();
+
+    // The position moves are played on and taken back from
+    private final Position mPosition = new Position();
+
+    // Move lists for each ply, reused for every node
+    private int[][] mMoves = new int[0][];
+
+    // The result of a timed run
+    public static class Result {
+        private final long mNodes;
+        private final long mNanos;
+
+        Result(long nodes, long nanos) {
+            this.mNodes = nodes;
+            this.mNanos = nanos;
+        }
+
+        public long getNodes() {
+            return mNodes;
+        }
+
+        public long getNanos() {
+            return mNanos;
+        }
+
+        public long getNodesPerSecond() {
+            return mNanos == 0 ? 0 : (long) (mNodes * 1e9 / mNanos);
+        }
+
+        @Override
+        public String toString() {
+            return mNodes + " nodes in " + (mNanos / 1000000) + " ms ("
+                    + getNodesPerSecond() + " nodes/sec)";
+        }
+    }
+
+    // Count the leaf nodes below the position. The position itself isn't changed.
+    public long count(Position position, int depth) {
+        if (depth <= 0) {
+            return 1;
+        }
+        ensureDepth(depth);
+        mPosition.copyFrom(position);
+        return countFrom(depth);
+    }
+
+    // Count the leaf nodes below the position and time it
+    public Result run(Position position, int depth) {
+        long start = System.nanoTime();
+        long nodes = count(position, depth);
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    // Count the leaf nodes below the position, with each root move counted as a
+    // separate task on the pool. Each task uses its own Perft.
+    public static Result runParallel(Position position, int depth, ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long nodes = pool.invoke(new RootTask(new Position(position), depth));
+        return new Result(nodes, System.nanoTime() - start);
+    }
+
+    private long countFrom(int depth) {
+        Position position = mPosition;
+        int[] moves = mMoves[depth];
+        int count = mGenerator.generate(position, moves, MoveGenerator.ALL);
+
+        // The number of legal moves is the number of leaves one ply down
+        if (depth == 1) {
+            return count;
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += countFrom(depth - 1);
+            position.unmakeMove();
+        }
+        return nodes;
+    }
+
+    private void ensureDepth(int depth) {
+        if (mMoves.length > depth) {
+            return;
+        }
+        int[][] moves = new int[depth + 1][];
+        for (int ply = 0; ply <= depth; ply++) {
+            moves[ply] = ply < mMoves.length ? mMoves[ply] : new int[MoveGenerator.MAX_MOVES];
+        }
+        mMoves = moves;
+    }
+
+    // Splits the root moves into one subtask each
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position mPosition;
+        private final int mDepth;
+
+        RootTask(Position position, int depth) {
+            this.mPosition = position;
+            this.mDepth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (mDepth <= 1) {
+                return new Perft().count(mPosition, mDepth);
+            }
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int count = new MoveGenerator().generate(mPosition, moves, MoveGenerator.ALL);
+
+            List<MoveTask> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Position child = new Position(mPosition);
+                child.makeMove(moves[i]);
+                tasks.add(new MoveTask(child, mDepth - 1));
+            }
+            invokeAll(tasks);
+
+            long nodes = 0;
+            for (MoveTask task : tasks) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    // Counts the subtree below one root move
+    private static class MoveTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position mPosition;
+        private final int mDepth;
+
+        MoveTask(Position position, int depth) {
+            this.mPosition = position;
+            this.mDepth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return new Perft().count(mPosition, mDepth);
+        }
+    }
+
+    // Usage: Perft <depth> [threads] [fen]
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        String fen = args.length > 2 ? args[2] : Fen.START;
+
+        Position position = new Position();
+        Fen.parse(fen, position);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        for (int d = 1; d <= depth; d++) {
+            Result result;
+            if (threads > 1) {
+                result = runParallel(position, d, pool);
+            } else {
+                result = new Perft().run(position, d);
+            }
+            System.out.println("perft(" + d + ") = " + result);
+        }
+        pool.shutdown();
+    }
+}
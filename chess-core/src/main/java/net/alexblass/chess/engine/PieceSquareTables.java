@@ -0,0 +1,143 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Bonuses in centipawns for each piece type on each square, one set for the middlegame
+ * and one for the endgame. Knights want the center, pawns want to advance, the king
+ * hides behind its pawns in the middlegame and comes out to help in the endgame.
+ *
+ * The tables are laid out the way the board is printed, white's side at the bottom, so
+ * index 0 is a8 just like the square numbering. Black looks up the square mirrored
+ * top to bottom. Values are from white's point of view: black's are negated, so the
+ * sum over all pieces is white's advantage.
+ */
+
+public final class PieceSquareTables {
+
+    // How much each piece type counts towards the game phase. With all the pieces on
+    // the board the phase is MAX_PHASE (middlegame), and it falls to 0 as pieces come off.
+    public static final int MAX_PHASE = 24;
+    private static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+
+    private static final int[] PAWN_MIDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             10,  10,  20,  30,  30,  20,  10,  10,
+              5,   5,  10,  25,  25,  10,   5,   5,
+              0,   0,   0,  20,  20,   0,   0,   0,
+              5,  -5, -10,   0,   0, -10,  -5,   5,
+              5,  10,  10, -20, -20,  10,  10,   5,
+              0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] PAWN_ENDGAME = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+             80,  80,  80,  80,  80,  80,  80,  80,
+             50,  50,  50,  50,  50,  50,  50,  50,
+             30,  30,  30,  30,  30,  30,  30,  30,
+             15,  15,  15,  15,  15,  15,  15,  15,
+              5,   5,   5,   5,   5,   5,   5,   5,
+              0,   0,   0,   0,   0,   0,   0,   0,
+              0,   0,   0,   0,   0,   0,   0,   0
+    };
+
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20,   0,   0,   0,   0, -20, -40,
+            -30,   0,  10,  15,  15,  10,   0, -30,
+            -30,   5,  15,  20,  20,  15,   5, -30,
+            -30,   0,  15,  20,  20,  15,   0, -30,
+            -30,   5,  10,  15,  15,  10,   5, -30,
+            -40, -20,   0,   5,   5,   0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,  10,  10,   5,   0, -10,
+            -10,   5,   5,  10,  10,   5,   5, -10,
+            -10,   0,  10,  10,  10,  10,   0, -10,
+            -10,  10,  10,  10,  10,  10,  10, -10,
+            -10,   5,   0,   0,   0,   0,   5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+
+    private static final int[] ROOK = {
+              0,   0,   0,   0,   0,   0,   0,   0,
+              5,  10,  10,  10,  10,  10,  10,   5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+             -5,   0,   0,   0,   0,   0,   0,  -5,
+              0,   0,   0,   5,   5,   0,   0,   0
+    };
+
+    private static final int[] QUEEN = {
+            -20, -10, -10,  -5,  -5, -10, -10, -20,
+            -10,   0,   0,   0,   0,   0,   0, -10,
+            -10,   0,   5,   5,   5,   5,   0, -10,
+             -5,   0,   5,   5,   5,   5,   0,  -5,
+              0,   0,   5,   5,   5,   5,   0,  -5,
+            -10,   5,   5,   5,   5,   5,   0, -10,
+            -10,   0,   5,   0,   0,   0,   0, -10,
+            -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+
+    private static final int[] KING_MIDGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+             20,  20,   0,   0,   0,   0,  20,  20,
+             20,  30,  10,   0,   0,  10,  30,  20
+    };
+
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10,   0,   0, -10, -20, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  30,  40,  40,  30, -10, -30,
+            -30, -10,  20,  30,  30,  20, -10, -30,
+            -30, -30,   0,   0,   0,   0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    // Signed bonuses for each piece code on each square, indexed by (code * 64) + square
+    private static final int[] MIDGAME = new int[Pieces.CODES * Bitboards.SQUARES];
+    private static final int[] ENDGAME = new int[Pieces.CODES * Bitboards.SQUARES];
+
+    static {
+        int[][] midgame = {PAWN_MIDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDGAME};
+        int[][] endgame = {PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+        for (int type = Pieces.PAWN; type <= Pieces.KING; type++) {
+            for (int square = 0; square < Bitboards.SQUARES; square++) {
+                int white = Pieces.code(Pieces.WHITE, type);
+                int black = Pieces.code(Pieces.BLACK, type);
+                // Flipping the row (square ^ 56) mirrors the board top to bottom
+                MIDGAME[(white << 6) + square] = midgame[type][square];
+                ENDGAME[(white << 6) + square] = endgame[type][square];
+                MIDGAME[(black << 6) + square] = -midgame[type][square ^ 56];
+                ENDGAME[(black << 6) + square] = -endgame[type][square ^ 56];
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    public static int midgame(int code, int square) {
+        return MIDGAME[(code << 6) + square];
+    }
+
+    public static int endgame(int code, int square) {
+        return ENDGAME[(code << 6) + square];
+    }
+
+    public static int phase(int type) {
+        return PHASE[type];
+    }
+}
@@ -0,0 +1,53 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Small integer codes for piece colors and types, used by the bitboard position.
+ */
+
+public final class Pieces {
+
+    // Color codes, the same values as Piece.WHITE and Piece.BLACK
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+    public static final int COLORS = 2;
+
+    // Piece types
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+    public static final int TYPES = 6;
+
+    // A piece code combines a color and a type as (color * TYPES) + type,
+    // so there are 12 codes in total. NONE marks an empty square.
+    public static final int CODES = COLORS * TYPES;
+    public static final int NONE = -1;
+
+    // Points value of each piece type, indexed by type
+    private static final int[] POINTS_VALUES = {1, 3, 3, 5, 9, 0};
+
+    private Pieces() {
+    }
+
+    public static int code(int color, int type) {
+        return (color * TYPES) + type;
+    }
+
+    public static int colorOf(int code) {
+        return code < TYPES ? WHITE : BLACK;
+    }
+
+    public static int typeOf(int code) {
+        return code < TYPES ? code : code - TYPES;
+    }
+
+    public static int opposite(int color) {
+        return color ^ 1;
+    }
+
+    public static int pointsValue(int type) {
+        return POINTS_VALUES[type];
+    }
+}
@@ -0,0 +1,682 @@
+package net.alexblass.chess.engine;
+
+import java.util.Arrays;
+
+import static net.alexblass.chess.engine.Bitboards.NO_SQUARE;
+import static net.alexblass.chess.engine.Bitboards.SQUARES;
+import static net.alexblass.chess.engine.Bitboards.bit;
+import static net.alexblass.chess.engine.Pieces.BLACK;
+import static net.alexblass.chess.engine.Pieces.KING;
+import static net.alexblass.chess.engine.Pieces.NONE;
+import static net.alexblass.chess.engine.Pieces.PAWN;
+import static net.alexblass.chess.engine.Pieces.WHITE;
+
+/**
+ * A chess position stored as bitboards.
+ *
+ * There is one bitboard for each piece type and color, plus aggregate bitboards for
+ * each color and for all occupied squares. A mailbox array mirrors the bitboards so
+ * the piece on a given square can be found without testing all 12 bitboards.
+ */
+
+public class Position {
+
+    // Castling rights flags
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+    public static final int NO_CASTLING = 0;
+    public static final int ALL_CASTLING = 15;
+
+    // Start squares of the kings and the castling rooks
+    public static final int WHITE_KING_START = 60;
+    public static final int BLACK_KING_START = 4;
+
+    // The light squares: a8, c8 and so on
+    private static final long LIGHT_SQUARES = 0xAA55AA55AA55AA55L;
+
+    // Moves the undo stack holds before it has to grow,
+    // more than most games and any search need
+    private static final int INITIAL_HISTORY = 512;
+
+    // Castling rights that survive a move from or to each square.
+    // Moving a king or rook from its start square, or capturing
+    // a rook on its start square, loses the matching rights.
+    private static final int[] CASTLING_MASK = new int[SQUARES];
+
+    // The order of the pieces on each home row
+    private static final int[] HOME_ROW = {Pieces.ROOK, Pieces.KNIGHT, Pieces.BISHOP,
+            Pieces.QUEEN, Pieces.KING, Pieces.BISHOP, Pieces.KNIGHT, Pieces.ROOK};
+
+    static {
+        for (int square = 0; square < SQUARES; square++) {
+            CASTLING_MASK[square] = ALL_CASTLING;
+        }
+        CASTLING_MASK[WHITE_KING_START] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[63] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[56] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[BLACK_KING_START] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[7] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[0] &= ~BLACK_QUEENSIDE;
+    }
+
+    // One bitboard per piece code, see Pieces.code()
+    private final long[] mPieces = new long[Pieces.CODES];
+
+    // All pieces of each color
+    private final long[] mColors = new long[Pieces.COLORS];
+
+    // All pieces on the board
+    private long mOccupied;
+
+    // The piece code on each square, or Pieces.NONE if the square is empty
+    private final byte[] mSquares = new byte[SQUARES];
+
+    // Whose turn it is, Pieces.WHITE or Pieces.BLACK
+    private int mSideToMove;
+
+    // Castling rights flags that are still available
+    private int mCastlingRights;
+
+    // The square a pawn skipped over with its 2 space move on the
+    // previous turn, or NO_SQUARE if the last move was not a 2 space move
+    private int mEnPassantSquare;
+
+    // Moves since the last capture or pawn move, for the fifty move rule
+    private int mHalfmoveClock;
+
+    // Starts at 1 and goes up after each of black's moves
+    private int mFullmoveNumber;
+
+    // The Zobrist key of the position, see Zobrist. It's kept up to date
+    // with XORs as pieces and state change, never recomputed.
+    private long mKey;
+
+    // Running totals for the evaluation, kept up to date like the key as pieces are
+    // put and removed: material and the middlegame and endgame piece-square bonuses,
+    // all white minus black, and the game phase (see PieceSquareTables).
+    private int mMaterial;
+    private int mMidgame;
+    private int mEndgame;
+    private int mPhase;
+
+    // The moves played so far, most recent last, with what each one destroyed so it
+    // can be taken back exactly: the captured piece, castling rights, en passant square
+    // and halfmove clock packed into an int (see pushUndo()), and the key before the
+    // move. Null moves are recorded as Move.NONE.
+    private int[] mMoveStack = new int[INITIAL_HISTORY];
+    private int[] mUndoStack = new int[INITIAL_HISTORY];
+    private long[] mKeyStack = new long[INITIAL_HISTORY];
+    private int mHistorySize;
+
+    // Create an empty position
+    public Position() {
+        clear();
+    }
+
+    // Create a copy of another position
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    public void clear() {
+        for (int code = 0; code < Pieces.CODES; code++) {
+            mPieces[code] = 0L;
+        }
+        mColors[WHITE] = 0L;
+        mColors[BLACK] = 0L;
+        mOccupied = 0L;
+        for (int square = 0; square < SQUARES; square++) {
+            mSquares[square] = NONE;
+        }
+        mSideToMove = WHITE;
+        mCastlingRights = NO_CASTLING;
+        mEnPassantSquare = NO_SQUARE;
+        mHalfmoveClock = 0;
+        mFullmoveNumber = 1;
+        mKey = 0L;
+        mMaterial = 0;
+        mMidgame = 0;
+        mEndgame = 0;
+        mPhase = 0;
+        mHistorySize = 0;
+    }
+
+    // Set up the pieces for a new game
+    public void setStartPosition() {
+        clear();
+        for (int col = 0; col < 8; col++) {
+            putPiece(Bitboards.square(0, col), BLACK, HOME_ROW[col]);
+            putPiece(Bitboards.square(1, col), BLACK, PAWN);
+            putPiece(Bitboards.square(6, col), WHITE, PAWN);
+            putPiece(Bitboards.square(7, col), WHITE, HOME_ROW[col]);
+        }
+        setCastlingRights(ALL_CASTLING);
+    }
+
+    // Copying is a handful of array copies since there are no objects to clone
+    public void copyFrom(Position other) {
+        System.arraycopy(other.mPieces, 0, mPieces, 0, Pieces.CODES);
+        mColors[WHITE] = other.mColors[WHITE];
+        mColors[BLACK] = other.mColors[BLACK];
+        mOccupied = other.mOccupied;
+        System.arraycopy(other.mSquares, 0, mSquares, 0, SQUARES);
+        mSideToMove = other.mSideToMove;
+        mCastlingRights = other.mCastlingRights;
+        mEnPassantSquare = other.mEnPassantSquare;
+        mHalfmoveClock = other.mHalfmoveClock;
+        mFullmoveNumber = other.mFullmoveNumber;
+        mKey = other.mKey;
+        mMaterial = other.mMaterial;
+        mMidgame = other.mMidgame;
+        mEndgame = other.mEndgame;
+        mPhase = other.mPhase;
+
+        // Room for the deepest search past the copied moves, since the search plays
+        // its moves on a copy
+        ensureHistoryCapacity(other.mHistorySize + Search.MAX_PLY);
+        System.arraycopy(other.mMoveStack, 0, mMoveStack, 0, other.mHistorySize);
+        System.arraycopy(other.mUndoStack, 0, mUndoStack, 0, other.mHistorySize);
+        System.arraycopy(other.mKeyStack, 0, mKeyStack, 0, other.mHistorySize);
+        mHistorySize = other.mHistorySize;
+    }
+
+    // Place a piece on a square, replacing anything that was there
+    public void putPiece(int square, int color, int type) {
+        if (mSquares[square] != NONE) {
+            removePiece(square);
+        }
+        int code = Pieces.code(color, type);
+        long squareBit = bit(square);
+        mPieces[code] |= squareBit;
+        mColors[color] |= squareBit;
+        mOccupied |= squareBit;
+        mSquares[square] = (byte) code;
+        mKey ^= Zobrist.piece(code, square);
+        mMaterial += Evaluation.material(code);
+        mMidgame += PieceSquareTables.midgame(code, square);
+        mEndgame += PieceSquareTables.endgame(code, square);
+        mPhase += PieceSquareTables.phase(type);
+    }
+
+    // Clear a square, does nothing if the square is already empty
+    public void removePiece(int square) {
+        int code = mSquares[square];
+        if (code == NONE) {
+            return;
+        }
+        long squareBit = bit(square);
+        mPieces[code] &= ~squareBit;
+        mColors[Pieces.colorOf(code)] &= ~squareBit;
+        mOccupied &= ~squareBit;
+        mSquares[square] = NONE;
+        mKey ^= Zobrist.piece(code, square);
+        mMaterial -= Evaluation.material(code);
+        mMidgame -= PieceSquareTables.midgame(code, square);
+        mEndgame -= PieceSquareTables.endgame(code, square);
+        mPhase -= PieceSquareTables.phase(Pieces.typeOf(code));
+    }
+
+    // Move the piece on one square to another, capturing anything on the target
+    // square, and update the turn, castling rights and en passant square to match.
+    // The move itself is not checked against the rules, but it can be taken back
+    // with unmakeMove() like any other move.
+    public void movePiece(int from, int to) {
+        int code = mSquares[from];
+        int color = Pieces.colorOf(code);
+        int type = Pieces.typeOf(code);
+        int captured = mSquares[to];
+
+        int flags = 0;
+        if (captured != NONE) {
+            flags |= Move.CAPTURE;
+        }
+        if (type == PAWN && Math.abs(to - from) == 16) {
+            flags |= Move.DOUBLE_PUSH;
+        }
+
+        // The piece moves for its own side, whoever's turn it was
+        if (color != mSideToMove) {
+            setSideToMove(color);
+        }
+        makeMove(Move.create(from, to, type,
+                captured == NONE ? 0 : Pieces.typeOf(captured), 0, flags));
+    }
+
+    // Play a move from the MoveGenerator for the side to move. Captures, en passant,
+    // castling and promotions are all carried out from the flags in the move.
+    public void makeMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Move.piece(move);
+        int color = mSideToMove;
+
+        pushUndo(move, mSquares[to]);
+
+        if (Move.isEnPassant(move)) {
+            // The captured pawn is beside the moving pawn, not on the target square
+            removePiece(color == WHITE ? to + 8 : to - 8);
+        }
+
+        removePiece(from);
+        putPiece(to, color, Move.isPromotion(move) ? Move.promotion(move) : type);
+
+        if (Move.isCastle(move)) {
+            // The rook jumps to the other side of the king
+            if (to > from) {
+                removePiece(from + 3);
+                putPiece(from + 1, color, Pieces.ROOK);
+            } else {
+                removePiece(from - 4);
+                putPiece(from - 1, color, Pieces.ROOK);
+            }
+        }
+
+        setCastlingRights(mCastlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+
+        if (Move.isDoublePush(move)) {
+            setEnPassantSquare(enPassantSquareAfter(color, (from + to) / 2));
+        } else {
+            setEnPassantSquare(NO_SQUARE);
+        }
+
+        if (type == PAWN || Move.isCapture(move)) {
+            mHalfmoveClock = 0;
+        } else {
+            mHalfmoveClock++;
+        }
+        if (color == BLACK) {
+            mFullmoveNumber++;
+        }
+
+        setSideToMove(Pieces.opposite(color));
+
+        assert isKeyValid() : "Zobrist key out of sync after " + Move.toString(move);
+        assert isEvaluationValid() : "Evaluation out of sync after " + Move.toString(move);
+    }
+
+    // Take back the last move or null move, restoring the position exactly as it was
+    public void unmakeMove() {
+        int index = --mHistorySize;
+        int move = mMoveStack[index];
+        int undo = mUndoStack[index];
+        int color = Pieces.opposite(mSideToMove);
+
+        if (move != Move.NONE) {
+            int from = Move.from(move);
+            int to = Move.to(move);
+
+            removePiece(to);
+            putPiece(from, color, Move.piece(move));
+
+            int captured = (undo & 0xF) - 1;
+            if (Move.isEnPassant(move)) {
+                putPiece(color == WHITE ? to + 8 : to - 8, Pieces.opposite(color), PAWN);
+            } else if (captured != NONE) {
+                putPiece(to, Pieces.colorOf(captured), Pieces.typeOf(captured));
+            }
+
+            if (Move.isCastle(move)) {
+                if (to > from) {
+                    removePiece(from + 1);
+                    putPiece(from + 3, color, Pieces.ROOK);
+                } else {
+                    removePiece(from - 1);
+                    putPiece(from - 4, color, Pieces.ROOK);
+                }
+            }
+
+            if (color == BLACK) {
+                mFullmoveNumber--;
+            }
+        }
+
+        mSideToMove = color;
+        mCastlingRights = (undo >>> 4) & 0xF;
+        mEnPassantSquare = ((undo >>> 8) & 0x7F) - 1;
+        mHalfmoveClock = undo >>> 16;
+        mKey = mKeyStack[index];
+
+        assert isKeyValid() : "Zobrist key out of sync after taking back " + Move.toString(move);
+        assert isEvaluationValid()
+                : "Evaluation out of sync after taking back " + Move.toString(move);
+    }
+
+    // The last move played, or Move.NONE if there are none to take back
+    public int getLastMove() {
+        return mHistorySize == 0 ? Move.NONE : mMoveStack[mHistorySize - 1];
+    }
+
+    // How many moves can be taken back
+    public int getHistorySize() {
+        return mHistorySize;
+    }
+
+    // A move from the history, the first move played being 0
+    public int getMove(int index) {
+        if (index < 0 || index >= mHistorySize) {
+            throw new IndexOutOfBoundsException("No move " + index + " in " + mHistorySize);
+        }
+        return mMoveStack[index];
+    }
+
+    // Whether this position came up before with the same side to move. Only positions
+    // since the last capture, pawn move or null move are compared, since nothing
+    // before one of those can repeat.
+    public boolean isRepetition() {
+        int earliest = Math.max(0, mHistorySize - mHalfmoveClock);
+        for (int i = mHistorySize - 1; i >= earliest; i--) {
+            if (mMoveStack[i] == Move.NONE) {
+                return false;
+            }
+            if (((mHistorySize - i) & 1) == 0 && mKeyStack[i] == mKey) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // How many times this position came up before in the game, with the same side to
+    // move. A game is drawn by threefold repetition once this reaches 2.
+    public int getRepetitionCount() {
+        int count = 0;
+        int earliest = Math.max(0, mHistorySize - mHalfmoveClock);
+        for (int i = mHistorySize - 1; i >= earliest; i--) {
+            if (mMoveStack[i] == Move.NONE) {
+                break;
+            }
+            if (((mHistorySize - i) & 1) == 0 && mKeyStack[i] == mKey) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Whether neither side has the pieces to mate: just kings with at most one knight
+    // or bishop, or bishops that are all on squares of one color
+    public boolean hasInsufficientMaterial() {
+        long heavyPieces = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            heavyPieces |= getPieces(color, PAWN) | getPieces(color, Pieces.ROOK)
+                    | getPieces(color, Pieces.QUEEN);
+        }
+        if (heavyPieces != 0) {
+            return false;
+        }
+        long knights = getPieces(WHITE, Pieces.KNIGHT) | getPieces(BLACK, Pieces.KNIGHT);
+        long bishops = getPieces(WHITE, Pieces.BISHOP) | getPieces(BLACK, Pieces.BISHOP);
+        if (Bitboards.count(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0
+                && ((bishops & LIGHT_SQUARES) == 0 || (bishops & ~LIGHT_SQUARES) == 0);
+    }
+
+    // Record what the move is about to destroy: the piece on the target square,
+    // the castling rights, en passant square and halfmove clock, and the key
+    private void pushUndo(int move, int captured) {
+        if (mHistorySize == mMoveStack.length) {
+            ensureHistoryCapacity(mHistorySize * 2);
+        }
+        mMoveStack[mHistorySize] = move;
+        mUndoStack[mHistorySize] = (captured + 1)
+                | (mCastlingRights << 4)
+                | ((mEnPassantSquare + 1) << 8)
+                | (mHalfmoveClock << 16);
+        mKeyStack[mHistorySize] = mKey;
+        mHistorySize++;
+    }
+
+    // Only long games need more room. A copy always has room for a whole search past
+    // its history (see copyFrom()), so the stacks are never resized during a search.
+    private void ensureHistoryCapacity(int capacity) {
+        if (capacity <= mMoveStack.length) {
+            return;
+        }
+        mMoveStack = Arrays.copyOf(mMoveStack, capacity);
+        mUndoStack = Arrays.copyOf(mUndoStack, capacity);
+        mKeyStack = Arrays.copyOf(mKeyStack, capacity);
+    }
+
+    // Pass the turn without moving. Used by the search to see whether a position
+    // is so good that even giving the opponent a free move doesn't save them.
+    public void makeNullMove() {
+        pushUndo(Move.NONE, NONE);
+        setEnPassantSquare(NO_SQUARE);
+        mHalfmoveClock++;
+        setSideToMove(Pieces.opposite(mSideToMove));
+    }
+
+    // The en passant square to record after a pawn of the given color skips over
+    // a square. It's only recorded when an enemy pawn can actually capture there,
+    // so positions that only differ by a useless en passant square get the same key.
+    int enPassantSquareAfter(int color, int skippedSquare) {
+        int them = Pieces.opposite(color);
+        if ((Attacks.pawnAttacks(color, skippedSquare) & getPieces(them, PAWN)) != 0) {
+            return skippedSquare;
+        }
+        return NO_SQUARE;
+    }
+
+    // Compute the Zobrist key from scratch
+    public long computeKey() {
+        long key = 0L;
+        for (int square = 0; square < SQUARES; square++) {
+            if (mSquares[square] != NONE) {
+                key ^= Zobrist.piece(mSquares[square], square);
+            }
+        }
+        key ^= Zobrist.sideToMove(mSideToMove);
+        key ^= Zobrist.castling(mCastlingRights);
+        key ^= Zobrist.enPassant(mEnPassantSquare);
+        return key;
+    }
+
+    // Whether the incrementally updated key matches a full recompute,
+    // for checking in debug builds and with assertions turned on
+    public boolean isKeyValid() {
+        return mKey == computeKey();
+    }
+
+    public long getKey() {
+        return mKey;
+    }
+
+    // Whether the evaluation totals match a full recompute over every square,
+    // checked with assertions turned on just like the key
+    public boolean isEvaluationValid() {
+        int material = 0;
+        int midgame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < SQUARES; square++) {
+            int code = mSquares[square];
+            if (code != NONE) {
+                material += Evaluation.material(code);
+                midgame += PieceSquareTables.midgame(code, square);
+                endgame += PieceSquareTables.endgame(code, square);
+                phase += PieceSquareTables.phase(Pieces.typeOf(code));
+            }
+        }
+        return material == mMaterial && midgame == mMidgame
+                && endgame == mEndgame && phase == mPhase;
+    }
+
+    // Material in centipawns, white minus black
+    public int getMaterial() {
+        return mMaterial;
+    }
+
+    // The sum of the middlegame piece-square bonuses, white minus black
+    public int getMidgameScore() {
+        return mMidgame;
+    }
+
+    // The sum of the endgame piece-square bonuses, white minus black
+    public int getEndgameScore() {
+        return mEndgame;
+    }
+
+    // The game phase, from PieceSquareTables.MAX_PHASE with every piece on the board
+    // down to 0 with only kings and pawns. Promotions can take it above the maximum.
+    public int getPhase() {
+        return mPhase;
+    }
+
+    // Whether any piece of the given color attacks the square. Instead of
+    // looking at every piece of that color, this looks outwards from the
+    // square with each piece type's attacks and checks for that piece type.
+    public boolean isSquareAttacked(int square, int byColor) {
+        long occupied = mOccupied;
+        if ((Attacks.pawnAttacks(Pieces.opposite(byColor), square)
+                & getPieces(byColor, PAWN)) != 0) {
+            return true;
+        }
+        if ((Attacks.knightAttacks(square) & getPieces(byColor, Pieces.KNIGHT)) != 0) {
+            return true;
+        }
+        if ((Attacks.kingAttacks(square) & getPieces(byColor, KING)) != 0) {
+            return true;
+        }
+        long queens = getPieces(byColor, Pieces.QUEEN);
+        if ((Attacks.bishopAttacks(square, occupied)
+                & (getPieces(byColor, Pieces.BISHOP) | queens)) != 0) {
+            return true;
+        }
+        return (Attacks.rookAttacks(square, occupied)
+                & (getPieces(byColor, Pieces.ROOK) | queens)) != 0;
+    }
+
+    // The pieces of the given color that attack a square, with the given squares
+    // occupied. Passing a different occupancy lets a caller ask what's attacked once
+    // pieces have moved, without moving them.
+    public long attackersTo(int square, int byColor, long occupied) {
+        long queens = getPieces(byColor, Pieces.QUEEN);
+        return (Attacks.pawnAttacks(Pieces.opposite(byColor), square) & getPieces(byColor, PAWN))
+                | (Attacks.knightAttacks(square) & getPieces(byColor, Pieces.KNIGHT))
+                | (Attacks.kingAttacks(square) & getPieces(byColor, KING))
+                | (Attacks.bishopAttacks(square, occupied) & (getPieces(byColor, Pieces.BISHOP) | queens))
+                | (Attacks.rookAttacks(square, occupied) & (getPieces(byColor, Pieces.ROOK) | queens));
+    }
+
+    // Every square the given color attacks, with the given squares occupied
+    public long getAttackedSquares(int byColor, long occupied) {
+        // Pawns all at once: white pawns capture towards row 0, black towards row 7
+        long pawns = getPieces(byColor, PAWN);
+        long attacked;
+        if (byColor == WHITE) {
+            attacked = ((pawns & ~Bitboards.COL_0) >>> 9) | ((pawns & ~Bitboards.COL_7) >>> 7);
+        } else {
+            attacked = ((pawns & ~Bitboards.COL_0) << 7) | ((pawns & ~Bitboards.COL_7) << 9);
+        }
+        for (int type = Pieces.KNIGHT; type <= KING; type++) {
+            long pieces = getPieces(byColor, type);
+            while (pieces != 0) {
+                int square = Bitboards.first(pieces);
+                pieces = Bitboards.withoutFirst(pieces);
+                attacked |= Attacks.attacks(byColor, type, square, occupied);
+            }
+        }
+        return attacked;
+    }
+
+    // The enemy pieces giving check to the side to move
+    public long getCheckers() {
+        return attackersTo(getKingSquare(mSideToMove), Pieces.opposite(mSideToMove), mOccupied);
+    }
+
+    // Whether the side to move has its king attacked
+    public boolean isInCheck() {
+        return isSquareAttacked(getKingSquare(mSideToMove), Pieces.opposite(mSideToMove));
+    }
+
+    public long getPieces(int color, int type) {
+        return mPieces[Pieces.code(color, type)];
+    }
+
+    public long getPieces(int code) {
+        return mPieces[code];
+    }
+
+    public long getColorPieces(int color) {
+        return mColors[color];
+    }
+
+    public long getOccupied() {
+        return mOccupied;
+    }
+
+    public boolean isOccupied(int square) {
+        return ((mOccupied >>> square) & 1L) != 0;
+    }
+
+    // The piece code on a square, or Pieces.NONE if it's empty
+    public int getPieceAt(int square) {
+        return mSquares[square];
+    }
+
+    public int getKingSquare(int color) {
+        return Bitboards.first(mPieces[Pieces.code(color, KING)]);
+    }
+
+    public int getSideToMove() {
+        return mSideToMove;
+    }
+
+    public void setSideToMove(int color) {
+        mKey ^= Zobrist.sideToMove(mSideToMove) ^ Zobrist.sideToMove(color);
+        this.mSideToMove = color;
+    }
+
+    public int getCastlingRights() {
+        return mCastlingRights;
+    }
+
+    public void setCastlingRights(int castlingRights) {
+        mKey ^= Zobrist.castling(mCastlingRights) ^ Zobrist.castling(castlingRights);
+        this.mCastlingRights = castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return mEnPassantSquare;
+    }
+
+    public void setEnPassantSquare(int square) {
+        mKey ^= Zobrist.enPassant(mEnPassantSquare) ^ Zobrist.enPassant(square);
+        this.mEnPassantSquare = square;
+    }
+
+    public int getHalfmoveClock() {
+        return mHalfmoveClock;
+    }
+
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.mHalfmoveClock = halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return mFullmoveNumber;
+    }
+
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.mFullmoveNumber = fullmoveNumber;
+    }
+
+    // The castling right that depends on a rook staying on the given
+    // square, or NO_CASTLING if the square isn't a rook start square
+    public static int castlingRightForRookSquare(int square) {
+        switch (square) {
+            case 63:
+                return WHITE_KINGSIDE;
+            case 56:
+                return WHITE_QUEENSIDE;
+            case 7:
+                return BLACK_KINGSIDE;
+            case 0:
+                return BLACK_QUEENSIDE;
+            default:
+                return NO_CASTLING;
+        }
+    }
+}
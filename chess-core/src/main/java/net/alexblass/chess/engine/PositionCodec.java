@@ -0,0 +1,128 @@
+package net.alexblass.chess.engine;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packs a position into a fixed SIZE bytes, for saving state and storing positions
+ * in bulk.
+ *
+ * The layout is:
+ * - bytes 0-7: the occupied squares, as a bitboard
+ * - bytes 8-23: the code of each piece, 4 bits each in square order, high bits first
+ * - byte 24: the side to move in the top bit and the castling rights in the low 4
+ * - byte 25: the en passant square plus 1, or 0 for none
+ * - byte 26: the halfmove clock, up to 255
+ * - bytes 27-28: the fullmove number, up to 65535
+ * - bytes 29-31: unused, always 0
+ *
+ * A legal position has at most 32 pieces, which is all the piece codes have room for.
+ * The move history isn't stored, so a decoded position can't take moves back.
+ */
+
+public final class PositionCodec {
+
+    // The size of an encoded position in bytes
+    public static final int SIZE = 32;
+
+    private static final int MAX_PIECES = 32;
+    private static final int PIECES_OFFSET = 8;
+    private static final int STATE_OFFSET = PIECES_OFFSET + MAX_PIECES / 2;
+
+    private static final int BLACK_TO_MOVE = 0x80;
+
+    private PositionCodec() {
+    }
+
+    // The encoded position in a new array
+    public static byte[] encode(Position position) {
+        byte[] bytes = new byte[SIZE];
+        encode(position, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    // Write the encoded position at the buffer's position and move past it
+    public static void encode(Position position, ByteBuffer out) {
+        long occupied = position.getOccupied();
+        if (Bitboards.count(occupied) > MAX_PIECES) {
+            throw new IllegalArgumentException("Too many pieces to encode: "
+                    + Bitboards.count(occupied));
+        }
+        int start = out.position();
+        out.putLong(occupied);
+
+        // Two piece codes to a byte
+        int pieces = 0;
+        for (long bits = occupied; bits != 0; bits = Bitboards.withoutFirst(bits)) {
+            int code = position.getPieceAt(Bitboards.first(bits));
+            if ((pieces & 1) == 0) {
+                out.put(start + PIECES_OFFSET + pieces / 2, (byte) (code << 4));
+            } else {
+                int i = start + PIECES_OFFSET + pieces / 2;
+                out.put(i, (byte) (out.get(i) | code));
+            }
+            pieces++;
+        }
+        // Zero the rest, the buffer may have held something else
+        for (int i = (pieces + 1) / 2; i < MAX_PIECES / 2; i++) {
+            out.put(start + PIECES_OFFSET + i, (byte) 0);
+        }
+
+        out.position(start + STATE_OFFSET);
+        int state = position.getCastlingRights();
+        if (position.getSideToMove() == Pieces.BLACK) {
+            state |= BLACK_TO_MOVE;
+        }
+        out.put((byte) state);
+        out.put((byte) (position.getEnPassantSquare() + 1));
+        out.put((byte) Math.min(position.getHalfmoveClock(), 0xFF));
+        out.putShort((short) Math.min(position.getFullmoveNumber(), 0xFFFF));
+        out.put((byte) 0);
+        out.put((byte) 0);
+        out.put((byte) 0);
+    }
+
+    // Set up the position from the encoded bytes at the offset
+    public static void decode(byte[] bytes, int offset, Position position) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(offset);
+        decode(buffer, position);
+    }
+
+    // Set up the position from the encoded bytes at the buffer's position
+    // and move past them
+    public static void decode(ByteBuffer in, Position position) {
+        position.clear();
+        int start = in.position();
+        long occupied = in.getLong();
+
+        int pieces = 0;
+        for (long bits = occupied; bits != 0; bits = Bitboards.withoutFirst(bits)) {
+            if (pieces == MAX_PIECES) {
+                throw new IllegalArgumentException("Too many pieces in encoded position");
+            }
+            int packed = in.get(start + PIECES_OFFSET + pieces / 2);
+            int code = (pieces & 1) == 0 ? (packed >> 4) & 0xF : packed & 0xF;
+            if (code >= Pieces.CODES) {
+                throw new IllegalArgumentException("Bad piece code in encoded position: " + code);
+            }
+            position.putPiece(Bitboards.first(bits), Pieces.colorOf(code), Pieces.typeOf(code));
+            pieces++;
+        }
+
+        in.position(start + STATE_OFFSET);
+        int state = in.get() & 0xFF;
+        position.setSideToMove((state & BLACK_TO_MOVE) != 0 ? Pieces.BLACK : Pieces.WHITE);
+        position.setCastlingRights(state & Position.ALL_CASTLING);
+        // Only a square a pawn has just skipped over, on the third or sixth row
+        int enPassant = (in.get() & 0xFF) - 1;
+        if (enPassant != Bitboards.NO_SQUARE && (enPassant >= Bitboards.SQUARES
+                || (Bitboards.row(enPassant) != 2 && Bitboards.row(enPassant) != 5))) {
+            throw new IllegalArgumentException("Bad en passant square in encoded position: "
+                    + enPassant);
+        }
+        position.setEnPassantSquare(enPassant);
+        position.setHalfmoveClock(in.get() & 0xFF);
+        position.setFullmoveNumber(Math.max(1, in.getShort() & 0xFFFF));
+        in.position(start + SIZE);
+    }
+}
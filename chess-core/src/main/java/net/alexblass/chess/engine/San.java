@@ -0,0 +1,204 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Reads and writes moves in Standard Algebraic Notation (SAN), such as "Nf3", "exd5",
+ * "Rae1", "e8=Q+" or "O-O".
+ *
+ * Both directions need the legal moves of the position: reading matches the text
+ * against them, and writing names just enough of the starting square to tell the
+ * move apart from the others. Each San has its own move buffers so nothing is
+ * allocated per move; use one per thread.
+ */
+
+public class San {
+
+    // Piece letters indexed by type. Pawns have no letter.
+    private static final String PIECE_LETTERS = " NBRQK";
+
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] mReplies = new int[MoveGenerator.MAX_MOVES];
+
+    // The legal move the text describes in the position, or Move.NONE if there's no
+    // such move or the text could mean more than one. Check, mate and annotation
+    // marks at the end ("+", "#", "!", "?") are ignored, as are captures marked with
+    // "x" that aren't captures. Castling may be written with zeros.
+    public int parse(Position position, CharSequence text) {
+        return parse(position, text, 0, text.length());
+    }
+
+    // Parse the move in text from start up to end
+    public int parse(Position position, CharSequence text, int start, int end) {
+        while (end > start && "+#!?".indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+
+        if (isCastling(text, start, end)) {
+            // O-O takes the king to column 6, O-O-O to column 2
+            int col = end - start == 3 ? 6 : 2;
+            int count = mGenerator.generate(position, mMoves, MoveGenerator.ALL);
+            for (int i = 0; i < count; i++) {
+                if (Move.isCastle(mMoves[i]) && Bitboards.col(Move.to(mMoves[i])) == col) {
+                    return mMoves[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int i = start;
+        int type = PIECE_LETTERS.indexOf(text.charAt(i));
+        if (type > 0) {
+            i++;
+        } else {
+            type = Pieces.PAWN;
+        }
+
+        // A promotion at the end, "e8=Q" or "e8Q"
+        int promotion = 0;
+        if (type == Pieces.PAWN) {
+            int letter = PIECE_LETTERS.indexOf(text.charAt(end - 1));
+            if (letter >= Pieces.KNIGHT && letter <= Pieces.QUEEN) {
+                promotion = letter;
+                end--;
+                if (end > i && text.charAt(end - 1) == '=') {
+                    end--;
+                }
+            }
+        }
+
+        // The target square is the last thing left
+        if (end - i < 2) {
+            return Move.NONE;
+        }
+        int toCol = text.charAt(end - 2) - 'a';
+        int toRow = '8' - text.charAt(end - 1);
+        if (toCol < 0 || toCol > 7 || toRow < 0 || toRow > 7) {
+            return Move.NONE;
+        }
+        int to = Bitboards.square(toRow, toCol);
+
+        // Anything between the piece and the target narrows down the starting square
+        int fromCol = -1;
+        int fromRow = -1;
+        for (int j = i; j < end - 2; j++) {
+            char c = text.charAt(j);
+            if (c >= 'a' && c <= 'h') {
+                fromCol = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = '8' - c;
+            } else if (c != 'x' && c != '-' && c != ':') {
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        int count = mGenerator.generate(position, mMoves, MoveGenerator.ALL);
+        for (int k = 0; k < count; k++) {
+            int move = mMoves[k];
+            if (Move.to(move) != to || Move.piece(move) != type || Move.isCastle(move)) {
+                continue;
+            }
+            if ((fromCol >= 0 && Bitboards.col(Move.from(move)) != fromCol)
+                    || (fromRow >= 0 && Bitboards.row(Move.from(move)) != fromRow)) {
+                continue;
+            }
+            if (Move.isPromotion(move) ? Move.promotion(move) != promotion : promotion != 0) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                // Ambiguous
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    // The move in SAN. The move must be legal in the position.
+    public String toString(Position position, int move) {
+        StringBuilder san = new StringBuilder(8);
+        write(position, move, san);
+        return san.toString();
+    }
+
+    // Append the move in SAN. The move must be legal in the position, which is
+    // left as it was.
+    public void write(Position position, int move, StringBuilder out) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Move.piece(move);
+
+        if (Move.isCastle(move)) {
+            out.append(Bitboards.col(to) == 6 ? "O-O" : "O-O-O");
+        } else if (type == Pieces.PAWN) {
+            if (Move.isCapture(move)) {
+                out.append((char) ('a' + Bitboards.col(from))).append('x');
+            }
+            Move.appendSquare(out, to);
+            if (Move.isPromotion(move)) {
+                out.append('=').append(PIECE_LETTERS.charAt(Move.promotion(move)));
+            }
+        } else {
+            out.append(PIECE_LETTERS.charAt(type));
+            appendDisambiguation(position, move, out);
+            if (Move.isCapture(move)) {
+                out.append('x');
+            }
+            Move.appendSquare(out, to);
+        }
+
+        position.makeMove(move);
+        if (position.isInCheck()) {
+            out.append(mGenerator.hasLegalMove(position, mReplies) ? '+' : '#');
+        }
+        position.unmakeMove();
+    }
+
+    // Name the starting column, row or both if another piece of the same type
+    // could move to the same square
+    private void appendDisambiguation(Position position, int move, StringBuilder out) {
+        int from = Move.from(move);
+        boolean ambiguous = false;
+        boolean sameCol = false;
+        boolean sameRow = false;
+        int count = mGenerator.generate(position, mMoves, MoveGenerator.ALL);
+        for (int i = 0; i < count; i++) {
+            int other = mMoves[i];
+            if (other == move || Move.to(other) != Move.to(move)
+                    || Move.piece(other) != Move.piece(move) || Move.from(other) == from) {
+                continue;
+            }
+            ambiguous = true;
+            sameCol |= Bitboards.col(Move.from(other)) == Bitboards.col(from);
+            sameRow |= Bitboards.row(Move.from(other)) == Bitboards.row(from);
+        }
+        if (!ambiguous) {
+            return;
+        }
+        if (!sameCol) {
+            out.append((char) ('a' + Bitboards.col(from)));
+        } else if (!sameRow) {
+            out.append((char) ('8' - Bitboards.row(from)));
+        } else {
+            Move.appendSquare(out, from);
+        }
+    }
+
+    // O-O or O-O-O, with letter O or zero
+    private static boolean isCastling(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length != 3 && length != 5) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(start + i);
+            if ((i & 1) == 0 ? (c != 'O' && c != '0') : c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
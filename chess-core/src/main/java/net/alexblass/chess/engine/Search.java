@@ -0,0 +1,537 @@
+package net.alexblass.chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the best move in a position with a negamax alpha-beta search.
+ *
+ * The search deepens one ply at a time, so it always has a move ready when it's told
+ * to stop, and each iteration orders its moves from the results of the last one via
+ * the transposition table. At the horizon it keeps searching captures (quiescence) so
+ * it doesn't stop in the middle of an exchange. Null moves and late move reductions
+ * skip over most of the lines that can't matter.
+ *
+ * A search plays and takes back moves on its own copy of the position and keeps a move
+ * list for each ply, so searching doesn't allocate anything. Each thread needs its own
+ * Search, but they may share a table.
+ */
+
+public class Search {
+
+    // The deepest ply the search reaches, including quiescence
+    public static final int MAX_PLY = 64;
+
+    // Scores. Mate in n plies scores MATE - n, so quicker mates score higher. A mate
+    // found in the tablebase can be further off than the search reaches, so anything
+    // from MATE_BOUND up is a mate.
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MATE_BOUND = MATE - MAX_PLY - Tablebase.MAX_DISTANCE;
+
+    // How often, in nodes, the clock is checked
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    // Move ordering scores
+    private static final int TABLE_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+
+    // Told about each completed iteration, e.g. to show progress
+    public interface Listener {
+        void onIteration(SearchResult result);
+    }
+
+    private final TranspositionTable mTable;
+    private final MoveGenerator mGenerator = new MoveGenerator();
+
+    // The position moves are played on and taken back from
+    private final Position mPosition = new Position();
+
+    // Move lists and move ordering scores for each ply
+    private final int[][] mMoves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final int[][] mMoveScores = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+
+    // The best line found from each ply (a triangular table)
+    private final int[][] mPrincipalVariation = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] mPrincipalVariationLength = new int[MAX_PLY + 1];
+
+    // Quiet moves that caused a cutoff at each ply, tried early in sibling nodes
+    private final int[][] mKillers = new int[MAX_PLY + 1][2];
+
+    // How often each quiet move caused a cutoff, by color and (from * 64) + to
+    private final int[][] mHistory = new int[2][Bitboards.SQUARES * Bitboards.SQUARES];
+
+    private Listener mListener;
+
+    // Exact values for endgames with few pieces, if any
+    private Tablebase mTablebase;
+    private final Tablebase.ProbeBuffers mProbeBuffers = new Tablebase.ProbeBuffers();
+
+    // The deepest iteration completed by any thread sharing the table, if any
+    private AtomicInteger mCompletedDepth;
+    private int mDepthOffset;
+
+    private long mNodes;
+    private final TranspositionTable.Statistics mTableStatistics =
+            new TranspositionTable.Statistics();
+    private long mNodeLimit;
+    private long mStartNanos;
+    private boolean mTimeLimited;
+    private long mDeadlineNanos;
+    private AtomicBoolean mStopSignal;
+    private volatile boolean mStopped;
+
+    public Search(TranspositionTable table) {
+        mTable = table;
+    }
+
+    public void setListener(Listener listener) {
+        this.mListener = listener;
+    }
+
+    // Score positions in the tablebase by probing it rather than searching them
+    public void setTablebase(Tablebase tablebase) {
+        this.mTablebase = tablebase;
+    }
+
+    // Stop the search as soon as possible. May be called from any thread, but a stop
+    // that comes before the search starts is lost: use the limits' stop signal for that.
+    public void stop() {
+        mStopped = true;
+    }
+
+    public long getNodes() {
+        return mNodes;
+    }
+
+    // How the last search used the table
+    public TranspositionTable.Statistics getTableStatistics() {
+        return mTableStatistics;
+    }
+
+    // Search the position until one of the limits is reached and return the result
+    // of the deepest completed iteration. The position isn't changed.
+    public SearchResult search(Position position, SearchLimits limits) {
+        mTable.newSearch();
+        mStopped = false;
+        return iterate(position, limits);
+    }
+
+    // Have this search run as one of several threads sharing the table (see
+    // ParallelSearch). Each iteration starts past the deepest one any thread has
+    // completed, plus the offset, so the threads spread over different depths.
+    void shareDepth(AtomicInteger completedDepth, int depthOffset) {
+        this.mCompletedDepth = completedDepth;
+        this.mDepthOffset = depthOffset;
+        // Reset before the thread starts, so a stop that comes before it does isn't lost
+        this.mStopped = false;
+    }
+
+    // Run the iterations of a search without starting a new table age. The stop flag
+    // isn't reset here, since another thread may already have stopped this search.
+    SearchResult iterate(Position position, SearchLimits limits) {
+        mNodes = 0;
+        mTableStatistics.reset();
+        mNodeLimit = limits.getNodes();
+        mStartNanos = System.nanoTime();
+        mTimeLimited = limits.hasTimeLimit();
+        mDeadlineNanos = mStartNanos + limits.getTimeMillis() * 1000000L;
+        mStopSignal = limits.getStopSignal();
+        for (int[] killers : mKillers) {
+            Arrays.fill(killers, Move.NONE);
+        }
+        for (int[] history : mHistory) {
+            Arrays.fill(history, 0);
+        }
+        // The copy keeps the moves that led to the position, so repeating a position
+        // from the game is seen as a draw
+        mPosition.copyFrom(position);
+
+        SearchResult result = null;
+        for (int depth = 1 + mDepthOffset; depth <= limits.getDepth(); depth = nextDepth(depth)) {
+            int score = negamax(0, depth, -INFINITY, INFINITY, false);
+
+            // An unfinished iteration can still be used if it got as far as a move
+            boolean completed = !mStopped;
+            if (!completed && (result != null || mPrincipalVariationLength[0] == 0)) {
+                break;
+            }
+            result = new SearchResult(
+                    Arrays.copyOf(mPrincipalVariation[0], mPrincipalVariationLength[0]),
+                    score, depth, mNodes, System.nanoTime() - mStartNanos);
+            if (!completed) {
+                // Only this thread's last resort: it isn't reported, so the listener and
+                // the other threads only ever see completed iterations
+                break;
+            }
+            if (mCompletedDepth != null) {
+                raiseCompletedDepth(depth);
+            }
+            if (mListener != null) {
+                mListener.onIteration(result);
+            }
+
+            if (mStopped
+                    // Going deeper won't find a quicker mate
+                    || (result.isMateScore() && MATE - Math.abs(score) <= depth)
+                    // The next iteration would take longer than the time that's left
+                    || (limits.hasTimeLimit() && System.nanoTime() - mStartNanos
+                            > limits.getTimeMillis() * 1000000L / 2)) {
+                break;
+            }
+        }
+
+        if (result == null) {
+            result = fallbackResult();
+        }
+        return result;
+    }
+
+    private int nextDepth(int depth) {
+        if (mCompletedDepth == null) {
+            return depth + 1;
+        }
+        return Math.max(depth + 1, mCompletedDepth.get() + 1 + mDepthOffset);
+    }
+
+    private void raiseCompletedDepth(int depth) {
+        int completed = mCompletedDepth.get();
+        while (depth > completed && !mCompletedDepth.compareAndSet(completed, depth)) {
+            completed = mCompletedDepth.get();
+        }
+    }
+
+    // A result for when the search stopped before finishing a single move
+    private SearchResult fallbackResult() {
+        Position position = mPosition;
+        int[] moves = mMoves[0];
+        int count = mGenerator.generate(position, moves, MoveGenerator.ALL);
+        long nanos = System.nanoTime() - mStartNanos;
+        if (count == 0) {
+            int score = position.isInCheck() ? -MATE : 0;
+            return new SearchResult(new int[0], score, 0, mNodes, nanos);
+        }
+        return new SearchResult(new int[] {moves[0]}, 0, 0, mNodes, nanos);
+    }
+
+    private int negamax(int ply, int depth, int alpha, int beta, boolean allowNullMove) {
+        if (depth <= 0) {
+            return quiescence(ply, alpha, beta);
+        }
+        mPrincipalVariationLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+
+        Position position = mPosition;
+        boolean pvNode = beta - alpha > 1;
+
+        if (ply > 0) {
+            if (position.getHalfmoveClock() >= 100 || position.isRepetition()) {
+                return 0;
+            }
+            if (ply >= MAX_PLY) {
+                return Evaluation.evaluate(position);
+            }
+            // No line from here can do better than mating right away
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) {
+                return alpha;
+            }
+            if (mTablebase != null
+                    && Bitboards.count(position.getOccupied()) <= mTablebase.getMaxPieces()) {
+                int score = mTablebase.probeScore(position, ply, mProbeBuffers);
+                if (score != Tablebase.NO_SCORE) {
+                    return score;
+                }
+            }
+        }
+
+        long key = position.getKey();
+        long entry = mTable.probe(key);
+        mTableStatistics.mProbes++;
+        int tableMove = Move.NONE;
+        if (entry != TranspositionTable.NO_ENTRY) {
+            mTableStatistics.mHits++;
+            tableMove = TranspositionTable.move(entry);
+            if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int us = position.getSideToMove();
+        boolean inCheck = position.isInCheck();
+        if (inCheck) {
+            // Look one ply further when in check, since there are few replies
+            depth++;
+        }
+
+        // Null move: if passing the turn still scores at least beta, a real move
+        // would too, so a shallower search is enough to prove the cutoff
+        if (allowNullMove && !pvNode && !inCheck && depth >= 3
+                && Evaluation.hasNonPawnMaterial(position, us)
+                && Evaluation.evaluate(position) >= beta) {
+            int reduction = depth > 6 ? 3 : 2;
+            position.makeNullMove();
+            int score = -negamax(ply + 1, depth - 1 - reduction, -beta, -beta + 1, false);
+            position.unmakeMove();
+            if (mStopped) {
+                return 0;
+            }
+            if (score >= beta) {
+                // A mate found after passing isn't a real mate
+                return score >= MATE_BOUND ? beta : score;
+            }
+        }
+
+        int[] moves = mMoves[ply];
+        int count = mGenerator.generate(position, moves, MoveGenerator.ALL);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(ply, count, tableMove);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            position.makeMove(move);
+
+            boolean quiet = !Move.isCapture(move) && !Move.isPromotion(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(ply + 1, depth - 1, -beta, -alpha, true);
+            } else {
+                // Late move reductions: quiet moves ordered late rarely turn out best,
+                // so search them shallower first and only search fully if they surprise
+                int reduction = 0;
+                if (depth >= 3 && i >= 3 && quiet && !inCheck && !position.isInCheck()
+                        && move != mKillers[ply][0] && move != mKillers[ply][1]) {
+                    reduction = i >= 8 ? 2 : 1;
+                }
+                score = -negamax(ply + 1, depth - 1 - reduction, -alpha - 1, -alpha, true);
+                if (score > alpha && reduction > 0) {
+                    score = -negamax(ply + 1, depth - 1, -alpha - 1, -alpha, true);
+                }
+                if (score > alpha && score < beta) {
+                    score = -negamax(ply + 1, depth - 1, -beta, -alpha, true);
+                }
+            }
+            position.unmakeMove();
+            if (mStopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            rememberCutoff(ply, us, move, depth);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        mTableStatistics.mStores++;
+        if (mTable.store(key, bestMove, scoreToTable(bestScore, ply), depth, bound)) {
+            mTableStatistics.mOverwrites++;
+        }
+        return bestScore;
+    }
+
+    // Search only captures until the position is quiet, so the evaluation isn't
+    // taken in the middle of an exchange. In check, every move is searched instead.
+    private int quiescence(int ply, int alpha, int beta) {
+        mPrincipalVariationLength[ply] = ply;
+        if (countNode()) {
+            return 0;
+        }
+
+        Position position = mPosition;
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(position);
+        }
+
+        boolean inCheck = position.isInCheck();
+        int bestScore;
+        int mode;
+        if (inCheck) {
+            bestScore = -MATE + ply;
+            mode = MoveGenerator.ALL;
+        } else {
+            // The side to move can usually do at least as well as the static score
+            // by not capturing anything ("standing pat")
+            bestScore = Evaluation.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+            mode = MoveGenerator.CAPTURES;
+        }
+
+        int count = mGenerator.generate(position, mMoves[ply], mode);
+        scoreMoves(ply, count, Move.NONE);
+
+        for (int i = 0; i < count; i++) {
+            int move = nextMove(ply, i, count);
+            position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            position.unmakeMove();
+            if (mStopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    updatePrincipalVariation(ply, move);
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    // Count a node and check the limits. Returns true if the search should stop.
+    private boolean countNode() {
+        mNodes++;
+        if (mNodes >= mNodeLimit
+                || (mTimeLimited && mNodes % TIME_CHECK_INTERVAL == 0
+                        && System.nanoTime() - mDeadlineNanos >= 0)
+                || (mStopSignal != null && mStopSignal.get())) {
+            mStopped = true;
+        }
+        return mStopped;
+    }
+
+    // Give each move an ordering score: the table's best move first, then captures of
+    // the most valuable pieces by the least valuable ones, then killers and history
+    private void scoreMoves(int ply, int count, int tableMove) {
+        int[] moves = mMoves[ply];
+        int[] scores = mMoveScores[ply];
+        int[] history = mHistory[mPosition.getSideToMove()];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == tableMove) {
+                scores[i] = TABLE_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                int gain = Move.isCapture(move) ? Evaluation.pieceValue(Move.captured(move)) : 0;
+                if (Move.isPromotion(move)) {
+                    gain += Evaluation.pieceValue(Move.promotion(move));
+                }
+                scores[i] = CAPTURE_SCORE + gain * 8 - Move.piece(move);
+            } else if (move == mKillers[ply][0]) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == mKillers[ply][1]) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[(Move.from(move) << 6) + Move.to(move)];
+            }
+        }
+    }
+
+    // Swap the best scored of the remaining moves into place and return it
+    private int nextMove(int ply, int index, int count) {
+        int[] moves = mMoves[ply];
+        int[] scores = mMoveScores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+        return move;
+    }
+
+    private void rememberCutoff(int ply, int color, int move, int depth) {
+        if (mKillers[ply][0] != move) {
+            mKillers[ply][1] = mKillers[ply][0];
+            mKillers[ply][0] = move;
+        }
+        int[] history = mHistory[color];
+        int index = (Move.from(move) << 6) + Move.to(move);
+        // Kept well below the killer scores
+        history[index] = Math.min(history[index] + depth * depth, KILLER_SCORE - 1);
+    }
+
+    private void updatePrincipalVariation(int ply, int move) {
+        int[] line = mPrincipalVariation[ply];
+        int[] childLine = mPrincipalVariation[ply + 1];
+        line[ply] = move;
+        int length = Math.max(mPrincipalVariationLength[ply + 1], ply + 1);
+        for (int i = ply + 1; i < length; i++) {
+            line[i] = childLine[i];
+        }
+        mPrincipalVariationLength[ply] = length;
+    }
+
+    // Mate scores are stored relative to the position, not the root,
+    // so they stay right when the position is reached by another path
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        }
+        if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    // Usage: Search <milliseconds> [hash MB] [fen]
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 5000;
+        int megabytes = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        String fen = args.length > 2 ? args[2] : Fen.START;
+
+        Position position = new Position();
+        Fen.parse(fen, position);
+
+        TranspositionTable table = new TranspositionTable(megabytes);
+        Search search = new Search(table);
+        search.setListener(new Listener() {
+            @Override
+            public void onIteration(SearchResult result) {
+                System.out.println(result);
+            }
+        });
+        SearchResult result = search.search(position, new SearchLimits().setTimeMillis(millis));
+        System.out.println("bestmove " + Move.toString(result.getBestMove()));
+        System.out.println("hash " + table + ", " + search.getTableStatistics());
+    }
+}
@@ -0,0 +1,71 @@
+package net.alexblass.chess.engine;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * When a search should stop: after a number of plies, a number of nodes or an amount
+ * of time, whichever comes first. Limits that aren't set don't apply.
+ *
+ * A stop signal ends the search once it's set, even if that's before the search
+ * starts. Giving each search its own signal makes stopping one request safe, where
+ * Search.stop() only reaches a search that's already running.
+ */
+
+public class SearchLimits {
+
+    private int mDepth = Search.MAX_PLY;
+    private long mNodes = Long.MAX_VALUE;
+    private long mTimeMillis = 0; // 0 means no time limit
+    private AtomicBoolean mStopSignal;
+
+    public SearchLimits() {
+    }
+
+    public SearchLimits(SearchLimits other) {
+        mDepth = other.mDepth;
+        mNodes = other.mNodes;
+        mTimeMillis = other.mTimeMillis;
+        mStopSignal = other.mStopSignal;
+    }
+
+    public int getDepth() {
+        return mDepth;
+    }
+
+    public SearchLimits setDepth(int depth) {
+        this.mDepth = Math.max(1, Math.min(depth, Search.MAX_PLY));
+        return this;
+    }
+
+    public long getNodes() {
+        return mNodes;
+    }
+
+    public SearchLimits setNodes(long nodes) {
+        this.mNodes = nodes;
+        return this;
+    }
+
+    public long getTimeMillis() {
+        return mTimeMillis;
+    }
+
+    public SearchLimits setTimeMillis(long timeMillis) {
+        this.mTimeMillis = timeMillis;
+        return this;
+    }
+
+    public AtomicBoolean getStopSignal() {
+        return mStopSignal;
+    }
+
+    // Stop the search when the signal is set, or null for no signal
+    public SearchLimits setStopSignal(AtomicBoolean stopSignal) {
+        this.mStopSignal = stopSignal;
+        return this;
+    }
+
+    public boolean hasTimeLimit() {
+        return mTimeMillis > 0;
+    }
+}
@@ -0,0 +1,84 @@
+package net.alexblass.chess.engine;
+
+/**
+ * The outcome of one completed iteration of a search: the best move, its score and the
+ * principal variation (the line both sides are expected to play), plus how much work
+ * it took to find.
+ */
+
+public class SearchResult {
+
+    private final int[] mPrincipalVariation;
+    private final int mScore;
+    private final int mDepth;
+    private final long mNodes;
+    private final long mNanos;
+
+    SearchResult(int[] principalVariation, int score, int depth, long nodes, long nanos) {
+        this.mPrincipalVariation = principalVariation;
+        this.mScore = score;
+        this.mDepth = depth;
+        this.mNodes = nodes;
+        this.mNanos = nanos;
+    }
+
+    // The move to play, or Move.NONE if there are no legal moves
+    public int getBestMove() {
+        return mPrincipalVariation.length > 0 ? mPrincipalVariation[0] : Move.NONE;
+    }
+
+    public int[] getPrincipalVariation() {
+        return mPrincipalVariation.clone();
+    }
+
+    // The score in centipawns for the side to move
+    public int getScore() {
+        return mScore;
+    }
+
+    public boolean isMateScore() {
+        return Math.abs(mScore) >= Search.MATE_BOUND;
+    }
+
+    // Moves until mate, negative if the side to move is getting mated
+    public int getMateIn() {
+        int plies = Search.MATE - Math.abs(mScore);
+        int moves = (plies + 1) / 2;
+        return mScore > 0 ? moves : -moves;
+    }
+
+    public int getDepth() {
+        return mDepth;
+    }
+
+    public long getNodes() {
+        return mNodes;
+    }
+
+    public long getNanos() {
+        return mNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return mNanos == 0 ? 0 : (long) (mNodes * 1e9 / mNanos);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("depth ").append(mDepth);
+        if (isMateScore()) {
+            builder.append(" score mate ").append(getMateIn());
+        } else {
+            builder.append(" score cp ").append(mScore);
+        }
+        builder.append(" nodes ").append(mNodes)
+                .append(" nps ").append(getNodesPerSecond())
+                .append(" time ").append(mNanos / 1000000)
+                .append(" pv");
+        for (int move : mPrincipalVariation) {
+            builder.append(' ').append(Move.toString(move));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,238 @@
+package net.alexblass.chess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Endgame tables with the exact value of every position with a few pieces: whether the
+ * side to move wins, draws or loses, and how many plies it takes to mate.
+ *
+ * Tables are made by TablebaseGenerator, one per set of material, and memory-mapped
+ * when the tablebase is opened. Material with the colors swapped is looked up in the
+ * same table with the board turned over. A probe works out the entry's index from the
+ * piece squares and reads its bits, so it's cheap enough to do at every node of a
+ * search.
+ *
+ * The tables know nothing of castling, and positions where an en passant capture is
+ * possible are found by looking one move ahead. The fifty move rule is ignored.
+ * Looking ahead needs move lists, so a search passes in its own ProbeBuffers and
+ * probing allocates nothing. The tablebase can be shared between threads once its
+ * tables are added.
+ */
+
+public class Tablebase {
+
+    // probeWdl() results
+    public static final int WIN = 1;
+    public static final int DRAW = 0;
+    public static final int LOSS = -1;
+    public static final int UNKNOWN = -2;
+
+    // The longest distance to mate in plies an entry can hold. Entries are bytes, and
+    // TablebaseGenerator keeps 0xFF for positions it hasn't decided yet.
+    public static final int MAX_DISTANCE = 0xFE - TablebaseTable.MATED;
+
+    // probeScore() result for positions not in the tables
+    public static final int NO_SCORE = Integer.MIN_VALUE;
+
+    // The move lists for looking ahead from positions with an en passant square. Each
+    // thread that probes needs its own.
+    public static final class ProbeBuffers {
+
+        // Each look ahead past the first needs another pawn to move two squares
+        private static final int MAX_LOOKAHEAD = 17;
+
+        private final MoveGenerator mGenerator = new MoveGenerator();
+        private final int[][] mMoves = new int[MAX_LOOKAHEAD][MoveGenerator.MAX_MOVES];
+        private final int[][] mValues = new int[MAX_LOOKAHEAD][MoveGenerator.MAX_MOVES];
+    }
+
+    // Tables by material key, in an open addressed hash table
+    private int[] mKeys = new int[64];
+    private TablebaseTable[] mTables = new TablebaseTable[64];
+    private int mCount;
+    private int mMaxPieces;
+
+    // An empty tablebase
+    public Tablebase() {
+        Arrays.fill(mKeys, -1);
+    }
+
+    // Open every table in a directory
+    public static Tablebase open(File directory) throws IOException {
+        Tablebase tablebase = new Tablebase();
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IOException("Can't list " + directory);
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".dtm")) {
+                TablebaseTable table = new TablebaseTable(name.substring(0, name.length() - 4));
+                table.load(directory);
+                tablebase.add(table);
+            }
+        }
+        return tablebase;
+    }
+
+    // The most pieces, kings included, of any table
+    public int getMaxPieces() {
+        return mMaxPieces;
+    }
+
+    public int getTableCount() {
+        return mCount;
+    }
+
+    // WIN, DRAW or LOSS for the side to move, or UNKNOWN if the position isn't in the
+    // tables or can't happen
+    public int probeWdl(Position position) {
+        int value = probe(position);
+        if (value < 0 || value == TablebaseTable.ILLEGAL) {
+            return UNKNOWN;
+        }
+        if (value == TablebaseTable.DRAW) {
+            return DRAW;
+        }
+        return ((value - TablebaseTable.MATED) & 1) != 0 ? WIN : LOSS;
+    }
+
+    // The number of plies to mate, whichever side mates, or -1 for a draw or a
+    // position that isn't in the tables. 0 means the side to move is mated already.
+    public int probeDistance(Position position) {
+        int value = probe(position);
+        return value >= TablebaseTable.MATED ? value - TablebaseTable.MATED : -1;
+    }
+
+    // The position's score in the search's terms, for a node ply moves from the root:
+    // 0 for a draw and Search.MATE less the ply of the mate for a win, which is always
+    // above Search.MATE_BOUND. NO_SCORE if the position isn't in the tables.
+    public int probeScore(Position position, int ply) {
+        return probeScore(position, ply, null);
+    }
+
+    // As probeScore(Position, int), looking ahead with the buffers if it has to. With
+    // null buffers, new ones are made when needed.
+    public int probeScore(Position position, int ply, ProbeBuffers buffers) {
+        int value = probe(position, buffers, 0);
+        if (value < 0 || value == TablebaseTable.ILLEGAL) {
+            return NO_SCORE;
+        }
+        if (value == TablebaseTable.DRAW) {
+            return 0;
+        }
+        int distance = value - TablebaseTable.MATED;
+        int score = Search.MATE - ply - distance;
+        return (distance & 1) != 0 ? score : -score;
+    }
+
+    void add(TablebaseTable table) {
+        if (mCount * 2 >= mKeys.length) {
+            int[] keys = mKeys;
+            TablebaseTable[] tables = mTables;
+            mKeys = new int[keys.length * 2];
+            mTables = new TablebaseTable[keys.length * 2];
+            Arrays.fill(mKeys, -1);
+            mCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] >= 0) {
+                    add(tables[i]);
+                }
+            }
+        }
+        int slot = slot(table.getMaterialKey());
+        if (mKeys[slot] < 0) {
+            mCount++;
+        }
+        mKeys[slot] = table.getMaterialKey();
+        mTables[slot] = table;
+        mMaxPieces = Math.max(mMaxPieces, table.getPieceCount());
+    }
+
+    // The table for a material key, or null
+    TablebaseTable find(int key) {
+        int slot = slot(key);
+        return mKeys[slot] == key ? mTables[slot] : null;
+    }
+
+    // The raw value of a position (see TablebaseTable), or -1 if it isn't in the tables
+    int probe(Position position) {
+        return probe(position, null, 0);
+    }
+
+    private int probe(Position position, ProbeBuffers buffers, int lookahead) {
+        if (Bitboards.count(position.getOccupied()) > mMaxPieces
+                || position.getCastlingRights() != Position.NO_CASTLING) {
+            return -1;
+        }
+        if (position.getEnPassantSquare() != Bitboards.NO_SQUARE) {
+            return probeAhead(position, buffers != null ? buffers : new ProbeBuffers(),
+                    lookahead);
+        }
+        int key = TablebaseTable.materialKey(position);
+        TablebaseTable table = find(key);
+        if (table != null) {
+            return table.value(table.index(position, false));
+        }
+        table = find(TablebaseTable.flipMaterialKey(key));
+        if (table != null) {
+            return table.value(table.index(position, true));
+        }
+        return -1;
+    }
+
+    // The value of a position from the values of the positions after each move
+    private int probeAhead(Position position, ProbeBuffers buffers, int lookahead) {
+        int[] moves = buffers.mMoves[lookahead];
+        int[] values = buffers.mValues[lookahead];
+        int count = buffers.mGenerator.generate(position, moves, MoveGenerator.ALL);
+        if (count == 0) {
+            return position.isInCheck() ? TablebaseTable.MATED : TablebaseTable.DRAW;
+        }
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            values[i] = probe(position, buffers, lookahead + 1);
+            position.unmakeMove();
+            if (values[i] < 0) {
+                return -1;
+            }
+        }
+        return best(values, count);
+    }
+
+    // The value of a position with the given values after each of its moves
+    static int best(int[] values, int count) {
+        int fastestWin = Integer.MAX_VALUE;
+        int slowestLoss = -1;
+        boolean draw = false;
+        for (int i = 0; i < count; i++) {
+            int value = values[i];
+            if (value == TablebaseTable.DRAW) {
+                draw = true;
+            } else if (value >= TablebaseTable.MATED) {
+                int distance = value - TablebaseTable.MATED;
+                if ((distance & 1) == 0) {
+                    // The other side gets mated
+                    fastestWin = Math.min(fastestWin, distance + 1);
+                } else {
+                    slowestLoss = Math.max(slowestLoss, distance + 1);
+                }
+            }
+        }
+        if (fastestWin != Integer.MAX_VALUE) {
+            return TablebaseTable.MATED + fastestWin;
+        }
+        return draw ? TablebaseTable.DRAW : TablebaseTable.MATED + slowestLoss;
+    }
+
+    private int slot(int key) {
+        int mask = mKeys.length - 1;
+        int slot = (key * 0x9E3779B9) >>> 16 & mask;
+        while (mKeys[slot] >= 0 && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
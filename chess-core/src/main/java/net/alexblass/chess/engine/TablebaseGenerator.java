@@ -0,0 +1,274 @@
+package net.alexblass.chess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes the tables of a Tablebase by retrograde analysis.
+ *
+ * Every entry of a table starts out as checkmate, stalemate, illegal or undecided.
+ * Then the undecided ones are worked through one distance at a time, going backwards
+ * from mate: a position wins in n plies if some move leads to a loss in n - 1, and
+ * loses in n if every move leads to a win in n - 1 or less. Whatever is still undecided
+ * when no more positions change is a draw. Captures and promotions lead into smaller
+ * tables, or ones with fewer pawns, so tables are made in that order and each one
+ * looks the others up as it goes. Each pass is split into chunks of entries worked on
+ * in parallel by a fork-join pool; within a pass, no entry depends on another one
+ * decided in the same pass.
+ *
+ * The moves of each position are generated forwards rather than taken back, which is
+ * simpler and costs a move generation for each undecided position on every pass.
+ * An en passant capture straight after a pawn's double step isn't considered when
+ * working out the position before the step.
+ */
+
+public class TablebaseGenerator {
+
+    // The raw value of entries that aren't worked out yet
+    private static final int UNDECIDED = 0xFF;
+
+    // Entries a fork-join task works on without splitting
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final File mDirectory;
+    private final ForkJoinPool mPool;
+
+    // The tables made or loaded so far, looked up for captures and promotions
+    private final Tablebase mTablebase = new Tablebase();
+    private int mMaxDistance;
+
+    // Write tables into a directory, working on them in a pool
+    public TablebaseGenerator(File directory, ForkJoinPool pool) {
+        mDirectory = directory;
+        mPool = pool;
+    }
+
+    // Make the tables for all material with up to maxPieces pieces, kings included,
+    // loading any that are in the directory already
+    public Tablebase generateAll(int maxPieces) throws IOException {
+        for (String name : materialNames(maxPieces)) {
+            generate(name);
+        }
+        return mTablebase;
+    }
+
+    // The tables made so far
+    public Tablebase getTablebase() {
+        return mTablebase;
+    }
+
+    // The names of the tables for up to maxPieces pieces, in an order they can be made
+    public static List<String> materialNames(int maxPieces) {
+        Set<String> names = new LinkedHashSet<String>();
+        addMaterial(names, new int[Math.max(0, maxPieces - 2)], 0, 0);
+        List<String> sorted = new ArrayList<String>(names);
+        Collections.sort(sorted, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                int difference = a.length() - b.length();
+                return difference != 0 ? difference : pawns(a) - pawns(b);
+            }
+        });
+        return sorted;
+    }
+
+    // Make a table and add it to the tablebase, or load it if it's in the directory
+    // already. The tables its captures and promotions lead to must be there first.
+    // Returns the table's longest distance to mate.
+    public int generate(String name) throws IOException {
+        TablebaseTable table = new TablebaseTable(name);
+        if (!table.exists(mDirectory)) {
+            table.write(mDirectory, solve(table));
+        }
+        table.load(mDirectory);
+        mTablebase.add(table);
+        mMaxDistance = Math.max(mMaxDistance, table.getMaxDistance());
+        return table.getMaxDistance();
+    }
+
+    // Work out the raw value of every entry
+    private byte[] solve(TablebaseTable table) {
+        byte[] values = new byte[table.getSize()];
+        AtomicInteger changed = new AtomicInteger();
+        mPool.invoke(new Pass(table, values, 0, changed, 0, values.length));
+
+        // Stop after two passes in a row change nothing, once there can't be any
+        // longer mates to come from the tables captures lead into
+        int unchanged = 0;
+        for (int distance = 1; distance <= Tablebase.MAX_DISTANCE; distance++) {
+            changed.set(0);
+            mPool.invoke(new Pass(table, values, distance, changed, 0, values.length));
+            unchanged = changed.get() == 0 ? unchanged + 1 : 0;
+            if (unchanged >= 2 && distance > mMaxDistance + 1) {
+                break;
+            }
+        }
+
+        for (int i = 0; i < values.length; i++) {
+            if ((values[i] & 0xFF) == UNDECIDED) {
+                values[i] = TablebaseTable.DRAW;
+            }
+        }
+        return values;
+    }
+
+    // One pass over a range of entries: setting them up for distance 0, or deciding
+    // the undecided ones that are mates in the distance
+    private final class Pass extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TablebaseTable mTable;
+        private final byte[] mValues;
+        private final int mDistance;
+        private final AtomicInteger mChanged;
+        private final int mStart;
+        private final int mEnd;
+
+        private Position mPosition;
+        private MoveGenerator mGenerator;
+        private int[] mMoves;
+
+        Pass(TablebaseTable table, byte[] values, int distance, AtomicInteger changed,
+                int start, int end) {
+            mTable = table;
+            mValues = values;
+            mDistance = distance;
+            mChanged = changed;
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart > CHUNK_SIZE) {
+                int middle = (mStart + mEnd) >>> 1;
+                invokeAll(new Pass(mTable, mValues, mDistance, mChanged, mStart, middle),
+                        new Pass(mTable, mValues, mDistance, mChanged, middle, mEnd));
+                return;
+            }
+            mPosition = new Position();
+            mGenerator = new MoveGenerator();
+            mMoves = new int[MoveGenerator.MAX_MOVES];
+            int changed = 0;
+            for (int index = mStart; index < mEnd; index++) {
+                if (mDistance == 0) {
+                    mValues[index] = (byte) initialValue(index);
+                } else if ((mValues[index] & 0xFF) == UNDECIDED && isMate(index)) {
+                    mValues[index] = (byte) (TablebaseTable.MATED + mDistance);
+                    changed++;
+                }
+            }
+            mChanged.addAndGet(changed);
+        }
+
+        private int initialValue(int index) {
+            Position position = mPosition;
+            if (!mTable.decode(index, position)) {
+                return TablebaseTable.ILLEGAL;
+            }
+            // The side that just moved can't be in check
+            int us = position.getSideToMove();
+            if (position.isSquareAttacked(position.getKingSquare(Pieces.opposite(us)), us)) {
+                return TablebaseTable.ILLEGAL;
+            }
+            if (!mGenerator.hasLegalMove(position, mMoves)) {
+                return position.isInCheck() ? TablebaseTable.MATED : TablebaseTable.DRAW;
+            }
+            return UNDECIDED;
+        }
+
+        // Whether the side to move mates in the distance (if it's odd) or gets mated in
+        // the distance (if it's even). Only called for positions not decided yet.
+        private boolean isMate(int index) {
+            Position position = mPosition;
+            mTable.decode(index, position);
+            boolean win = (mDistance & 1) != 0;
+            int count = mGenerator.generate(position, mMoves, MoveGenerator.ALL);
+            for (int i = 0; i < count; i++) {
+                int value = valueAfter(mMoves[i]);
+                if (win) {
+                    if (value == TablebaseTable.MATED + mDistance - 1) {
+                        return true;
+                    }
+                } else if (value < TablebaseTable.MATED || value == UNDECIDED
+                        || ((value - TablebaseTable.MATED) & 1) == 0
+                        || value - TablebaseTable.MATED >= mDistance) {
+                    return false;
+                }
+            }
+            return !win;
+        }
+
+        // The raw value of the position after a move
+        private int valueAfter(int move) {
+            Position position = mPosition;
+            position.makeMove(move);
+            int value;
+            if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                value = mValues[mTable.index(position, false)] & 0xFF;
+            } else {
+                value = mTablebase.probe(position);
+                if (value < 0) {
+                    throw new IllegalStateException("Table " + mTable.getName()
+                            + " needs the tables for fewer pieces first");
+                }
+            }
+            position.unmakeMove();
+            return value;
+        }
+    }
+
+    // Add the names for every set of pieces that starts with codes[0..count)
+    private static void addMaterial(Set<String> names, int[] codes, int count, int first) {
+        names.add(TablebaseTable.name(Arrays.copyOf(codes, count)));
+        if (count == codes.length) {
+            return;
+        }
+        for (int code = first; code < Pieces.CODES; code++) {
+            if (Pieces.typeOf(code) != Pieces.KING) {
+                codes[count] = code;
+                addMaterial(names, codes, count + 1, code);
+            }
+        }
+    }
+
+    private static int pawns(String name) {
+        int pawns = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) == 'P') {
+                pawns++;
+            }
+        }
+        return pawns;
+    }
+
+    // Usage: TablebaseGenerator <directory> <max pieces> [threads]
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args[0]);
+        int maxPieces = Integer.parseInt(args[1]);
+        ForkJoinPool pool = args.length > 2 ? new ForkJoinPool(Integer.parseInt(args[2]))
+                : new ForkJoinPool();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't make " + directory);
+        }
+        TablebaseGenerator generator = new TablebaseGenerator(directory, pool);
+        for (String name : materialNames(maxPieces)) {
+            long start = System.nanoTime();
+            int distance = generator.generate(name);
+            System.out.println(name + ": longest mate " + distance + " plies, "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+        pool.shutdown();
+    }
+}
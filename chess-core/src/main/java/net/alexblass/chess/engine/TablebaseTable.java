@@ -0,0 +1,410 @@
+package net.alexblass.chess.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The tablebase entries for one set of material, such as "KQvKR", and how positions map
+ * to them.
+ *
+ * An entry's index packs the white king's square, the black king's square, the square
+ * of each other piece and the side to move into an int, 6 bits a square. Mirroring the
+ * board doesn't change a position's value, so the white king is always mirrored into
+ * the a1-d1-d4 triangle (10 squares), or onto the a-d files when there are pawns, which
+ * can only be mirrored left to right (32 squares). Indexes that don't describe a legal
+ * position, say with two pieces on one square, are marked as illegal.
+ *
+ * Each table is two files of bit-packed entries, memory-mapped for reading: ".wdl" with
+ * 2 bits an entry for win, draw or loss, and ".dtm" with just enough bits an entry for
+ * the longest distance to mate. Both start with a 16 byte header.
+ */
+
+final class TablebaseTable {
+
+    // Raw entry values: a draw, not a legal position, or MATED + n for a position
+    // where the side to move mates in n plies (n odd) or gets mated in n plies (n even)
+    static final int DRAW = 0;
+    static final int ILLEGAL = 1;
+    static final int MATED = 2;
+
+    // Values in the ".wdl" files
+    static final int WDL_DRAW = 0;
+    static final int WDL_WIN = 1;
+    static final int WDL_LOSS = 2;
+    static final int WDL_ILLEGAL = 3;
+
+    // "TBL1", the bits in each entry, the number of entries and the longest distance
+    private static final int MAGIC = 0x54424C31;
+    private static final int HEADER_SIZE = 16;
+
+    // The piece letters indexed by type
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    // The squares the white king is mirrored onto, and each square's place in the list
+    private static final int[] PAWNLESS_KING_SQUARES = new int[10];
+    private static final int[] PAWN_KING_SQUARES = new int[32];
+    private static final int[] PAWNLESS_KING_INDEX = new int[Bitboards.SQUARES];
+    private static final int[] PAWN_KING_INDEX = new int[Bitboards.SQUARES];
+
+    // Mirroring flags, applied in this order
+    private static final int MIRROR_COLS = 1;
+    private static final int MIRROR_ROWS = 2;
+    private static final int MIRROR_DIAGONAL = 4;
+
+    static {
+        int pawnless = 0;
+        int pawns = 0;
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            PAWNLESS_KING_INDEX[square] = -1;
+            PAWN_KING_INDEX[square] = -1;
+            if (mirror(square, false) == 0) {
+                PAWNLESS_KING_INDEX[square] = pawnless;
+                PAWNLESS_KING_SQUARES[pawnless++] = square;
+            }
+            if (mirror(square, true) == 0) {
+                PAWN_KING_INDEX[square] = pawns;
+                PAWN_KING_SQUARES[pawns++] = square;
+            }
+        }
+    }
+
+    private final String mName;
+
+    // The pieces besides the kings, white's then black's, strongest first
+    private final int[] mCodes;
+    private final int mMaterialKey;
+    private final boolean mHasPawns;
+    private final int[] mKingSquares;
+    private final int[] mKingIndex;
+    private final int mSize;
+
+    private ByteBuffer mWdl;
+    private ByteBuffer mDtm;
+    private int mDtmBits;
+    private int mMaxDistance;
+
+    // A table for material named like "KRPvKR"
+    TablebaseTable(String name) {
+        int split = name.indexOf('v');
+        if (split < 1 || name.charAt(0) != 'K' || name.length() <= split + 1
+                || name.charAt(split + 1) != 'K') {
+            throw new IllegalArgumentException("Not a material name: " + name);
+        }
+        mName = name;
+        mCodes = new int[name.length() - 3];
+        int count = 0;
+        for (int i = 1; i < name.length(); i++) {
+            if (i == split || i == split + 1) {
+                continue;
+            }
+            int type = PIECE_LETTERS.indexOf(name.charAt(i));
+            if (type < 0 || type == Pieces.KING) {
+                throw new IllegalArgumentException("Not a material name: " + name);
+            }
+            mCodes[count++] = Pieces.code(i < split ? Pieces.WHITE : Pieces.BLACK, type);
+        }
+
+        int key = 0;
+        boolean pawns = false;
+        for (int code : mCodes) {
+            key += 1 << (3 * slot(code));
+            pawns |= Pieces.typeOf(code) == Pieces.PAWN;
+        }
+        mMaterialKey = key;
+        mHasPawns = pawns;
+        mKingSquares = pawns ? PAWN_KING_SQUARES : PAWNLESS_KING_SQUARES;
+        mKingIndex = pawns ? PAWN_KING_INDEX : PAWNLESS_KING_INDEX;
+        mSize = mKingSquares.length << (6 * (mCodes.length + 1) + 1);
+    }
+
+    String getName() {
+        return mName;
+    }
+
+    int getMaterialKey() {
+        return mMaterialKey;
+    }
+
+    int getPieceCount() {
+        return mCodes.length + 2;
+    }
+
+    int getPawnCount() {
+        int pawns = 0;
+        for (int code : mCodes) {
+            if (Pieces.typeOf(code) == Pieces.PAWN) {
+                pawns++;
+            }
+        }
+        return pawns;
+    }
+
+    int getSize() {
+        return mSize;
+    }
+
+    int getMaxDistance() {
+        return mMaxDistance;
+    }
+
+    // The entry for a position with this material. When flipped, the position has the
+    // colors the other way round and is looked up as if the board were turned over.
+    int index(Position position, boolean flipped) {
+        int whiteKing = position.getKingSquare(Pieces.WHITE);
+        int blackKing = position.getKingSquare(Pieces.BLACK);
+        int sideToMove = position.getSideToMove();
+        if (flipped) {
+            int king = whiteKing;
+            whiteKing = blackKing ^ 56;
+            blackKing = king ^ 56;
+            sideToMove = Pieces.opposite(sideToMove);
+        }
+        int mirror = mirror(whiteKing, mHasPawns);
+        int index = mKingIndex[mirror(whiteKing, mirror)];
+        index = (index << 6) | mirror(blackKing, mirror);
+
+        // Pieces of the same kind are taken in square order
+        long pieces = 0;
+        int previous = Pieces.NONE;
+        for (int code : mCodes) {
+            if (code != previous) {
+                pieces = position.getPieces(flipped ? flip(code) : code);
+                previous = code;
+            }
+            int square = Bitboards.first(pieces);
+            pieces = Bitboards.withoutFirst(pieces);
+            if (flipped) {
+                square ^= 56;
+            }
+            index = (index << 6) | mirror(square, mirror);
+        }
+        return (index << 1) | sideToMove;
+    }
+
+    // Set up the position an index describes. Returns false, leaving the position in
+    // some other state, if two pieces share a square or a pawn is on an end row.
+    boolean decode(int index, Position position) {
+        position.clear();
+        int sideToMove = index & 1;
+        index >>>= 1;
+        for (int i = mCodes.length - 1; i >= 0; i--) {
+            int square = index & 63;
+            index >>>= 6;
+            int type = Pieces.typeOf(mCodes[i]);
+            if (position.isOccupied(square)
+                    || (type == Pieces.PAWN && (Bitboards.row(square) == 0
+                    || Bitboards.row(square) == 7))) {
+                return false;
+            }
+            position.putPiece(square, Pieces.colorOf(mCodes[i]), type);
+        }
+        int blackKing = index & 63;
+        int whiteKing = mKingSquares[index >>> 6];
+        if (blackKing == whiteKing || position.isOccupied(blackKing)
+                || position.isOccupied(whiteKing)) {
+            return false;
+        }
+        position.putPiece(whiteKing, Pieces.WHITE, Pieces.KING);
+        position.putPiece(blackKing, Pieces.BLACK, Pieces.KING);
+        position.setSideToMove(sideToMove);
+        return true;
+    }
+
+    // The raw value of an entry (DRAW, ILLEGAL or MATED + n)
+    int value(int index) {
+        return read(mDtm, mDtmBits, index);
+    }
+
+    // The WDL_ value of an entry
+    int wdl(int index) {
+        return read(mWdl, 2, index);
+    }
+
+    // Memory-map the table's files from a directory
+    void load(File directory) throws IOException {
+        mWdl = map(new File(directory, mName + ".wdl"));
+        mDtm = map(new File(directory, mName + ".dtm"));
+        mDtmBits = mDtm.getInt(4);
+        mMaxDistance = mDtm.getInt(12);
+        if (mWdl.getInt(4) != 2 || mWdl.getInt(8) != mSize || mDtm.getInt(8) != mSize) {
+            throw new IOException("Table " + mName + " doesn't match its material");
+        }
+    }
+
+    // Whether the table's files are in the directory
+    boolean exists(File directory) {
+        return new File(directory, mName + ".wdl").isFile()
+                && new File(directory, mName + ".dtm").isFile();
+    }
+
+    // Write the table's files from raw values, one byte an entry
+    void write(File directory, byte[] values) throws IOException {
+        int maxValue = MATED;
+        int maxDistance = 0;
+        for (byte value : values) {
+            int raw = value & 0xFF;
+            if (raw >= MATED) {
+                maxValue = Math.max(maxValue, raw);
+                maxDistance = Math.max(maxDistance, raw - MATED);
+            }
+        }
+        int bits = 32 - Integer.numberOfLeadingZeros(maxValue);
+
+        byte[] wdl = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            int raw = values[i] & 0xFF;
+            wdl[i] = (byte) (raw == DRAW ? WDL_DRAW : raw == ILLEGAL ? WDL_ILLEGAL
+                    : ((raw - MATED) & 1) != 0 ? WDL_WIN : WDL_LOSS);
+        }
+        writePacked(new File(directory, mName + ".wdl"), wdl, 2, maxDistance);
+        writePacked(new File(directory, mName + ".dtm"), values, bits, maxDistance);
+    }
+
+    // The material key of a position: 3 bits for how many there are of each piece
+    // besides the kings. Positions with more than 7 of a piece don't fit.
+    static int materialKey(Position position) {
+        int key = 0;
+        for (int code = 0; code < Pieces.CODES; code++) {
+            if (Pieces.typeOf(code) != Pieces.KING) {
+                key += Bitboards.count(position.getPieces(code)) << (3 * slot(code));
+            }
+        }
+        return key;
+    }
+
+    // The material key with the colors swapped
+    static int flipMaterialKey(int key) {
+        return (key >>> 15) | ((key & 0x7FFF) << 15);
+    }
+
+    // The table name for some pieces besides the kings, with the stronger side as
+    // white. Returns the name with the colors swapped if they're given the other way.
+    static String name(int[] codes) {
+        StringBuilder white = new StringBuilder("K");
+        StringBuilder black = new StringBuilder("K");
+        for (int type = Pieces.QUEEN; type >= Pieces.PAWN; type--) {
+            for (int code : codes) {
+                if (Pieces.typeOf(code) == type) {
+                    (Pieces.colorOf(code) == Pieces.WHITE ? white : black)
+                            .append(PIECE_LETTERS.charAt(type));
+                }
+            }
+        }
+        boolean swap = white.length() != black.length() ? white.length() < black.length()
+                : compareStrength(white, black) < 0;
+        return swap ? black + "v" + white : white + "v" + black;
+    }
+
+    // Compare two sides of the same size, strongest first, piece by piece
+    private static int compareStrength(CharSequence a, CharSequence b) {
+        for (int i = 0; i < a.length(); i++) {
+            int difference = PIECE_LETTERS.indexOf(a.charAt(i))
+                    - PIECE_LETTERS.indexOf(b.charAt(i));
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    static int flip(int code) {
+        return code < Pieces.TYPES ? code + Pieces.TYPES : code - Pieces.TYPES;
+    }
+
+    // Where a piece code's count goes in a material key: white's pieces in slots 0-4,
+    // black's in 5-9
+    private static int slot(int code) {
+        return code < Pieces.TYPES ? code : code - 1;
+    }
+
+    // The mirroring that takes the white king into its table squares
+    private static int mirror(int whiteKing, boolean pawns) {
+        int mirror = 0;
+        if (Bitboards.col(whiteKing) > 3) {
+            mirror |= MIRROR_COLS;
+            whiteKing ^= 7;
+        }
+        if (!pawns) {
+            if (Bitboards.row(whiteKing) < 4) {
+                mirror |= MIRROR_ROWS;
+                whiteKing ^= 56;
+            }
+            if (Bitboards.row(whiteKing) + Bitboards.col(whiteKing) < 7) {
+                mirror |= MIRROR_DIAGONAL;
+            }
+        }
+        return mirror;
+    }
+
+    private static int mirror(int square, int mirror) {
+        if ((mirror & MIRROR_COLS) != 0) {
+            square ^= 7;
+        }
+        if ((mirror & MIRROR_ROWS) != 0) {
+            square ^= 56;
+        }
+        if ((mirror & MIRROR_DIAGONAL) != 0) {
+            // Across the a1-h8 diagonal
+            square = Bitboards.square(7 - Bitboards.col(square), 7 - Bitboards.row(square));
+        }
+        return square;
+    }
+
+    // Read an entry of the given width, most significant bit first. The files are
+    // padded so the 8 bytes read are always there.
+    private static int read(ByteBuffer buffer, int bits, int index) {
+        long bit = (long) index * bits;
+        long word = buffer.getLong(HEADER_SIZE + (int) (bit >>> 3));
+        return (int) ((word << (bit & 7)) >>> (64 - bits));
+    }
+
+    private static void writePacked(File file, byte[] values, int bits, int maxDistance)
+            throws IOException {
+        int dataSize = (int) (((long) values.length * bits + 7) >>> 3);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + dataSize + 8);
+        buffer.putInt(MAGIC).putInt(bits).putInt(values.length).putInt(maxDistance);
+
+        long pending = 0;
+        int pendingBits = 0;
+        for (byte value : values) {
+            pending = (pending << bits) | (value & 0xFF);
+            pendingBits += bits;
+            while (pendingBits >= 8) {
+                pendingBits -= 8;
+                buffer.put((byte) (pending >>> pendingBits));
+            }
+        }
+        if (pendingBits > 0) {
+            buffer.put((byte) (pending << (8 - pendingBits)));
+        }
+        buffer.clear();
+
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            FileChannel channel = output.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " isn't a tablebase file");
+            }
+            return buffer;
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package net.alexblass.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size hash table of search results, keyed by position.
+ *
+ * Entries live in one long[] with no object per entry. Each slot is a pair of longs,
+ * the entry data and the entry data XORed with the position key, and slots are
+ * grouped in buckets of 4 that fill a 64-byte cache line. Threads share the table
+ * without locks: a torn write from two threads storing at once leaves a pair whose
+ * XOR doesn't match any key, so it's never returned by a probe.
+ *
+ * Entry data packs the best move, score, depth, bound type and the age of the search
+ * that stored it into one long (see the decoding methods below).
+ */
+
+public class TranspositionTable {
+
+    // Bound types, telling how the stored score relates to the real score
+    public static final int EXACT = 1;
+    public static final int LOWER = 2; // The real score is at least the stored score
+    public static final int UPPER = 3; // The real score is at most the stored score
+
+    // Returned by probe() when the position isn't in the table
+    public static final long NO_ENTRY = 0L;
+
+    // Slots per bucket, and longs per slot
+    private static final int BUCKET_SLOTS = 4;
+    private static final int SLOT_LONGS = 2;
+    private static final int BUCKET_LONGS = BUCKET_SLOTS * SLOT_LONGS;
+
+    // Entry data layout
+    private static final int MOVE_BITS = 26;
+    private static final int SCORE_SHIFT = 26;
+    private static final int DEPTH_SHIFT = 42;
+    private static final int BOUND_SHIFT = 50;
+    private static final int AGE_SHIFT = 52;
+    private static final int MAX_AGE = 63;
+
+    // Scores are stored as 16 bits, offset so a stored entry is never 0
+    private static final int SCORE_OFFSET = 32768;
+
+    private final long[] mTable;
+
+    // Mask to turn a key into the index of its bucket's first long
+    private final int mBucketMask;
+
+    // Goes up at the start of each search, so old entries get replaced first
+    private int mAge;
+
+    // Create a table that uses at most the given number of megabytes
+    public TranspositionTable(int megabytes) {
+        long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+        long buckets = Long.highestOneBit(bytes / (BUCKET_LONGS * 8L));
+        // A Java array holds at most 2^31 - 1 longs
+        buckets = Math.min(buckets, 1L << 27);
+        mTable = new long[(int) (buckets * BUCKET_LONGS)];
+        mBucketMask = (int) (buckets - 1);
+    }
+
+    // Start a new search, so entries from earlier searches are replaced first
+    public void newSearch() {
+        mAge = (mAge + 1) & MAX_AGE;
+    }
+
+    public void clear() {
+        Arrays.fill(mTable, 0L);
+        mAge = 0;
+    }
+
+    // Look up a position. Returns the entry data, or NO_ENTRY if it's not stored.
+    public long probe(long key) {
+        int bucket = bucketIndex(key);
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += SLOT_LONGS) {
+            long data = mTable[i + 1];
+            if (data != NO_ENTRY && (mTable[i] ^ data) == key) {
+                return data;
+            }
+        }
+        return NO_ENTRY;
+    }
+
+    // Store the result of searching a position. Returns whether an entry for another
+    // position was replaced to make room.
+    public boolean store(long key, int move, int score, int depth, int bound) {
+        int bucket = bucketIndex(key);
+
+        // Use the slot that already holds this position if there is one,
+        // otherwise replace the slot with the least valuable entry
+        int replace = bucket;
+        int lowestValue = Integer.MAX_VALUE;
+        for (int i = bucket; i < bucket + BUCKET_LONGS; i += SLOT_LONGS) {
+            long data = mTable[i + 1];
+            if (data == NO_ENTRY) {
+                replace = i;
+                lowestValue = Integer.MIN_VALUE;
+                continue;
+            }
+            if ((mTable[i] ^ data) == key) {
+                // Keep a deeper result for the same position from this search,
+                // but keep its best move if the new result has none
+                if (move == Move.NONE) {
+                    move = move(data);
+                }
+                if (age(data) == mAge && depth(data) > depth && bound != EXACT) {
+                    return false;
+                }
+                replace = i;
+                lowestValue = Integer.MIN_VALUE;
+                break;
+            }
+            // Entries from older searches are worth less than deep ones from this search
+            int value = depth(data) - 8 * ((mAge - age(data)) & MAX_AGE);
+            if (value < lowestValue) {
+                lowestValue = value;
+                replace = i;
+            }
+        }
+
+        long old = mTable[replace + 1];
+        boolean replaced = old != NO_ENTRY && (mTable[replace] ^ old) != key;
+        long data = (move & ((1L << MOVE_BITS) - 1))
+                | ((long) (score + SCORE_OFFSET) << SCORE_SHIFT)
+                | ((long) Math.min(depth, 255) << DEPTH_SHIFT)
+                | ((long) bound << BOUND_SHIFT)
+                | ((long) mAge << AGE_SHIFT);
+        mTable[replace] = key ^ data;
+        mTable[replace + 1] = data;
+        return replaced;
+    }
+
+    public static int move(long data) {
+        return (int) (data & ((1L << MOVE_BITS) - 1));
+    }
+
+    public static int score(long data) {
+        return (int) ((data >>> SCORE_SHIFT) & 0xFFFF) - SCORE_OFFSET;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> AGE_SHIFT) & MAX_AGE);
+    }
+
+    private int bucketIndex(long key) {
+        // The low bits pick the bucket. The whole key is checked on probe.
+        return ((int) key & mBucketMask) * BUCKET_LONGS;
+    }
+
+    public int getSizeInMegabytes() {
+        return (int) (mTable.length * 8L / (1024 * 1024));
+    }
+
+    // Fraction of slots holding an entry from the current search,
+    // estimated from the first thousand slots
+    public double getFillRate() {
+        int sampled = Math.min(1000 * SLOT_LONGS, mTable.length);
+        int filled = 0;
+        for (int i = 0; i < sampled; i += SLOT_LONGS) {
+            long data = mTable[i + 1];
+            if (data != NO_ENTRY && age(data) == mAge) {
+                filled++;
+            }
+        }
+        return (double) filled / (sampled / SLOT_LONGS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d MB, full %.1f%%", getSizeInMegabytes(), getFillRate() * 100);
+    }
+
+    // How one search used the table. Each thread counts its own probes and stores, so
+    // the threads sharing a table don't write to the same memory to keep count; the
+    // counts are added up when they're asked for.
+    public static final class Statistics {
+        long mProbes;
+        long mHits;
+        long mStores;
+        long mOverwrites;
+
+        public long getProbes() {
+            return mProbes;
+        }
+
+        public long getStores() {
+            return mStores;
+        }
+
+        // Fraction of probes that found their position
+        public double getHitRate() {
+            return mProbes == 0 ? 0 : (double) mHits / mProbes;
+        }
+
+        // Fraction of stores that replaced an entry for a different position
+        public double getCollisionRate() {
+            return mStores == 0 ? 0 : (double) mOverwrites / mStores;
+        }
+
+        void add(Statistics other) {
+            mProbes += other.mProbes;
+            mHits += other.mHits;
+            mStores += other.mStores;
+            mOverwrites += other.mOverwrites;
+        }
+
+        void reset() {
+            mProbes = 0;
+            mHits = 0;
+            mStores = 0;
+            mOverwrites = 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits %.1f%%, collisions %.1f%%", getHitRate() * 100,
+                    getCollisionRate() * 100);
+        }
+    }
+}
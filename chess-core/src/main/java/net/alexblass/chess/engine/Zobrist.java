@@ -0,0 +1,74 @@
+package net.alexblass.chess.engine;
+
+/**
+ * Random keys for Zobrist hashing.
+ *
+ * A position's key is the XOR of the keys for each piece on its square, the side to
+ * move, the castling rights and the en passant column. Since XOR undoes itself, a move
+ * only has to XOR out what it takes away and XOR in what it adds.
+ */
+
+public final class Zobrist {
+
+    // Keys for each piece code on each square, indexed by (code * 64) + square
+    private static final long[] PIECE_SQUARE = new long[Pieces.CODES * Bitboards.SQUARES];
+
+    // Key included when it's black's turn
+    public static final long BLACK_TO_MOVE;
+
+    // Keys for each combination of castling rights flags
+    private static final long[] CASTLING = new long[Position.ALL_CASTLING + 1];
+
+    // Keys for the column of the en passant square
+    private static final long[] EN_PASSANT_COL = new long[8];
+
+    static {
+        // A fixed seed, so keys are the same on every run and can be stored
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < PIECE_SQUARE.length; i++) {
+            seed = next(seed);
+            PIECE_SQUARE[i] = mix(seed);
+        }
+        seed = next(seed);
+        BLACK_TO_MOVE = mix(seed);
+        for (int i = 0; i < CASTLING.length; i++) {
+            seed = next(seed);
+            CASTLING[i] = i == 0 ? 0L : mix(seed);
+        }
+        for (int i = 0; i < EN_PASSANT_COL.length; i++) {
+            seed = next(seed);
+            EN_PASSANT_COL[i] = mix(seed);
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int code, int square) {
+        return PIECE_SQUARE[(code << 6) + square];
+    }
+
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    // The key for an en passant square, or 0 if there is none
+    public static long enPassant(int square) {
+        return square == Bitboards.NO_SQUARE ? 0L : EN_PASSANT_COL[Bitboards.col(square)];
+    }
+
+    public static long sideToMove(int color) {
+        return color == Pieces.BLACK ? BLACK_TO_MOVE : 0L;
+    }
+
+    // SplitMix64, which gives well spread 64-bit values from a simple counter
+    private static long next(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,84 @@
+package net.alexblass.chess.models;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.OpeningBook;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.Search;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.engine.SearchResult;
+import net.alexblass.chess.engine.TranspositionTable;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A computer opponent. It searches the game's position within its limits and plays
+ * the best move it finds. The transposition table is kept between moves, so results
+ * from searching one move help with the next. With an opening book, book moves are
+ * played without searching.
+ */
+
+public class ComputerPlayer {
+
+    private final Search mSearch;
+    private final SearchLimits mLimits;
+
+    // The result of the last search, for showing what the computer was thinking.
+    // Null if the last move came from the book.
+    private volatile SearchResult mLastResult;
+
+    // Played from while the position is in the book
+    private OpeningBook mBook;
+    private final Random mRandom = new Random();
+    private final int[] mBookMoves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] mBookWeights = new int[MoveGenerator.MAX_MOVES];
+
+    public ComputerPlayer(int hashMegabytes, SearchLimits limits) {
+        mSearch = new Search(new TranspositionTable(hashMegabytes));
+        mLimits = limits;
+    }
+
+    // Search for the best move for the side to move and play it.
+    // Returns false if the game is over and there's no move to play.
+    public boolean playMove(Game game) {
+        int move = findMove(game.getBoard().getPosition());
+        if (move == Move.NONE) {
+            return false;
+        }
+        game.makeMove(move);
+        return true;
+    }
+
+    // Search for the best move for the side to move without playing it, or Move.NONE if
+    // there's no legal move. The position isn't changed, but it mustn't be changed by
+    // another thread during the search either: search a copy to play on in the meantime.
+    public int findMove(Position position) {
+        return findMove(position, null);
+    }
+
+    // As findMove(Position), but the search stops as soon as the signal is set, playing
+    // the best move found so far. Use a new signal for each move: setting it from
+    // another thread stops that move's search even if it hasn't started yet.
+    public int findMove(Position position, AtomicBoolean stopSignal) {
+        if (mBook != null) {
+            int move = mBook.pickMove(position, mRandom, mBookMoves, mBookWeights);
+            if (move != Move.NONE) {
+                mLastResult = null;
+                return move;
+            }
+        }
+        mLastResult = mSearch.search(position, new SearchLimits(mLimits).setStopSignal(stopSignal));
+        return mLastResult.getBestMove();
+    }
+
+    // Play book moves, picked at random by their weights, while the position is
+    // in the book. Null to always search.
+    public void setBook(OpeningBook book) {
+        this.mBook = book;
+    }
+
+    public SearchResult getLastResult() {
+        return mLastResult;
+    }
+}
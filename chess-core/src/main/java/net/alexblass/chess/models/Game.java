@@ -0,0 +1,155 @@
+package net.alexblass.chess.models;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+
+/**
+ * A game of chess between two players: the board, whose turn it is, the scores, and
+ * the rules for which moves are allowed. Nothing here depends on Android, so a game
+ * can be played by the app or headless on any JVM.
+ */
+
+public class Game {
+
+    // Types a pawn may be promoted to
+    public static final int[] PROMOTIONS = {Piece.QUEEN, Piece.BISHOP, Piece.ROOK, Piece.KNIGHT};
+
+    // The board for this game
+    private final GameBoard mBoard;
+
+    // Keep track of the players' scores
+    // Player 1 plays white and player 2 plays black
+    private int mPlayer1Score = 0;
+    private int mPlayer2Score = 0;
+
+    // Finds the legal moves when checking a move
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+
+    // Create a new game of chess
+    public Game() {
+        this(new GameBoard());
+    }
+
+    // Continue a game from the given board
+    public Game(GameBoard board) {
+        mBoard = board;
+    }
+
+    public GameBoard getBoard() {
+        return mBoard;
+    }
+
+    // When true, it's player 1 (white)'s turn
+    // When false, it's player 2 (black)'s turn
+    public boolean isPlayer1Turn() {
+        return mBoard.getPosition().getSideToMove() == Piece.WHITE;
+    }
+
+    // GameBoard.IN_PROGRESS, CHECK, CHECKMATE or STALEMATE for the player whose turn it is
+    public int getStatus() {
+        return mBoard.getStatus();
+    }
+
+    public boolean isGameOver() {
+        int status = mBoard.getStatus();
+        return status == GameBoard.CHECKMATE || status == GameBoard.STALEMATE;
+    }
+
+    public int getPlayer1Score() {
+        return mPlayer1Score;
+    }
+
+    public int getPlayer2Score() {
+        return mPlayer2Score;
+    }
+
+    // Whether the player whose turn it is may move the piece on the old tile to
+    // the new tile. This covers every rule, including castling, en passant and
+    // not leaving your own king in check. Nothing on the board is changed.
+    public boolean checkMoveValidity(int oldRow, int oldCol, int newRow, int newCol) {
+        return findMove(oldRow, oldCol, newRow, newCol, Piece.QUEEN) != Move.NONE;
+    }
+
+    // Whether the move takes a pawn to the other player's home row,
+    // so the player needs to pick which piece it becomes
+    public boolean isPromotion(int oldRow, int oldCol, int newRow, int newCol) {
+        int move = findMove(oldRow, oldCol, newRow, newCol, Piece.QUEEN);
+        return move != Move.NONE && Move.isPromotion(move);
+    }
+
+    // Play the move if it's valid and update the scores. A pawn reaching the other
+    // player's home row becomes a piece of the given type. Returns false and leaves
+    // the board alone if the move isn't allowed.
+    public boolean makeMove(int oldRow, int oldCol, int newRow, int newCol, int promotion) {
+        int move = findMove(oldRow, oldCol, newRow, newCol, promotion);
+        if (move == Move.NONE) {
+            return false;
+        }
+        makeMove(move);
+        return true;
+    }
+
+    // Play a legal move from the MoveGenerator, e.g. one chosen by a ComputerPlayer,
+    // and update the scores
+    public void makeMove(int move) {
+        if (Move.isCapture(move)) {
+            int points = Pieces.pointsValue(Move.captured(move));
+            if (isPlayer1Turn()) {
+                mPlayer1Score += points;
+            } else {
+                mPlayer2Score += points;
+            }
+        }
+        mBoard.makeMove(move);
+    }
+
+    // Take back the last move and the points it scored.
+    // Returns false if no moves have been played.
+    public boolean takeBack() {
+        if (!mBoard.canUnmakeMove()) {
+            return false;
+        }
+        int move = mBoard.getPosition().getLastMove();
+        mBoard.unmakeMove();
+
+        if (Move.isCapture(move)) {
+            int points = Pieces.pointsValue(Move.captured(move));
+            if (isPlayer1Turn()) {
+                mPlayer1Score -= points;
+            } else {
+                mPlayer2Score -= points;
+            }
+        }
+        return true;
+    }
+
+    // The moves played so far, first move first. Replaying them from
+    // getStartPosition() gives the game again, scores and all.
+    public int[] getMoves() {
+        Position position = mBoard.getPosition();
+        int[] moves = new int[position.getHistorySize()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = position.getMove(i);
+        }
+        return moves;
+    }
+
+    // The position before any of getMoves() were played
+    public Position getStartPosition() {
+        Position start = new Position(mBoard.getPosition());
+        while (start.getHistorySize() > 0) {
+            start.unmakeMove();
+        }
+        return start;
+    }
+
+    private int findMove(int oldRow, int oldCol, int newRow, int newCol, int promotion) {
+        return mGenerator.findMove(mBoard.getPosition(),
+                Bitboards.square(oldRow, oldCol), Bitboards.square(newRow, newCol),
+                promotion, mMoves);
+    }
+}
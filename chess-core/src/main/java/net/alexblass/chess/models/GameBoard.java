@@ -0,0 +1,240 @@
+package net.alexblass.chess.models;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+
+/**
+ * The GameBoard keeps track of the available spaces and what pieces are on what space.
+ */
+
+public class GameBoard {
+
+    // Square board has 8 rows and 8 columns
+    public static final int BOARD_LENGTH = 8;
+
+    /* Board should look like:
+                 0 1 2 3 4 5 6 7
+                 _ _ _ _ _ _ _ _
+              0 |_|_|_|_|_|_|_|_| // Black home row
+              1 |_|_|_|_|_|_|_|_| // Black home row
+              2 |_|_|_|_|_|_|_|_|
+              3 |_|_|_|_|_|_|_|_|
+              4 |_|_|_|_|_|_|_|_|
+              5 |_|_|_|_|_|_|_|_|
+              6 |_|_|_|_|_|_|_|_| // White home row
+              7 |_|_|_|_|_|_|_|_| // White home row
+         */
+    // The pieces are stored as bitboards in a Position, one 64-bit
+    // word per piece type and color. Bit n of each word is the tile
+    // at position n in the list, (x * BOARD_LENGTH) + y, which is the
+    // same formula saved in our Piece class in mListPosition.
+    private final Position mPosition;
+
+    // There are 64 tiles for each space on the board
+    // We're holding the list of tiles as an Array of Pieces
+    // so we can populate it into a GridView with our Adapter.
+    // The Pieces are only a view of mPosition and are rebuilt
+    // from it the next time they're needed after a move.
+    private final Piece[] mGameBoardTiles = new Piece[BOARD_LENGTH * BOARD_LENGTH];
+    private boolean mTilesOutOfDate;
+
+    // Whether the player to move is in check, checkmated or stalemated,
+    // worked out again the first time it's asked for after each change
+    public static final int IN_PROGRESS = 0;
+    public static final int CHECK = 1;
+    public static final int CHECKMATE = 2;
+    public static final int STALEMATE = 3;
+    private int mStatus;
+    private boolean mStatusOutOfDate;
+
+    // Finds whether the player to move has any legal move
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+
+    // Create a new gameboard for a new game of chess
+    public GameBoard(){
+        mPosition = new Position();
+        mPosition.setStartPosition();
+        onBoardChanged();
+    }
+
+    // Create a copy of another gameboard
+    public GameBoard(GameBoard other){
+        this(other.mPosition);
+    }
+
+    // Create a gameboard set up with a copy of the position
+    public GameBoard(Position position){
+        mPosition = new Position(position);
+        onBoardChanged();
+    }
+
+    public Position getPosition() {
+        return mPosition;
+    }
+
+    // Replace the pieces on the board with a copy of the position
+    public void setPosition(Position position) {
+        mPosition.copyFrom(position);
+        onBoardChanged();
+    }
+
+    // The board in Forsyth-Edwards Notation
+    public String getFen() {
+        return Fen.toString(mPosition);
+    }
+
+    // Set up the board from Forsyth-Edwards Notation. The moves
+    // played so far are forgotten and can't be taken back.
+    public void setFen(CharSequence fen) {
+        Fen.parse(fen, mPosition);
+        onBoardChanged();
+    }
+
+    // A 64-bit key for the position, the same for the same pieces, turn,
+    // castling rights and en passant square however they were reached
+    public long getZobristKey() {
+        return mPosition.getKey();
+    }
+
+    // IN_PROGRESS, CHECK, CHECKMATE or STALEMATE for the player whose turn it is
+    public int getStatus() {
+        if (mStatusOutOfDate) {
+            boolean inCheck = mPosition.getCheckers() != 0;
+            boolean canMove = mGenerator.hasLegalMove(mPosition, mMoves);
+            if (canMove) {
+                mStatus = inCheck ? CHECK : IN_PROGRESS;
+            } else {
+                mStatus = inCheck ? CHECKMATE : STALEMATE;
+            }
+            mStatusOutOfDate = false;
+        }
+        return mStatus;
+    }
+
+    public Piece[] getGameBoardTiles() {
+        if (mTilesOutOfDate) {
+            updateTiles();
+        }
+        return mGameBoardTiles;
+    }
+
+    public Piece getPieceAtCoordinates(int x, int y){
+        int position = (x * BOARD_LENGTH) + y;
+        if (!mPosition.isOccupied(position)) {
+            return null;
+        }
+        return getGameBoardTiles()[position];
+    }
+
+    // Check a tile without building its Piece
+    public boolean isEmptyAt(int x, int y){
+        return !mPosition.isOccupied((x * BOARD_LENGTH) + y);
+    }
+
+    // Play a move from the MoveGenerator
+    public void makeMove(int move){
+        mPosition.makeMove(move);
+        onBoardChanged();
+    }
+
+    // Take back the last move, restoring the board exactly as it was before it
+    public void unmakeMove(){
+        mPosition.unmakeMove();
+        onBoardChanged();
+    }
+
+    public boolean canUnmakeMove(){
+        return mPosition.getHistorySize() > 0;
+    }
+
+    public void movePieceTo(Piece piece, int x, int y){
+        int index = (x * BOARD_LENGTH) + y;
+        mPosition.movePiece(piece.getListPosition(), index);
+        onBoardChanged();
+
+        piece.setCoordinates(x, y);
+        piece.setHasMovedFromStart(true);
+    }
+
+    // Place a piece on a tile, or clear the tile if the piece is null
+    public void setPieceAt(Piece piece, int index){
+        if (piece == null) {
+            mPosition.removePiece(index);
+        } else {
+            mPosition.putPiece(index, piece.getColorCode(), piece.getType());
+        }
+        onBoardChanged();
+    }
+
+    private void onBoardChanged() {
+        mTilesOutOfDate = true;
+        mStatusOutOfDate = true;
+    }
+
+    // Rebuild the Piece for each tile from the bitboards
+    private void updateTiles() {
+        for (int index = 0; index < mGameBoardTiles.length; index++) {
+            int code = mPosition.getPieceAt(index);
+            if (code == Pieces.NONE) {
+                mGameBoardTiles[index] = null;
+                continue;
+            }
+
+            int color = Pieces.colorOf(code);
+            int type = Pieces.typeOf(code);
+            int x = Bitboards.row(index);
+            int y = Bitboards.col(index);
+
+            Piece piece;
+            if (type == Pieces.PAWN) {
+                PawnPiece pawn = new PawnPiece(color, x, y);
+                pawn.setValidEnPassant(isEnPassantPawn(index, color));
+                piece = pawn;
+            } else {
+                piece = new Piece(type, color, x, y);
+            }
+            piece.setHasMovedFromStart(hasMovedFromStart(index, color, type));
+            mGameBoardTiles[index] = piece;
+        }
+        mTilesOutOfDate = false;
+    }
+
+    // Whether the pawn on this tile just made its 2 space move
+    private boolean isEnPassantPawn(int index, int color) {
+        int enPassantSquare = mPosition.getEnPassantSquare();
+        if (enPassantSquare == Bitboards.NO_SQUARE) {
+            return false;
+        }
+        // The skipped tile is behind the pawn
+        if (color == Piece.WHITE) {
+            return index == enPassantSquare - BOARD_LENGTH;
+        } else {
+            return index == enPassantSquare + BOARD_LENGTH;
+        }
+    }
+
+    // The bitboards don't remember where each piece has been, but the rules only
+    // care for pawns, which can't go back to their start row, and for kings and
+    // rooks, which still have castling rights if they haven't moved.
+    private boolean hasMovedFromStart(int index, int color, int type) {
+        int castlingRights = mPosition.getCastlingRights();
+        switch (type) {
+            case Pieces.PAWN:
+                return Bitboards.row(index) != (color == Piece.WHITE ? 6 : 1);
+            case Pieces.KING:
+                if (color == Piece.WHITE) {
+                    return (castlingRights & (Position.WHITE_KINGSIDE | Position.WHITE_QUEENSIDE)) == 0;
+                } else {
+                    return (castlingRights & (Position.BLACK_KINGSIDE | Position.BLACK_QUEENSIDE)) == 0;
+                }
+            case Pieces.ROOK:
+                return (castlingRights & Position.castlingRightForRookSquare(index)) == 0;
+            default:
+                return false;
+        }
+    }
+}
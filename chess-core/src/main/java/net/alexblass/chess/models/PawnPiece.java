@@ -13,8 +13,8 @@ public class PawnPiece extends Piece {
     // pawn to be captured
     private boolean mValidEnPassant;
 
-    PawnPiece(String name, int colorCode, int x, int y, int imageResourceId){
-        super(name, colorCode, x, y, imageResourceId);
+    PawnPiece(int colorCode, int x, int y){
+        super(PAWN, colorCode, x, y);
         mValidEnPassant = false;
     }
 
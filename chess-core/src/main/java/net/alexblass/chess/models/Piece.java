@@ -1,5 +1,7 @@
 package net.alexblass.chess.models;
 
+import net.alexblass.chess.engine.Pieces;
+
 import static net.alexblass.chess.models.GameBoard.BOARD_LENGTH;
 
 /**
@@ -8,32 +10,26 @@ import static net.alexblass.chess.models.GameBoard.BOARD_LENGTH;
 
 public class Piece {
 
-    // Piece names
-    // Public so other classes can reference against a given Piece's name
-    public static final String QUEEN = "queen";
-    public static final String KING = "king";
-    public static final String ROOK = "rook";
-    public static final String BISHOP = "bishop";
-    public static final String KNIGHT = "knight";
-    public static final String PAWN = "pawn";
+    // Piece types, the same small ints the engine uses (see Pieces)
+    // Public so other classes can reference against a given Piece's type
+    public static final int PAWN = Pieces.PAWN;
+    public static final int KNIGHT = Pieces.KNIGHT;
+    public static final int BISHOP = Pieces.BISHOP;
+    public static final int ROOK = Pieces.ROOK;
+    public static final int QUEEN = Pieces.QUEEN;
+    public static final int KING = Pieces.KING;
 
     // Color codes for each player's pieces
     // Public so other classes can reference against a Piece's color code
-    public static final int WHITE = 0; // White goes first in the game
-    public static final int BLACK = 1;
+    public static final int WHITE = Pieces.WHITE; // White goes first in the game
+    public static final int BLACK = Pieces.BLACK;
 
-    // The name of the given piece
-    private String mName;
+    // The type of the given piece
+    private int mType;
 
     // Keeps track of the color of this individual piece
     private int mColorCode;
 
-    // Points value of the piece
-    private int mPointsValue;
-
-    // The image file for the piece
-    private int mImageResourceId;
-
     // The x and y row and column values for a Piece's location
     private int mRowX;
     private int mColY;
@@ -51,11 +47,10 @@ public class Piece {
     // Should be false when pieces are captured, otherwise true
     private boolean mIsActive;
 
-    public Piece(String name, int colorCode, int x, int y, int imageResourceId){
+    public Piece(int type, int colorCode, int x, int y){
         // Information about the Piece type
-        this.mName = name;
+        this.mType = type;
         this.mColorCode = colorCode;
-        this.mImageResourceId = imageResourceId;
 
         // Information about the Piece's playability
         mHasMovedFromStart = false;
@@ -66,53 +61,20 @@ public class Piece {
         mColY = y;
 
         mListPostion = (x * BOARD_LENGTH) + y;
-
-        // The Piece's points value
-        switch(name){
-            case "pawn":
-                mPointsValue = 1;
-                break;
-            case "knight":
-            case "bishop":
-                mPointsValue = 3;
-                break;
-            case "rook":
-                mPointsValue = 5;
-                break;
-            case "queen":
-                mPointsValue = 9;
-                break;
-            default:
-                mPointsValue = 0;
-        }
     }
 
-    public String getName() {
-        return mName;
+    public int getType() {
+        return mType;
     }
 
     // Used for when a pawn reaches the other player's home row and can be changed to another piece
-    public void setName(String name){
-        this.mName = name;
-
-        // The Piece's points value
-        switch(name){
-            case "pawn":
-                mPointsValue = 1;
-                break;
-            case "knight":
-            case "bishop":
-                mPointsValue = 3;
-                break;
-            case "rook":
-                mPointsValue = 5;
-                break;
-            case "queen":
-                mPointsValue = 9;
-                break;
-            default:
-                mPointsValue = 0;
-        }
+    public void setType(int type){
+        this.mType = type;
+    }
+
+    // The type and color as one code, see Pieces.code()
+    public int getCode() {
+        return Pieces.code(mColorCode, mType);
     }
 
     public boolean hasMovedFromStart() {
@@ -132,22 +94,13 @@ public class Piece {
     }
 
     public int getPointsValue() {
-        return mPointsValue;
+        return Pieces.pointsValue(mType);
     }
 
     public int getColorCode() {
         return mColorCode;
     }
 
-    public int getImageResourceId() {
-        return mImageResourceId;
-    }
-
-    // Used for when a pawn reaches the other player's home row and can be changed to another piece
-    public void setImageResourceId(int imageResourceId) {
-        this.mImageResourceId = imageResourceId;
-    }
-
     public void setCoordinates(int x, int y){
         this.mRowX = x;
         this.mColY = y;
@@ -0,0 +1,273 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.OpeningBook;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.GameBoard;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Builds an OpeningBook from the games in PGN files.
+ *
+ * Each of the first moves of every finished game counts for the side that played it,
+ * 2 for a win and 1 for a draw, as Polyglot's own builder does. Moves from lost games
+ * and games with no result don't count. When the book is written, the counts for the
+ * same move in the same position are added up and scaled to fit Polyglot's 16 bit
+ * weights, and moves that never scored are left out.
+ */
+
+public class OpeningBookBuilder {
+
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    // How many plies of each game go in the book
+    private final int mMaxPly;
+
+    // One record for each move counted so far: the position's key, and the book move
+    // with its weight packed into an int (move << 16 | weight). Sorted when written.
+    private long[] mKeys = new long[1024];
+    private int[] mMoves = new int[1024];
+    private int mSize;
+
+    // The moves of the game being read, until its result is known
+    private final long[] mGameKeys;
+    private final int[] mGameMoves;
+    private final int[] mGameColors;
+    private int mGameLength;
+    private boolean mGameValid;
+
+    private final PgnVisitor mVisitor = new PgnVisitor() {
+        @Override
+        public void onGameStart() {
+            mGameLength = 0;
+            mGameValid = true;
+        }
+
+        @Override
+        public void onMove(GameBoard board, int move) {
+            Position position = board.getPosition();
+            if (mGameLength < mMaxPly) {
+                // Take the move back for a moment to key the position it was played in
+                position.unmakeMove();
+                mGameKeys[mGameLength] = OpeningBook.polyglotKey(position);
+                position.makeMove(move);
+                mGameMoves[mGameLength] = OpeningBook.toBookMove(move);
+                mGameColors[mGameLength] = Pieces.opposite(position.getSideToMove());
+                mGameLength++;
+            }
+        }
+
+        @Override
+        public void onError(String message) {
+            mGameValid = false;
+        }
+
+        @Override
+        public void onGameEnd(CharSequence result) {
+            if (mGameValid) {
+                addGame(result);
+            }
+        }
+    };
+
+    public OpeningBookBuilder(int maxPly) {
+        mMaxPly = maxPly;
+        mGameKeys = new long[maxPly];
+        mGameMoves = new int[maxPly];
+        mGameColors = new int[maxPly];
+    }
+
+    // Count the moves of every game in a PGN file
+    public void addGames(File pgn) throws IOException {
+        PgnReader reader = PgnReader.open(pgn);
+        try {
+            addGames(reader);
+        } finally {
+            reader.close();
+        }
+    }
+
+    public void addGames(PgnReader reader) throws IOException {
+        reader.readAll(mVisitor);
+    }
+
+    // The number of moves counted so far, before the same moves are merged
+    public int getRecordCount() {
+        return mSize;
+    }
+
+    // Write the book file
+    public void write(File book) throws IOException {
+        FileOutputStream output = new FileOutputStream(book);
+        try {
+            FileChannel channel = output.getChannel();
+            ByteBuffer buffer = build();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            output.close();
+        }
+    }
+
+    // The book's entries, sorted and merged
+    public ByteBuffer build() {
+        sort(0, mSize - 1);
+
+        // Count the entries first so the buffer is the right size
+        int entries = 0;
+        for (int i = 0; i < mSize; i = nextMove(i)) {
+            entries++;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(entries * OpeningBook.ENTRY_SIZE);
+
+        for (int start = 0; start < mSize; ) {
+            // The moves for one position
+            int end = start;
+            while (end < mSize && mKeys[end] == mKeys[start]) {
+                end++;
+            }
+            long maxWeight = 0;
+            for (int i = start; i < end; i = nextMove(i)) {
+                maxWeight = Math.max(maxWeight, weight(i, nextMove(i)));
+            }
+            for (int i = start; i < end; i = nextMove(i)) {
+                long weight = weight(i, nextMove(i));
+                if (maxWeight > 0xFFFF) {
+                    weight = weight * 0xFFFF / maxWeight;
+                }
+                if (weight == 0) {
+                    continue;
+                }
+                buffer.putLong(mKeys[i]);
+                buffer.putShort((short) (mMoves[i] >>> 16));
+                buffer.putShort((short) weight);
+                buffer.putInt(0);
+            }
+            start = end;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void addGame(CharSequence result) {
+        int winner;
+        if ("1-0".contentEquals(result)) {
+            winner = Pieces.WHITE;
+        } else if ("0-1".contentEquals(result)) {
+            winner = Pieces.BLACK;
+        } else if ("1/2-1/2".contentEquals(result)) {
+            winner = Pieces.NONE;
+        } else {
+            return;
+        }
+        for (int i = 0; i < mGameLength; i++) {
+            int weight = winner == Pieces.NONE ? DRAW : winner == mGameColors[i] ? WIN : 0;
+            if (weight > 0) {
+                add(mGameKeys[i], mGameMoves[i] << 16 | weight);
+            }
+        }
+    }
+
+    private void add(long key, int move) {
+        if (mSize == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mSize * 2);
+            mMoves = Arrays.copyOf(mMoves, mSize * 2);
+        }
+        mKeys[mSize] = key;
+        mMoves[mSize] = move;
+        mSize++;
+    }
+
+    // The index of the first record after i with a different position or move
+    private int nextMove(int i) {
+        int next = i + 1;
+        while (next < mSize && mKeys[next] == mKeys[i]
+                && (mMoves[next] >>> 16) == (mMoves[i] >>> 16)) {
+            next++;
+        }
+        return next;
+    }
+
+    // The total weight of the records from start up to end
+    private long weight(int start, int end) {
+        long weight = 0;
+        for (int i = start; i < end; i++) {
+            weight += mMoves[i] & 0xFFFF;
+        }
+        return weight;
+    }
+
+    // Quicksort the records by unsigned key, then move
+    private void sort(int low, int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = mKeys[middle] ^ Long.MIN_VALUE;
+            int pivotMove = mMoves[middle] >>> 16;
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(i, pivotKey, pivotMove) < 0) {
+                    i++;
+                }
+                while (compare(j, pivotKey, pivotMove) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            // Recurse into the smaller side and loop on the larger one
+            if (j - low < high - i) {
+                sort(low, j);
+                low = i;
+            } else {
+                sort(i, high);
+                high = j;
+            }
+        }
+        // Insertion sort for short ranges
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low
+                    && compare(j - 1, mKeys[j] ^ Long.MIN_VALUE, mMoves[j] >>> 16) > 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compare(int i, long key, int move) {
+        long recordKey = mKeys[i] ^ Long.MIN_VALUE;
+        if (recordKey != key) {
+            return recordKey < key ? -1 : 1;
+        }
+        int recordMove = mMoves[i] >>> 16;
+        return recordMove < move ? -1 : recordMove == move ? 0 : 1;
+    }
+
+    private void swap(int i, int j) {
+        long key = mKeys[i];
+        mKeys[i] = mKeys[j];
+        mKeys[j] = key;
+        int move = mMoves[i];
+        mMoves[i] = mMoves[j];
+        mMoves[j] = move;
+    }
+
+    // Usage: OpeningBookBuilder <book file> <max plies> <pgn file>...
+    public static void main(String[] args) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(Integer.parseInt(args[1]));
+        for (int i = 2; i < args.length; i++) {
+            builder.addGames(new File(args[i]));
+        }
+        builder.write(new File(args[0]));
+        System.out.println(builder.getRecordCount() + " moves counted, "
+                + new File(args[0]).length() / OpeningBook.ENTRY_SIZE + " entries written");
+    }
+}
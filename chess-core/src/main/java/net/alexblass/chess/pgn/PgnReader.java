@@ -0,0 +1,387 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.San;
+import net.alexblass.chess.models.GameBoard;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads games in Portable Game Notation (PGN) from a channel, one game at a time.
+ *
+ * The text is read in fixed size blocks and split into tokens as it goes, so only one
+ * game is ever in memory however large the file is. Each move is read as SAN against
+ * the legal moves of the position and played on a GameBoard, and the visitor is told
+ * about the tags, moves, comments and result of each game as they're read.
+ * Variations are played on their own positions, branching off from before the move
+ * they replace. Numeric annotations ($1) and escaped lines (%) are skipped.
+ *
+ * The board, positions and token text are reused from game to game, so reading
+ * allocates almost nothing per game. Text is read as ISO-8859-1, which is what the
+ * PGN standard uses.
+ */
+
+public class PgnReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // read() results besides characters
+    private static final int END = -1;
+    private static final int NO_CHAR = -2;
+
+    private final ReadableByteChannel mChannel;
+    private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    // A character that was read one too far and is read again next
+    private int mPushedBack = NO_CHAR;
+
+    // The text of the current token, tag name and the game's FEN tag
+    private final StringBuilder mToken = new StringBuilder(256);
+    private final StringBuilder mTagName = new StringBuilder(32);
+    private final StringBuilder mFen = new StringBuilder(96);
+
+    private final San mSan = new San();
+
+    // The main line is played on the board, each level of variation on its own position
+    private final GameBoard mBoard = new GameBoard();
+    private final Position mStartPosition = new Position();
+    private Position[] mVariations = new Position[4];
+
+    // Where we are in the current game
+    private boolean mInGame;
+    private boolean mInMoves;
+    private boolean mSkipping;
+    private int mDepth;
+
+    private long mGameCount;
+
+    public PgnReader(ReadableByteChannel channel) {
+        mChannel = channel;
+        mBuffer.flip();
+        mStartPosition.setStartPosition();
+    }
+
+    // Read the games in a file
+    public static PgnReader open(File file) throws IOException {
+        return new PgnReader(new FileInputStream(file).getChannel());
+    }
+
+    // Read the next game and tell the visitor about it.
+    // Returns false if there are no more games.
+    public boolean readGame(PgnVisitor visitor) throws IOException {
+        mInGame = false;
+        mInMoves = false;
+        mSkipping = false;
+        mDepth = 0;
+        mFen.setLength(0);
+
+        while (true) {
+            int c = skipWhitespace();
+            switch (c) {
+                case END:
+                    if (mInGame) {
+                        endGame(visitor, "*");
+                    }
+                    return mInGame;
+                case '[':
+                    if (mInMoves) {
+                        // The next game's tags, this one had no result
+                        mPushedBack = c;
+                        endGame(visitor, "*");
+                        return true;
+                    }
+                    startGame(visitor);
+                    readTag(visitor);
+                    break;
+                case '{':
+                    startGame(visitor);
+                    readUntil('}');
+                    visitor.onComment(mToken);
+                    break;
+                case ';':
+                    startGame(visitor);
+                    readUntil('\n');
+                    visitor.onComment(mToken);
+                    break;
+                case '%':
+                    readUntil('\n');
+                    break;
+                case '(':
+                    startMoves(visitor);
+                    beginVariation();
+                    break;
+                case ')':
+                    if (mDepth > 0) {
+                        mDepth--;
+                    }
+                    break;
+                case '$':
+                    // A numeric annotation glyph such as $1 for "good move"
+                    readToken(c);
+                    break;
+                default:
+                    readToken(c);
+                    if (isResult(mToken)) {
+                        // Results inside variations are just commentary
+                        if (mDepth == 0) {
+                            startGame(visitor);
+                            endGame(visitor, mToken);
+                            return true;
+                        }
+                        break;
+                    }
+                    startMoves(visitor);
+                    readMove(visitor);
+                    break;
+            }
+        }
+    }
+
+    // Read every remaining game. Returns how many were read.
+    public long readAll(PgnVisitor visitor) throws IOException {
+        long games = 0;
+        while (readGame(visitor)) {
+            games++;
+        }
+        return games;
+    }
+
+    // The number of games read so far
+    public long getGameCount() {
+        return mGameCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    private void startGame(PgnVisitor visitor) {
+        if (!mInGame) {
+            mInGame = true;
+            visitor.onGameStart();
+        }
+    }
+
+    // Set up the board when the first move of the game comes along
+    private void startMoves(PgnVisitor visitor) {
+        startGame(visitor);
+        if (mInMoves) {
+            return;
+        }
+        mInMoves = true;
+        if (mFen.length() == 0) {
+            mBoard.setPosition(mStartPosition);
+            return;
+        }
+        try {
+            mBoard.setFen(mFen);
+        } catch (IllegalArgumentException e) {
+            error(visitor, e.getMessage());
+        }
+    }
+
+    private void endGame(PgnVisitor visitor, CharSequence result) {
+        mGameCount++;
+        visitor.onGameEnd(result);
+    }
+
+    private void error(PgnVisitor visitor, String message) {
+        if (!mSkipping) {
+            mSkipping = true;
+            visitor.onError(message);
+        }
+    }
+
+    // [Name "Value"], with the [ already read
+    private void readTag(PgnVisitor visitor) throws IOException {
+        mTagName.setLength(0);
+        int c = skipWhitespace();
+        while (c != END && c != '"' && c != ']' && !isWhitespace(c)) {
+            mTagName.append((char) c);
+            c = read();
+        }
+        if (isWhitespace(c)) {
+            c = skipWhitespace();
+        }
+
+        mToken.setLength(0);
+        if (c == '"') {
+            c = read();
+            while (c != END && c != '"') {
+                // Quotes and backslashes inside the value are escaped with a backslash
+                if (c == '\\') {
+                    c = read();
+                    if (c == END) {
+                        break;
+                    }
+                }
+                mToken.append((char) c);
+                c = read();
+            }
+        }
+        while (c != END && c != ']') {
+            c = read();
+        }
+
+        if ("FEN".contentEquals(mTagName)) {
+            mFen.setLength(0);
+            mFen.append(mToken);
+        }
+        visitor.onTag(mTagName, mToken);
+    }
+
+    // A move, possibly with its number in front ("12.e4" or "12...")
+    private void readMove(PgnVisitor visitor) {
+        int length = mToken.length();
+        int start = 0;
+        while (start < length && Character.isDigit(mToken.charAt(start))) {
+            start++;
+        }
+        if (start == length || mToken.charAt(start) != '.') {
+            // Not a move number after all, "0-0" for example
+            start = 0;
+        }
+        while (start < length && mToken.charAt(start) == '.') {
+            start++;
+        }
+        if (start == length || mSkipping) {
+            return;
+        }
+
+        Position position = mDepth == 0 ? mBoard.getPosition() : mVariations[mDepth];
+        int move = mSan.parse(position, mToken, start, length);
+        if (move == Move.NONE) {
+            error(visitor, "Illegal or ambiguous move " + mToken.substring(start)
+                    + " in game " + (mGameCount + 1));
+            return;
+        }
+        if (mDepth == 0) {
+            mBoard.makeMove(move);
+            visitor.onMove(mBoard, move);
+        } else {
+            position.makeMove(move);
+            visitor.onVariationMove(position, move, mDepth);
+        }
+    }
+
+    // A variation replaces the last move of the line it's in
+    private void beginVariation() {
+        mDepth++;
+        if (mDepth >= mVariations.length) {
+            Position[] variations = new Position[mVariations.length * 2];
+            System.arraycopy(mVariations, 0, variations, 0, mVariations.length);
+            mVariations = variations;
+        }
+        if (mVariations[mDepth] == null) {
+            mVariations[mDepth] = new Position();
+        }
+        if (mSkipping) {
+            return;
+        }
+        Position line = mDepth == 1 ? mBoard.getPosition() : mVariations[mDepth - 1];
+        Position variation = mVariations[mDepth];
+        variation.copyFrom(line);
+        if (variation.getHistorySize() > 0) {
+            variation.unmakeMove();
+        }
+    }
+
+    // Read the rest of a token starting with the character into mToken
+    private void readToken(int first) throws IOException {
+        mToken.setLength(0);
+        mToken.append((char) first);
+        int c = read();
+        while (c != END && !isWhitespace(c) && "{}()[];$".indexOf(c) < 0) {
+            mToken.append((char) c);
+            c = read();
+        }
+        if (c != END) {
+            mPushedBack = c;
+        }
+    }
+
+    // Read into mToken up to the terminator, which is dropped
+    private void readUntil(char terminator) throws IOException {
+        mToken.setLength(0);
+        int c = read();
+        while (c != END && c != terminator) {
+            if (c != '\r') {
+                mToken.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int skipWhitespace() throws IOException {
+        int c = read();
+        while (isWhitespace(c)) {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (mPushedBack != NO_CHAR) {
+            int c = mPushedBack;
+            mPushedBack = NO_CHAR;
+            return c;
+        }
+        if (!mBuffer.hasRemaining()) {
+            mBuffer.clear();
+            int read;
+            do {
+                read = mChannel.read(mBuffer);
+            } while (read == 0);
+            mBuffer.flip();
+            if (read < 0) {
+                return END;
+            }
+        }
+        return mBuffer.get() & 0xFF;
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isResult(CharSequence token) {
+        return "1-0".contentEquals(token) || "0-1".contentEquals(token)
+                || "1/2-1/2".contentEquals(token) || "*".contentEquals(token);
+    }
+
+    // Usage: PgnReader <file>
+    public static void main(String[] args) throws IOException {
+        final long[] counts = new long[2];
+        PgnVisitor counter = new PgnVisitor() {
+            @Override
+            public void onMove(GameBoard board, int move) {
+                counts[0]++;
+            }
+
+            @Override
+            public void onError(String message) {
+                counts[1]++;
+                System.err.println(message);
+            }
+        };
+
+        long start = System.nanoTime();
+        PgnReader reader = open(new File(args[0]));
+        try {
+            reader.readAll(counter);
+        } finally {
+            reader.close();
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(reader.getGameCount() + " games, " + counts[0] + " moves, "
+                + counts[1] + " errors in " + (nanos / 1000000) + " ms ("
+                + (long) (reader.getGameCount() * 1e9 / Math.max(1, nanos)) + " games/sec)");
+    }
+}
@@ -0,0 +1,46 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.GameBoard;
+
+/**
+ * Told about each part of the games a PgnReader reads, in the order they appear.
+ *
+ * Nothing is kept once a game has been read, so a visitor that wants to hold on to
+ * something has to copy it: the text passed in is reused for the next token, and the
+ * board and positions are reused for the next game. Every method does nothing unless
+ * it's overridden.
+ */
+
+public abstract class PgnVisitor {
+
+    // A new game starts
+    public void onGameStart() {
+    }
+
+    // A tag pair from the game's header, such as [White "Morphy, Paul"]
+    public void onTag(CharSequence name, CharSequence value) {
+    }
+
+    // A move of the main line, which has already been played on the board
+    public void onMove(GameBoard board, int move) {
+    }
+
+    // A move in a variation, which has already been played on the position.
+    // Variations of the main line have depth 1, variations of those depth 2 and so on.
+    public void onVariationMove(Position position, int move, int depth) {
+    }
+
+    // A comment, in braces or after a semicolon
+    public void onComment(CharSequence comment) {
+    }
+
+    // Something in the game couldn't be read or a move wasn't legal. The
+    // rest of the game's moves are skipped, but onGameEnd() is still called.
+    public void onError(String message) {
+    }
+
+    // The game is over: the result is "1-0", "0-1", "1/2-1/2" or "*"
+    public void onGameEnd(CharSequence result) {
+    }
+}
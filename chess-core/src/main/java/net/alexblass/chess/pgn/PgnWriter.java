@@ -0,0 +1,137 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.San;
+import net.alexblass.chess.models.Game;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes games in Portable Game Notation (PGN), with the moves in SAN.
+ *
+ * Each game gets the seven tags every PGN game has (Event, Site, Date, Round, White,
+ * Black and Result), filled in with "?" when they're not given, followed by any other
+ * tags. Games that don't start from the usual position get SetUp and FEN tags too.
+ * The moves are wrapped to lines of at most 80 characters.
+ */
+
+public class PgnWriter {
+
+    // The tags every game has, in the order they're written
+    private static final String[] SEVEN_TAG_ROSTER = {
+            "Event", "Site", "Date", "Round", "White", "Black", "Result"
+    };
+
+    private static final int LINE_LENGTH = 80;
+
+    private static final long START_KEY;
+
+    static {
+        Position start = new Position();
+        start.setStartPosition();
+        START_KEY = start.getKey();
+    }
+
+    private final Writer mOut;
+    private final San mSan = new San();
+
+    // The position the moves are played on while they're written
+    private final Position mPosition = new Position();
+
+    // The line being filled with moves, and the text of one move
+    private final StringBuilder mLine = new StringBuilder(LINE_LENGTH + 16);
+    private final StringBuilder mToken = new StringBuilder(16);
+
+    public PgnWriter(Writer out) {
+        mOut = out;
+    }
+
+    // Write the moves played in the game so far
+    public void write(Game game, Map<String, String> tags, String result) throws IOException {
+        write(game.getStartPosition(), game.getMoves(), tags, result);
+    }
+
+    // Write a game of the moves played from the start position. The tags may be
+    // null, and the result is "1-0", "0-1", "1/2-1/2" or "*" for a game in progress.
+    public void write(Position start, int[] moves, Map<String, String> tags, String result)
+            throws IOException {
+        for (String name : SEVEN_TAG_ROSTER) {
+            String value = tags == null ? null : tags.get(name);
+            if (name.equals("Result")) {
+                value = result;
+            } else if (value == null) {
+                value = name.equals("Date") ? "????.??.??" : "?";
+            }
+            writeTag(name, value);
+        }
+        if (tags != null) {
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!isRosterTag(tag.getKey()) && !tag.getKey().equals("SetUp")
+                        && !tag.getKey().equals("FEN")) {
+                    writeTag(tag.getKey(), tag.getValue());
+                }
+            }
+        }
+        if (start.getKey() != START_KEY) {
+            writeTag("SetUp", "1");
+            writeTag("FEN", Fen.toString(start));
+        }
+        mOut.write('\n');
+
+        mPosition.copyFrom(start);
+        mLine.setLength(0);
+        for (int i = 0; i < moves.length; i++) {
+            mToken.setLength(0);
+            // Number white's moves, and black's too if it's the first move of the game
+            if (mPosition.getSideToMove() == Pieces.WHITE) {
+                mToken.append(mPosition.getFullmoveNumber()).append(". ");
+            } else if (i == 0) {
+                mToken.append(mPosition.getFullmoveNumber()).append("... ");
+            }
+            mSan.write(mPosition, moves[i], mToken);
+            append(mToken);
+            mPosition.makeMove(moves[i]);
+        }
+        append(result);
+        mOut.write(mLine.toString());
+        mOut.write("\n\n");
+    }
+
+    public void flush() throws IOException {
+        mOut.flush();
+    }
+
+    // Add a token to the line, starting a new line if it won't fit
+    private void append(CharSequence token) throws IOException {
+        if (mLine.length() > 0 && mLine.length() + 1 + token.length() > LINE_LENGTH) {
+            mOut.write(mLine.toString());
+            mOut.write('\n');
+            mLine.setLength(0);
+        }
+        if (mLine.length() > 0) {
+            mLine.append(' ');
+        }
+        mLine.append(token);
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        mOut.write('[');
+        mOut.write(name);
+        mOut.write(" \"");
+        mOut.write(value.replace("\\", "\\\\").replace("\"", "\\\""));
+        mOut.write("\"]\n");
+    }
+
+    private static boolean isRosterTag(String name) {
+        for (String roster : SEVEN_TAG_ROSTER) {
+            if (roster.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
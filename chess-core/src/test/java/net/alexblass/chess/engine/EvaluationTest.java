@@ -0,0 +1,69 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the evaluation's symmetry and that its incrementally updated terms
+ * match a full recompute through make and unmake.
+ */
+public class EvaluationTest {
+
+    @Test
+    public void startPosition_isEven() throws Exception {
+        Position position = new Position();
+        position.setStartPosition();
+        assertEquals(0, Evaluation.evaluate(position));
+        assertEquals(PieceSquareTables.MAX_PHASE, position.getPhase());
+    }
+
+    @Test
+    public void mirroredPosition_hasOppositeScore() throws Exception {
+        // The same position with the colors swapped and the board flipped
+        Position white = position("r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4");
+        Position black = position("rnbqk2r/pppp1ppp/5n2/2b1p3/4P3/2N2N2/PPPP1PPP/R1BQKB1R b KQkq - 4 4");
+        assertEquals(Evaluation.evaluate(white), Evaluation.evaluate(black));
+        assertEquals(Evaluation.breakdown(white).getTotal(), -Evaluation.breakdown(black).getTotal());
+    }
+
+    @Test
+    public void breakdown_addsUpToEvaluation() throws Exception {
+        Position position = position("4k3/8/8/3q4/8/8/3R4/4K3 b - - 0 1");
+        Evaluation.Breakdown breakdown = Evaluation.breakdown(position);
+        assertEquals(Evaluation.pieceValue(Pieces.ROOK) - Evaluation.pieceValue(Pieces.QUEEN),
+                breakdown.getMaterial());
+        assertEquals(-breakdown.getTotal(), Evaluation.evaluate(position));
+    }
+
+    @Test
+    public void makeAndUnmake_keepTermsInSync() throws Exception {
+        // Captures, promotions, castling and en passant all move material around
+        Position position = position("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        int score = Evaluation.evaluate(position);
+        walk(position, new MoveGenerator(), 3);
+        assertTrue(position.isEvaluationValid());
+        assertEquals(score, Evaluation.evaluate(position));
+    }
+
+    // Make and take back every move to the depth, checking the terms at each node
+    private static void walk(Position position, MoveGenerator generator, int depth) {
+        assertTrue(position.isEvaluationValid());
+        if (depth == 0) {
+            return;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = generator.generate(position, moves, MoveGenerator.ALL);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            walk(position, generator, depth - 1);
+            position.unmakeMove();
+        }
+    }
+
+    private static Position position(String fen) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return position;
+    }
+}
@@ -0,0 +1,93 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that positions read from FEN text or bytes are written back the same.
+ */
+public class FenTest {
+
+    private static final String[] POSITIONS = {
+            Fen.START,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40"
+    };
+
+    @Test
+    public void write_matchesParsedText() throws Exception {
+        Position position = new Position();
+        for (String fen : POSITIONS) {
+            Fen.parse(fen, position);
+            assertEquals(fen, Fen.toString(position));
+        }
+    }
+
+    @Test
+    public void parseBuffer_readsOneLineAtATime() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (String fen : POSITIONS) {
+            text.append(fen).append("\r\n");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(text.toString().getBytes(Charset.forName("US-ASCII")));
+
+        Position fromBuffer = new Position();
+        Position fromText = new Position();
+        for (String fen : POSITIONS) {
+            Fen.parse(buffer, fromBuffer);
+            Fen.parse(fen, fromText);
+            assertEquals(fromText.getKey(), fromBuffer.getKey());
+            assertEquals(fen, Fen.toString(fromBuffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void parse_dropsEnPassantSquareNoPawnCanTake() throws Exception {
+        Position parsed = new Position();
+        Fen.parse("rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", parsed);
+        assertEquals(Bitboards.NO_SQUARE, parsed.getEnPassantSquare());
+
+        // The same as after playing the move, so the keys match
+        Position played = new Position();
+        played.setStartPosition();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator().generate(played, moves, MoveGenerator.ALL);
+        for (int i = 0; i < count; i++) {
+            if (Move.toString(moves[i]).equals("e2e4")) {
+                played.makeMove(moves[i]);
+            }
+        }
+        assertEquals(played.getKey(), parsed.getKey());
+        assertEquals(Fen.toString(played), Fen.toString(parsed));
+
+        // A square on the wrong rank isn't kept either
+        Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f3 0 3", parsed);
+        assertEquals(Bitboards.NO_SQUARE, parsed.getEnPassantSquare());
+    }
+
+    @Test
+    public void parse_rejectsRanksOverEightSquares() throws Exception {
+        String[] bad = {
+                "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/ppppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/6p2/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBN w KQkq - 0 1",
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR/8 w KQkq - 0 1"
+        };
+        Position position = new Position();
+        for (String fen : bad) {
+            try {
+                Fen.parse(fen, position);
+                fail("Parsed " + fen);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().endsWith(fen));
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that searching with several threads gives a sound result and stops cleanly.
+ */
+
+public class ParallelSearchTest {
+
+    @Test
+    public void severalThreads_findMate() throws Exception {
+        Position position = new Position();
+        Fen.parse("k7/8/2K5/8/8/8/8/7R w - - 0 1", position);
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 3);
+        try {
+            SearchResult result = search.search(position, new SearchLimits().setDepth(6));
+            assertTrue(result.isMateScore());
+            assertEquals(2, result.getMateIn());
+            assertEquals(3, search.getThreadNodes().length);
+            // Each thread's probes, added up
+            TranspositionTable.Statistics statistics = search.getTableStatistics();
+            assertTrue(statistics.getProbes() > 0);
+            assertTrue(statistics.getHitRate() > 0);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void depthLimit_stopsEveryThread() throws Exception {
+        Position position = new Position();
+        Fen.parse(Fen.START, position);
+        ParallelSearch search = new ParallelSearch(new TranspositionTable(4), 4);
+        try {
+            SearchResult result = search.search(position, new SearchLimits().setDepth(5));
+            assertTrue(result.getDepth() >= 5);
+            assertNotEquals(Move.NONE, result.getBestMove());
+
+            // The same threads can run another search straight away
+            result = search.search(position, new SearchLimits().setNodes(2000));
+            assertNotEquals(Move.NONE, result.getBestMove());
+        } finally {
+            search.shutdown();
+        }
+    }
+}
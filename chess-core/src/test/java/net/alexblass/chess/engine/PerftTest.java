@@ -0,0 +1,93 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the move generator against published perft counts for standard test positions.
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft results</a>
+ */
+public class PerftTest {
+
+    // Castling, en passant, promotions and pins all in one position
+    private static final String KIWIPETE =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    // Few pieces, lots of discovered checks and en passant into check
+    private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    // Promotions and castling while in check
+    private static final String POSITION_4 =
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 =
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 =
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    @Test
+    public void startPosition_matchesReferenceCounts() throws Exception {
+        assertCounts(Fen.START, 20, 400, 8902, 197281);
+    }
+
+    @Test
+    public void kiwipete_matchesReferenceCounts() throws Exception {
+        assertCounts(KIWIPETE, 48, 2039, 97862);
+    }
+
+    @Test
+    public void position3_matchesReferenceCounts() throws Exception {
+        assertCounts(POSITION_3, 14, 191, 2812, 43238);
+    }
+
+    @Test
+    public void position4_matchesReferenceCounts() throws Exception {
+        assertCounts(POSITION_4, 6, 264, 9467);
+    }
+
+    @Test
+    public void position5_matchesReferenceCounts() throws Exception {
+        assertCounts(POSITION_5, 44, 1486, 62379);
+    }
+
+    @Test
+    public void position6_matchesReferenceCounts() throws Exception {
+        assertCounts(POSITION_6, 46, 2079, 89890);
+    }
+
+    @Test
+    public void captureAndQuietModes_splitAllMoves() throws Exception {
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        Position position = new Position();
+        for (String fen : new String[]{Fen.START, KIWIPETE, POSITION_3, POSITION_4, POSITION_5}) {
+            Fen.parse(fen, position);
+            int all = generator.generate(position, moves, MoveGenerator.ALL);
+            int captures = generator.generate(position, moves, MoveGenerator.CAPTURES);
+            int quiets = generator.generate(position, moves, MoveGenerator.QUIETS);
+            assertEquals(fen, all, captures + quiets);
+        }
+    }
+
+    @Test
+    public void parallelSplit_matchesSequentialCount() throws Exception {
+        Position position = new Position();
+        Fen.parse(KIWIPETE, position);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(97862, Perft.runParallel(position, 3, pool).getNodes());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertCounts(String fen, long... expected) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        Perft perft = new Perft();
+        for (int depth = 1; depth <= expected.length; depth++) {
+            assertEquals(fen + " depth " + depth, expected[depth - 1], perft.count(position, depth));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that positions come back the same from their binary encoding.
+ */
+public class PositionCodecTest {
+
+    @Test
+    public void decode_restoresEncodedPosition() throws Exception {
+        String[] positions = {
+                Fen.START,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w Kq f6 0 3",
+                "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 b - - 12 40"
+        };
+        Position position = new Position();
+        Position decoded = new Position();
+        for (String fen : positions) {
+            Fen.parse(fen, position);
+            byte[] bytes = PositionCodec.encode(position);
+            assertEquals(PositionCodec.SIZE, bytes.length);
+
+            PositionCodec.decode(bytes, 0, decoded);
+            assertEquals(fen, Fen.toString(decoded));
+            assertEquals(position.getKey(), decoded.getKey());
+        }
+    }
+
+    @Test
+    public void encode_packsPositionsBackToBack() throws Exception {
+        Position first = new Position();
+        first.setStartPosition();
+        Position second = new Position();
+        Fen.parse("4k3/8/8/8/8/8/8/4K3 b - - 0 60", second);
+
+        // Leftover bytes from a larger position mustn't leak into a smaller one
+        ByteBuffer buffer = ByteBuffer.allocate(PositionCodec.SIZE * 2);
+        PositionCodec.encode(first, buffer);
+        PositionCodec.encode(second, buffer);
+        buffer.position(PositionCodec.SIZE);
+        PositionCodec.encode(second, buffer);
+        assertEquals(PositionCodec.SIZE * 2, buffer.position());
+
+        buffer.flip();
+        Position decoded = new Position();
+        PositionCodec.decode(buffer, decoded);
+        assertEquals(Fen.START, Fen.toString(decoded));
+        PositionCodec.decode(buffer, decoded);
+        assertEquals("4k3/8/8/8/8/8/8/4K3 b - - 0 60", Fen.toString(decoded));
+    }
+
+    @Test
+    public void decode_rejectsBadEnPassantSquares() throws Exception {
+        Position position = new Position();
+        Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w Kq f6 0 3", position);
+        byte[] bytes = PositionCodec.encode(position);
+        // f6 is square 21, stored plus 1, and the only other rows allowed are 2 and 5
+        assertEquals(22, bytes[25]);
+        Position decoded = new Position();
+        for (int stored : new int[] {1, 9, 33, 56, 65, 254}) {
+            bytes[25] = (byte) stored;
+            try {
+                PositionCodec.decode(bytes, 0, decoded);
+                fail("Decoded en passant byte " + stored);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        bytes[25] = (byte) (Bitboards.square(5, 3) + 1);
+        PositionCodec.decode(bytes, 0, decoded);
+        assertEquals(Bitboards.square(5, 3), decoded.getEnPassantSquare());
+    }
+}
@@ -0,0 +1,132 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that taking moves back restores every part of the position exactly.
+ */
+
+public class PositionTest {
+
+    private static final String KIWIPETE =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+    @Test
+    public void unmakeMove_restoresEveryPosition() throws Exception {
+        Position position = new Position();
+        Fen.parse(KIWIPETE, position);
+        checkTree(position, new MoveGenerator(), 3);
+
+        // Promotions, en passant and castling each take back differently
+        Fen.parse("r3k2r/1P6/8/3pP3/8/8/6p1/R3K2R w KQkq d6 0 1", position);
+        checkTree(position, new MoveGenerator(), 3);
+    }
+
+    @Test
+    public void nullMove_isTakenBack() throws Exception {
+        Position position = new Position();
+        Fen.parse("rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 3", position);
+        Position before = new Position(position);
+        position.makeNullMove();
+        assertEquals(Pieces.WHITE, position.getSideToMove());
+        assertEquals(Bitboards.NO_SQUARE, position.getEnPassantSquare());
+        position.unmakeMove();
+        assertSame(before, position);
+    }
+
+    @Test
+    public void movePiece_canBeTakenBack() throws Exception {
+        Position position = new Position();
+        position.setStartPosition();
+        Position before = new Position(position);
+        position.movePiece(Bitboards.square(6, 4), Bitboards.square(4, 4));
+        assertEquals(Pieces.BLACK, position.getSideToMove());
+        position.unmakeMove();
+        assertSame(before, position);
+        assertEquals(0, position.getHistorySize());
+    }
+
+    @Test
+    public void repetition_isFoundAfterKnightsReturn() throws Exception {
+        Position position = new Position();
+        position.setStartPosition();
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[][] squares = {{62, 45}, {6, 21}, {45, 62}, {21, 6}};
+        for (int[] move : squares) {
+            assertFalse(position.isRepetition());
+            position.makeMove(generator.findMove(position, move[0], move[1], Pieces.QUEEN, moves));
+        }
+        assertTrue(position.isRepetition());
+    }
+
+    @Test
+    public void repetitionCount_countsEachReturn() throws Exception {
+        Position position = new Position();
+        position.setStartPosition();
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[][] squares = {{62, 45}, {6, 21}, {45, 62}, {21, 6}};
+        for (int round = 1; round <= 2; round++) {
+            for (int[] move : squares) {
+                position.makeMove(generator.findMove(position, move[0], move[1], Pieces.QUEEN,
+                        moves));
+            }
+            assertEquals(round, position.getRepetitionCount());
+        }
+        position.makeMove(generator.findMove(position, 52, 36, Pieces.QUEEN, moves));
+        assertEquals(0, position.getRepetitionCount());
+    }
+
+    @Test
+    public void insufficientMaterial_isOnlyKingsAndOneMinorPiece() throws Exception {
+        assertTrue(insufficientMaterial("8/8/4k3/8/8/3K4/8/8 w - - 0 1"));
+        assertTrue(insufficientMaterial("8/8/4k3/8/8/3K4/8/5N2 w - - 0 1"));
+        // Bishops on the same color can never mate, on both colors they can
+        assertTrue(insufficientMaterial("2b5/8/4k3/8/8/3K4/8/5B2 w - - 0 1"));
+        assertFalse(insufficientMaterial("1b6/8/4k3/8/8/3K4/8/5B2 w - - 0 1"));
+        assertFalse(insufficientMaterial("8/8/4k3/8/8/3K4/8/4NN2 w - - 0 1"));
+        assertFalse(insufficientMaterial("8/8/4k3/8/8/3K4/7P/8 w - - 0 1"));
+    }
+
+    private static boolean insufficientMaterial(String fen) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return position.hasInsufficientMaterial();
+    }
+
+    // Play every move to the given depth and check each one is taken back exactly
+    private static void checkTree(Position position, MoveGenerator generator, int depth) {
+        if (depth == 0) {
+            return;
+        }
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = generator.generate(position, moves, MoveGenerator.ALL);
+        Position before = new Position(position);
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            checkTree(position, generator, depth - 1);
+            position.unmakeMove();
+            assertSame(before, position);
+        }
+    }
+
+    private static void assertSame(Position expected, Position actual) {
+        for (int square = 0; square < Bitboards.SQUARES; square++) {
+            assertEquals(expected.getPieceAt(square), actual.getPieceAt(square));
+        }
+        for (int code = 0; code < Pieces.CODES; code++) {
+            assertEquals(expected.getPieces(code), actual.getPieces(code));
+        }
+        assertEquals(expected.getOccupied(), actual.getOccupied());
+        assertEquals(expected.getSideToMove(), actual.getSideToMove());
+        assertEquals(expected.getCastlingRights(), actual.getCastlingRights());
+        assertEquals(expected.getEnPassantSquare(), actual.getEnPassantSquare());
+        assertEquals(expected.getHalfmoveClock(), actual.getHalfmoveClock());
+        assertEquals(expected.getFullmoveNumber(), actual.getFullmoveNumber());
+        assertEquals(expected.getKey(), actual.getKey());
+        assertEquals(expected.getHistorySize(), actual.getHistorySize());
+    }
+}
@@ -0,0 +1,77 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks reading and writing moves in Standard Algebraic Notation.
+ */
+public class SanTest {
+
+    private final San mSan = new San();
+
+    @Test
+    public void parse_findsMoves() throws Exception {
+        Position position = position("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        assertEquals("e1g1", Move.toString(mSan.parse(position, "O-O")));
+        assertEquals("e1c1", Move.toString(mSan.parse(position, "0-0-0")));
+        assertEquals("d5e6", Move.toString(mSan.parse(position, "dxe6")));
+        assertEquals("e5f7", Move.toString(mSan.parse(position, "Nxf7!?")));
+        assertEquals("f3f6", Move.toString(mSan.parse(position, "Qxf6+")));
+        assertEquals(Move.NONE, mSan.parse(position, "Nb5b6"));
+        assertEquals(Move.NONE, mSan.parse(position, "Ke3"));
+    }
+
+    @Test
+    public void parse_needsDisambiguation() throws Exception {
+        // Both knights can reach d2, and both rooks can reach d1
+        Position position = position("4k3/8/8/8/8/1N3N2/8/R3K2R w - - 0 1");
+        assertEquals(Move.NONE, mSan.parse(position, "Nd2"));
+        assertEquals("b3d2", Move.toString(mSan.parse(position, "Nbd2")));
+        assertEquals("h1f1", Move.toString(mSan.parse(position, "Rhf1")));
+    }
+
+    @Test
+    public void parse_readsPromotions() throws Exception {
+        Position position = position("1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals("a7a8n", Move.toString(mSan.parse(position, "a8=N")));
+        assertEquals("a7b8q", Move.toString(mSan.parse(position, "axb8Q")));
+        assertEquals(Move.NONE, mSan.parse(position, "a8"));
+    }
+
+    @Test
+    public void write_roundTripsEveryMove() throws Exception {
+        String[] positions = {
+                Fen.START,
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                "4k3/8/8/8/8/1N3N2/8/R3K2R w - - 0 1",
+                "1n2k3/P7/8/8/8/8/8/4K3 w - - 0 1"
+        };
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (String fen : positions) {
+            Position position = position(fen);
+            int count = generator.generate(position, moves, MoveGenerator.ALL);
+            for (int i = 0; i < count; i++) {
+                String san = mSan.toString(position, moves[i]);
+                assertEquals(san, moves[i], mSan.parse(position, san));
+            }
+        }
+    }
+
+    @Test
+    public void write_marksCheckAndMate() throws Exception {
+        Position position = position("k7/8/1K6/8/8/8/8/7R w - - 0 1");
+        assertEquals("Rh8#", mSan.toString(position, mSan.parse(position, "Rh8")));
+        assertEquals("Ra1+", mSan.toString(position, mSan.parse(position, "Ra1")));
+        assertEquals("Nbd2", mSan.toString(position("4k3/8/8/8/8/1N3N2/8/4K3 w - - 0 1"),
+                mSan.parse(position("4k3/8/8/8/8/1N3N2/8/4K3 w - - 0 1"), "Nbd2")));
+    }
+
+    private static Position position(String fen) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return position;
+    }
+}
@@ -0,0 +1,102 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the search finds forced wins, takes free material and respects its limits.
+ */
+
+public class SearchTest {
+
+    private static SearchResult search(String fen, SearchLimits limits) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return new Search(new TranspositionTable(4)).search(position, limits);
+    }
+
+    @Test
+    public void backRankMate_isFound() throws Exception {
+        SearchResult result = search("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1",
+                new SearchLimits().setDepth(4));
+        assertEquals("d1d8", Move.toString(result.getBestMove()));
+        assertTrue(result.isMateScore());
+        assertEquals(1, result.getMateIn());
+    }
+
+    @Test
+    public void mateInTwo_isFound() throws Exception {
+        // 1. Kb6 Kb8 2. Rh8#
+        SearchResult result = search("k7/8/2K5/8/8/8/8/7R w - - 0 1",
+                new SearchLimits().setDepth(6));
+        assertTrue(result.isMateScore());
+        assertEquals(2, result.getMateIn());
+    }
+
+    @Test
+    public void hangingQueen_isTaken() throws Exception {
+        SearchResult result = search("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1", new SearchLimits().setDepth(3));
+        assertEquals("d2d5", Move.toString(result.getBestMove()));
+        // Up a rook, give or take where the pieces stand
+        assertEquals(Evaluation.pieceValue(Pieces.ROOK), result.getScore(),
+                Evaluation.pieceValue(Pieces.PAWN));
+    }
+
+    @Test
+    public void checkmatedPosition_hasNoMove() throws Exception {
+        SearchResult result = search("R5k1/5ppp/8/8/8/8/5PPP/6K1 b - - 0 1",
+                new SearchLimits().setDepth(3));
+        assertEquals(Move.NONE, result.getBestMove());
+        assertEquals(-Search.MATE, result.getScore());
+    }
+
+    @Test
+    public void nodeLimit_stopsSearch() throws Exception {
+        SearchResult result = search(Fen.START, new SearchLimits().setNodes(5000));
+        assertNotEquals(Move.NONE, result.getBestMove());
+        assertTrue(result.getNodes() <= 5000);
+    }
+
+    @Test
+    public void stoppedIteration_isNotReported() throws Exception {
+        Position position = new Position();
+        Fen.parse(Fen.START, position);
+        Search search = new Search(new TranspositionTable(4));
+        final int[] deepest = new int[1];
+        search.setListener(new Search.Listener() {
+            @Override
+            public void onIteration(SearchResult result) {
+                deepest[0] = result.getDepth();
+            }
+        });
+        // Stops partway through the first iteration, which is still used for a move
+        SearchResult result = search.search(position, new SearchLimits().setNodes(10));
+        assertNotEquals(Move.NONE, result.getBestMove());
+        assertEquals(0, deepest[0]);
+
+        // Stops partway through a later one: the result is the deepest completed one
+        result = search.search(position, new SearchLimits().setNodes(3000));
+        assertEquals(deepest[0], result.getDepth());
+    }
+
+    @Test
+    public void principalVariation_isLegal() throws Exception {
+        Position position = new Position();
+        Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3", position);
+        SearchResult result = new Search(new TranspositionTable(4))
+                .search(position, new SearchLimits().setDepth(5));
+
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        for (int move : result.getPrincipalVariation()) {
+            int count = generator.generate(position, moves, MoveGenerator.ALL);
+            boolean found = false;
+            for (int i = 0; i < count; i++) {
+                found |= moves[i] == move;
+            }
+            assertTrue(Move.toString(move), found);
+            position.makeMove(move);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package net.alexblass.chess.engine;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the tables made for three pieces against known endgame results.
+ */
+
+public class TablebaseTest {
+
+    private static File sDirectory;
+    private static TablebaseGenerator sGenerator;
+    private static Tablebase sTablebase;
+
+    @BeforeClass
+    public static void generate() throws Exception {
+        sDirectory = File.createTempFile("tablebase", "");
+        assertTrue(sDirectory.delete() && sDirectory.mkdir());
+        ForkJoinPool pool = new ForkJoinPool(2);
+        sGenerator = new TablebaseGenerator(sDirectory, pool);
+        sTablebase = sGenerator.generateAll(3);
+        pool.shutdown();
+    }
+
+    @AfterClass
+    public static void deleteTables() throws Exception {
+        for (File file : sDirectory.listFiles()) {
+            file.delete();
+        }
+        sDirectory.delete();
+    }
+
+    @Test
+    public void materialNames_comeBeforeTheTablesTheyLeadTo() throws Exception {
+        List<String> names = TablebaseGenerator.materialNames(4);
+        assertEquals("KvK", names.get(0));
+        assertTrue(names.contains("KQvKR"));
+        assertFalse(names.contains("KRvKQ"));
+        // Promotions lead from KPvKP to KQvKP
+        assertTrue(names.indexOf("KQvKP") < names.indexOf("KPvKP"));
+        assertTrue(names.indexOf("KQvK") < names.indexOf("KPvK"));
+    }
+
+    @Test
+    public void longestMates_matchKnownResults() throws Exception {
+        // Mate in 10 moves with a queen and 16 with a rook, counted in plies from the
+        // losing side's move, and never with a minor piece
+        assertEquals(20, sGenerator.generate("KQvK"));
+        assertEquals(32, sGenerator.generate("KRvK"));
+        assertEquals(0, sGenerator.generate("KBvK"));
+        assertEquals(0, sGenerator.generate("KNvK"));
+        assertEquals(6, sTablebase.getTableCount());
+        assertEquals(3, sTablebase.getMaxPieces());
+    }
+
+    @Test
+    public void probe_findsMatesForEitherColor() throws Exception {
+        assertProbe("7k/8/6K1/8/8/8/8/1Q6 w - - 0 1", Tablebase.WIN, 1);
+        assertProbe("7k/7Q/6K1/8/8/8/8/8 b - - 0 1", Tablebase.LOSS, 0);
+        // The same positions with the colors swapped
+        assertProbe("1q6/8/8/8/8/6k1/8/7K b - - 0 1", Tablebase.WIN, 1);
+        assertProbe("8/8/8/8/8/6k1/7q/7K w - - 0 1", Tablebase.LOSS, 0);
+        assertProbe("8/8/4k3/8/8/8/8/4KB2 w - - 0 1", Tablebase.DRAW, -1);
+        // Too many pieces
+        assertProbe("8/8/4k3/8/8/8/8/3QKB2 w - - 0 1", Tablebase.UNKNOWN, -1);
+    }
+
+    @Test
+    public void kingAndPawn_winsOnlyWithTheRightSquares() throws Exception {
+        // The king in front of its pawn on the sixth row wins whoever moves
+        assertProbe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1", Tablebase.WIN, -2);
+        assertProbe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", Tablebase.LOSS, -2);
+        // A rook's pawn with the defending king in the corner doesn't
+        assertProbe("k7/8/8/8/8/8/P7/K7 w - - 0 1", Tablebase.DRAW, -1);
+        // The defending king can't catch the pawn, and with black to move it can
+        assertProbe("8/8/8/k7/8/8/6P1/6K1 w - - 0 1", Tablebase.WIN, -2);
+        assertProbe("8/8/8/4k3/8/8/6P1/6K1 b - - 0 1", Tablebase.DRAW, -1);
+    }
+
+    @Test
+    public void lookAhead_matchesTheDirectValue() throws Exception {
+        // Three pieces can't make an en passant square, so force one to look ahead
+        Position position = new Position();
+        Fen.parse("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1", position);
+        int score = sTablebase.probeScore(position, 2);
+        position.setEnPassantSquare(Bitboards.square(5, 0));
+        Tablebase.ProbeBuffers buffers = new Tablebase.ProbeBuffers();
+        assertEquals(score, sTablebase.probeScore(position, 2, buffers));
+        assertEquals(score, sTablebase.probeScore(position, 2, buffers));
+        assertEquals(score, sTablebase.probeScore(position, 2));
+    }
+
+    @Test
+    public void values_agreeWithTheMovesAfterThem() throws Exception {
+        Random random = new Random(7);
+        MoveGenerator generator = new MoveGenerator();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] values = new int[MoveGenerator.MAX_MOVES];
+        int[] types = {Pieces.QUEEN, Pieces.ROOK, Pieces.PAWN};
+        Position position = new Position();
+        int checked = 0;
+        while (checked < 3000) {
+            position.clear();
+            position.putPiece(random.nextInt(64), Pieces.WHITE, Pieces.KING);
+            position.putPiece(random.nextInt(64), Pieces.BLACK, Pieces.KING);
+            position.putPiece(8 + random.nextInt(48), random.nextInt(2),
+                    types[random.nextInt(types.length)]);
+            position.setSideToMove(random.nextInt(2));
+            if (Bitboards.count(position.getOccupied()) < 3
+                    || sTablebase.probe(position) == TablebaseTable.ILLEGAL) {
+                continue;
+            }
+            int value = sTablebase.probe(position);
+            int count = generator.generate(position, moves, MoveGenerator.ALL);
+            if (count == 0) {
+                continue;
+            }
+            for (int i = 0; i < count; i++) {
+                position.makeMove(moves[i]);
+                values[i] = sTablebase.probe(position);
+                position.unmakeMove();
+            }
+            assertEquals(Fen.toString(position), Tablebase.best(values, count), value);
+            checked++;
+        }
+    }
+
+    @Test
+    public void search_takesScoresFromTheTablebase() throws Exception {
+        Position position = new Position();
+        Fen.parse("8/8/8/3k4/8/8/8/R3K3 w - - 0 1", position);
+        int distance = sTablebase.probeDistance(position);
+        assertTrue(distance > 0);
+
+        Search search = new Search(new TranspositionTable(4));
+        search.setTablebase(sTablebase);
+        SearchResult result = search.search(position, new SearchLimits().setDepth(2));
+        assertEquals(Search.MATE - distance, result.getScore());
+
+        // The best move keeps the mate as close as the tables say
+        position.makeMove(result.getBestMove());
+        assertEquals(distance - 1, sTablebase.probeDistance(position));
+    }
+
+    @Test
+    public void deepProbe_isStillAMate() throws Exception {
+        // The longest KRvK win for white to move
+        Position position = new Position();
+        int longest = 0;
+        int[] squares = new int[3];
+        for (int whiteKing = 0; whiteKing < 64; whiteKing++) {
+            for (int rook = 0; rook < 64; rook++) {
+                for (int blackKing = 0; blackKing < 64; blackKing++) {
+                    if (whiteKing == rook || rook == blackKing || blackKing == whiteKing) {
+                        continue;
+                    }
+                    setUp(position, whiteKing, rook, blackKing);
+                    int distance = sTablebase.probeDistance(position);
+                    if (distance > longest && (distance & 1) != 0) {
+                        longest = distance;
+                        squares = new int[] {whiteKing, rook, blackKing};
+                    }
+                }
+            }
+        }
+        assertEquals(31, longest);
+        setUp(position, squares[0], squares[1], squares[2]);
+
+        // Found deep in a search, the mate is further off than the search reaches
+        int ply = 40;
+        int score = sTablebase.probeScore(position, ply);
+        assertEquals(Search.MATE - ply - longest, score);
+        assertTrue(score >= Search.MATE_BOUND);
+        SearchResult result = new SearchResult(new int[0], score, 1, 0, 0);
+        assertTrue(result.isMateScore());
+        assertEquals((ply + longest + 1) / 2, result.getMateIn());
+        assertTrue(result.toString(), result.toString().contains(" score mate "));
+    }
+
+    private static void setUp(Position position, int whiteKing, int rook, int blackKing) {
+        position.clear();
+        position.putPiece(whiteKing, Pieces.WHITE, Pieces.KING);
+        position.putPiece(rook, Pieces.WHITE, Pieces.ROOK);
+        position.putPiece(blackKing, Pieces.BLACK, Pieces.KING);
+        position.setSideToMove(Pieces.WHITE);
+    }
+
+    private static void assertProbe(String fen, int wdl, int distance) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        assertEquals(fen, wdl, sTablebase.probeWdl(position));
+        if (distance >= -1) {
+            assertEquals(fen, distance, sTablebase.probeDistance(position));
+        }
+        String before = Fen.toString(position);
+        sTablebase.probeScore(position, 0);
+        assertEquals(before, Fen.toString(position));
+    }
+}
@@ -0,0 +1,92 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that entries survive being packed into the table, and that entries read
+ * while other threads are storing are never mixed up with another position's.
+ */
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedEntry_probesBack() throws Exception {
+        TranspositionTable table = new TranspositionTable(1);
+        int move = Move.create(52, 36, Pieces.PAWN, 0, 0, Move.DOUBLE_PUSH);
+        table.store(0x123456789ABCDEFL, move, -250, 7, TranspositionTable.LOWER);
+
+        long data = table.probe(0x123456789ABCDEFL);
+        assertNotEquals(TranspositionTable.NO_ENTRY, data);
+        assertEquals(move, TranspositionTable.move(data));
+        assertEquals(-250, TranspositionTable.score(data));
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(0x123456789ABCDEEL));
+    }
+
+    @Test
+    public void shallowerResult_keepsDeeperEntry() throws Exception {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(42L, Move.NONE, 10, 8, TranspositionTable.EXACT);
+        table.store(42L, Move.NONE, 30, 2, TranspositionTable.UPPER);
+        assertEquals(8, TranspositionTable.depth(table.probe(42L)));
+
+        // After a new search starts, the old entry gives way
+        table.newSearch();
+        table.store(42L, Move.NONE, 30, 2, TranspositionTable.UPPER);
+        assertEquals(2, TranspositionTable.depth(table.probe(42L)));
+    }
+
+    @Test
+    public void fullBucket_replacesShallowestEntry() throws Exception {
+        TranspositionTable table = new TranspositionTable(1);
+        // Keys that differ only in their high bits share a bucket
+        for (int i = 1; i <= 4; i++) {
+            assertFalse(table.store((long) i << 40, Move.NONE, 0, i, TranspositionTable.EXACT));
+        }
+        assertTrue(table.store(5L << 40, Move.NONE, 0, 5, TranspositionTable.EXACT));
+        assertEquals(TranspositionTable.NO_ENTRY, table.probe(1L << 40));
+        for (int i = 2; i <= 5; i++) {
+            assertEquals(i, TranspositionTable.depth(table.probe((long) i << 40)));
+        }
+    }
+
+    @Test
+    public void concurrentStores_neverReturnAnotherPositionsEntry() throws Exception {
+        final TranspositionTable table = new TranspositionTable(1);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long seed = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 500000; i++) {
+                        // A small set of keys, so threads keep landing on the same slots
+                        long key = random.nextInt(1 << 16) * 0x9E3779B97F4A7C15L;
+                        // The score is derived from the key, so a mixed up entry shows
+                        int score = (int) (key >>> 52);
+                        long data = table.probe(key);
+                        if (data != TranspositionTable.NO_ENTRY
+                                && TranspositionTable.score(data) != score) {
+                            failed[0] = true;
+                        }
+                        table.store(key, Move.NONE, score, random.nextInt(20),
+                                TranspositionTable.EXACT);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+    }
+}
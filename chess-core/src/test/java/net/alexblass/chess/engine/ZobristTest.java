@@ -0,0 +1,67 @@
+package net.alexblass.chess.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the incrementally updated position key identifies positions, not move orders.
+ */
+public class ZobristTest {
+
+    @Test
+    public void transposition_givesSameKey() throws Exception {
+        // 1. Nf3 Nf6 2. Nc3 and 1. Nc3 Nf6 2. Nf3 reach the same position
+        Position first = play("g1f3", "g8f6", "b1c3");
+        Position second = play("b1c3", "g8f6", "g1f3");
+        assertEquals(first.getKey(), second.getKey());
+        assertTrue(first.isKeyValid());
+    }
+
+    @Test
+    public void sideToMoveAndCastling_changeKey() throws Exception {
+        Position position = new Position();
+        Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", position);
+        long key = position.getKey();
+
+        position.setSideToMove(Pieces.BLACK);
+        assertNotEquals(key, position.getKey());
+        position.setSideToMove(Pieces.WHITE);
+        assertEquals(key, position.getKey());
+
+        position.setCastlingRights(Position.WHITE_KINGSIDE);
+        assertNotEquals(key, position.getKey());
+        assertTrue(position.isKeyValid());
+    }
+
+    @Test
+    public void enPassant_onlyKeyedWhenCapturePossible() throws Exception {
+        // e2e4 with no black pawn next to e4 leaves no en passant square
+        Position position = play("e2e4");
+        assertEquals(Bitboards.NO_SQUARE, position.getEnPassantSquare());
+
+        position = play("e2e4", "d7d5", "e4e5", "f7f5");
+        assertEquals(Bitboards.square(2, 5), position.getEnPassantSquare());
+        assertTrue(position.isKeyValid());
+    }
+
+    // Play moves in coordinate notation from the start position
+    private static Position play(String... moves) {
+        Position position = new Position();
+        position.setStartPosition();
+        MoveGenerator generator = new MoveGenerator();
+        int[] buffer = new int[MoveGenerator.MAX_MOVES];
+        for (String text : moves) {
+            int count = generator.generate(position, buffer, MoveGenerator.ALL);
+            int found = Move.NONE;
+            for (int i = 0; i < count; i++) {
+                if (Move.toString(buffer[i]).equals(text)) {
+                    found = buffer[i];
+                }
+            }
+            assertNotEquals(text, Move.NONE, found);
+            position.makeMove(found);
+        }
+        return position;
+    }
+}
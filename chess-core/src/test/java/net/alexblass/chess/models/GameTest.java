@@ -0,0 +1,188 @@
+package net.alexblass.chess.models;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchLimits;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the rules the app relies on when a player taps a piece and a tile.
+ */
+public class GameTest {
+
+    @Test
+    public void pawnMoves_oneOrTwoTilesFromStart() throws Exception {
+        Game game = new Game();
+        assertTrue(game.checkMoveValidity(6, 4, 5, 4));
+        assertTrue(game.checkMoveValidity(6, 4, 4, 4));
+        assertFalse(game.checkMoveValidity(6, 4, 3, 4));
+        assertFalse(game.checkMoveValidity(6, 4, 5, 5));
+    }
+
+    @Test
+    public void turns_alternateAfterEachMove() throws Exception {
+        Game game = new Game();
+        assertTrue(game.isPlayer1Turn());
+        assertFalse(game.checkMoveValidity(1, 4, 3, 4)); // Black can't go first
+        assertTrue(game.makeMove(6, 4, 4, 4, Piece.QUEEN));
+        assertFalse(game.isPlayer1Turn());
+        assertTrue(game.checkMoveValidity(1, 4, 3, 4));
+    }
+
+    @Test
+    public void castling_movesKingAndRook() throws Exception {
+        Game game = gameFrom("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertTrue(game.makeMove(7, 4, 7, 6, Piece.QUEEN));
+        Piece[] tiles = game.getBoard().getGameBoardTiles();
+        assertEquals(Piece.KING, tiles[62].getType());
+        assertEquals(Piece.ROOK, tiles[61].getType());
+        assertNull(tiles[63]);
+    }
+
+    @Test
+    public void castling_notAllowedThroughAttackedTile() throws Exception {
+        // The black rook on f8 attacks f1
+        Game game = gameFrom("5r1k/8/8/8/8/8/8/R3K2R w KQ - 0 1");
+        assertFalse(game.checkMoveValidity(7, 4, 7, 6));
+        assertTrue(game.checkMoveValidity(7, 4, 7, 2));
+    }
+
+    @Test
+    public void enPassant_onlyRightAfterTwoTileMove() throws Exception {
+        Game game = gameFrom("4k3/3p4/8/4P3/8/8/8/4K3 b - - 0 1");
+        assertTrue(game.makeMove(1, 3, 3, 3, Piece.QUEEN));
+        assertTrue(game.checkMoveValidity(3, 4, 2, 3));
+        assertTrue(game.makeMove(3, 4, 2, 3, Piece.QUEEN));
+        assertNull(game.getBoard().getPieceAtCoordinates(3, 3));
+        assertEquals(1, game.getPlayer1Score());
+    }
+
+    @Test
+    public void capture_addsPointsToScore() throws Exception {
+        Game game = gameFrom("4k3/8/8/3q4/8/8/8/3QK3 w - - 0 1");
+        assertTrue(game.makeMove(7, 3, 3, 3, Piece.QUEEN));
+        assertEquals(9, game.getPlayer1Score());
+        assertEquals(0, game.getPlayer2Score());
+    }
+
+    @Test
+    public void promotion_becomesChosenPiece() throws Exception {
+        Game game = gameFrom("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        assertTrue(game.isPromotion(1, 4, 0, 4));
+        assertTrue(game.makeMove(1, 4, 0, 4, Piece.KNIGHT));
+        assertEquals(Piece.KNIGHT, game.getBoard().getPieceAtCoordinates(0, 4).getType());
+    }
+
+    @Test
+    public void moveIntoCheck_isNotAllowed() throws Exception {
+        Game game = gameFrom("4k3/8/8/8/8/8/4r3/K7 w - - 0 1");
+        assertFalse(game.checkMoveValidity(7, 0, 6, 0));
+        assertTrue(game.checkMoveValidity(7, 0, 7, 1));
+    }
+
+    @Test
+    public void foolsMate_isCheckmate() throws Exception {
+        Game game = new Game();
+        assertEquals(GameBoard.IN_PROGRESS, game.getStatus());
+        assertTrue(game.makeMove(6, 5, 5, 5, Piece.QUEEN)); // f3
+        assertTrue(game.makeMove(1, 4, 3, 4, Piece.QUEEN)); // e5
+        assertTrue(game.makeMove(6, 6, 4, 6, Piece.QUEEN)); // g4
+        assertTrue(game.makeMove(0, 3, 4, 7, Piece.QUEEN)); // Qh4#
+        assertEquals(GameBoard.CHECKMATE, game.getStatus());
+        assertTrue(game.isGameOver());
+        assertTrue(game.isPlayer1Turn());
+    }
+
+    @Test
+    public void check_onlyAllowsEscapes() throws Exception {
+        Game game = gameFrom("4k3/8/8/8/1b6/8/2P5/4K1N1 w - - 0 1");
+        assertEquals(GameBoard.CHECK, game.getStatus());
+        assertTrue(game.checkMoveValidity(6, 2, 5, 2)); // c3 blocks the bishop
+        assertFalse(game.checkMoveValidity(6, 2, 4, 2)); // c4 doesn't
+        assertFalse(game.checkMoveValidity(7, 6, 5, 5)); // The knight can't help
+        assertTrue(game.checkMoveValidity(7, 4, 7, 5)); // The king steps aside
+    }
+
+    @Test
+    public void noMovesOutOfCheck_isStalemate() throws Exception {
+        Game game = gameFrom("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(GameBoard.STALEMATE, game.getStatus());
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    public void takeBack_restoresBoardAndScore() throws Exception {
+        Game game = gameFrom("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        long key = game.getBoard().getZobristKey();
+        assertTrue(game.makeMove(6, 3, 3, 3, Piece.QUEEN));
+        assertEquals(9, game.getPlayer1Score());
+
+        assertTrue(game.takeBack());
+        assertEquals(0, game.getPlayer1Score());
+        assertTrue(game.isPlayer1Turn());
+        assertEquals(key, game.getBoard().getZobristKey());
+        assertEquals(Piece.QUEEN, game.getBoard().getPieceAtCoordinates(3, 3).getType());
+        assertFalse(game.takeBack());
+    }
+
+    @Test
+    public void computerPlayer_takesHangingQueen() throws Exception {
+        Game game = gameFrom("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        ComputerPlayer computer = new ComputerPlayer(1, new SearchLimits().setDepth(3));
+        assertTrue(computer.playMove(game));
+        assertEquals(Piece.ROOK, game.getBoard().getPieceAtCoordinates(3, 3).getType());
+        assertEquals(9, game.getPlayer1Score());
+        assertFalse(game.isPlayer1Turn());
+    }
+
+    @Test
+    public void computerPlayer_findMoveLeavesPositionAlone() throws Exception {
+        Game game = gameFrom("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1");
+        long key = game.getBoard().getPosition().getKey();
+        ComputerPlayer computer = new ComputerPlayer(1, new SearchLimits().setDepth(3));
+        assertEquals("d2d5", Move.toString(computer.findMove(game.getBoard().getPosition())));
+        assertEquals(key, game.getBoard().getPosition().getKey());
+        assertTrue(game.isPlayer1Turn());
+    }
+
+    @Test
+    public void computerPlayer_stopSignalBeforeSearchIsKept() throws Exception {
+        Game game = new Game();
+        // Would search for a long time if the stop were lost
+        ComputerPlayer computer = new ComputerPlayer(1, new SearchLimits());
+        AtomicBoolean stopSignal = new AtomicBoolean(true);
+        int move = computer.findMove(game.getBoard().getPosition(), stopSignal);
+        assertNotEquals(Move.NONE, move);
+        assertTrue(computer.getLastResult().getNodes() < 100);
+    }
+
+    @Test
+    public void replayingMoves_restoresGame() throws Exception {
+        Game game = new Game();
+        game.makeMove(6, 4, 4, 4, Piece.QUEEN); // e4
+        game.makeMove(1, 3, 3, 3, Piece.QUEEN); // d5
+        game.makeMove(4, 4, 3, 3, Piece.QUEEN); // exd5
+
+        Game copy = new Game(new GameBoard(game.getStartPosition()));
+        assertEquals(Fen.START, copy.getBoard().getFen());
+        for (int move : game.getMoves()) {
+            copy.makeMove(move);
+        }
+        assertEquals(game.getBoard().getFen(), copy.getBoard().getFen());
+        assertEquals(1, copy.getPlayer1Score());
+        assertTrue(copy.takeBack());
+        assertEquals(0, copy.getPlayer1Score());
+    }
+
+    private static Game gameFrom(String fen) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return new Game(new GameBoard(position));
+    }
+}
@@ -0,0 +1,130 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.OpeningBook;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.San;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks building an opening book from games and looking moves up in it.
+ */
+public class OpeningBookTest {
+
+    private static final String GAMES =
+            "1. e4 e5 2. Nf3 Nc6 1-0\n"
+            + "1. e4 c5 2. Nf3 d6 1/2-1/2\n"
+            + "1. d4 d5 0-1\n"
+            + "1. e4 e5 2. Nf3 Nf6 *\n"
+            + "1. e4 e5 2. Nf3 Nc6 1-0\n";
+
+    @Test
+    public void toBookMove_usesPolyglotEncoding() throws Exception {
+        Position position = new Position();
+        Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1", position);
+        San san = new San();
+        assertEquals(0x31C, OpeningBook.toBookMove(move(Fen.START, "e4")));
+        // Castling is written as the king taking its own rook: e1h1 and e1a1
+        assertEquals(7 | 4 << 6, OpeningBook.toBookMove(san.parse(position, "O-O")));
+        assertEquals(4 << 6, OpeningBook.toBookMove(san.parse(position, "O-O-O")));
+    }
+
+    @Test
+    public void polyglotKey_matchesPublishedKeys() throws Exception {
+        // The examples from Polyglot's book format
+        String[] fens = {
+                Fen.START,
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1",
+                "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2",
+                "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3",
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3",
+                "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4",
+                "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3",
+                "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4"
+        };
+        long[] keys = {
+                0x463b96181691fc9cL, 0x823c9b50fd114196L, 0x0756b94461c50fb0L,
+                0x662fafb965db29d4L, 0x22a48b5a8e47ff78L, 0x652a607ca3f242c1L,
+                0x00fdd303c946bdd9L, 0x3c8123ea7b067637L, 0x5c3f9b829b279560L
+        };
+        Position position = new Position();
+        for (int i = 0; i < fens.length; i++) {
+            Fen.parse(fens[i], position);
+            assertEquals(fens[i], keys[i], OpeningBook.polyglotKey(position));
+        }
+        // The en passant square after e4 doesn't count, with no black pawn to take
+        position.setStartPosition();
+        position.makeMove(move(Fen.START, "e4"));
+        assertEquals(0x823c9b50fd114196L, OpeningBook.polyglotKey(position));
+    }
+
+    @Test
+    public void book_weighsMovesByResults() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4);
+        builder.addGames(reader(GAMES));
+        OpeningBook book = new OpeningBook(builder.build());
+
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int[] weights = new int[MoveGenerator.MAX_MOVES];
+        Position position = new Position();
+        position.setStartPosition();
+        // e4 won twice and drew once, d4 lost and isn't in the book
+        assertEquals(1, book.getMoves(position, moves, weights));
+        assertEquals("e2e4", Move.toString(moves[0]));
+        assertEquals(5, weights[0]);
+
+        // After 1. e4, e5 lost twice and c5 drew
+        position.makeMove(moves[0]);
+        assertEquals(1, book.getMoves(position, moves, weights));
+        assertEquals("c7c5", Move.toString(moves[0]));
+        assertEquals(1, weights[0]);
+
+        // Past the depth of the book
+        Fen.parse("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3", position);
+        assertEquals(0, book.getMoves(position, moves, weights));
+        assertEquals(Move.NONE, book.pickMove(position, new Random(1), moves, weights));
+    }
+
+    @Test
+    public void openedBook_findsMoves() throws Exception {
+        OpeningBookBuilder builder = new OpeningBookBuilder(4);
+        builder.addGames(reader(GAMES));
+        File file = File.createTempFile("book", ".bin");
+        try {
+            builder.write(file);
+            OpeningBook book = OpeningBook.open(file);
+            assertEquals(file.length() / OpeningBook.ENTRY_SIZE, book.getEntryCount());
+
+            Position position = new Position();
+            Fen.parse("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2", position);
+            int move = book.pickMove(position, new Random(1),
+                    new int[MoveGenerator.MAX_MOVES], new int[MoveGenerator.MAX_MOVES]);
+            assertEquals("g1f3", Move.toString(move));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static int move(String fen, String san) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return new San().parse(position, san);
+    }
+
+    private static PgnReader reader(String text) {
+        return new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(Charset.forName("ISO-8859-1")))));
+    }
+}
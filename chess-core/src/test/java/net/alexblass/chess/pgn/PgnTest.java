@@ -0,0 +1,160 @@
+package net.alexblass.chess.pgn;
+
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.GameBoard;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks reading PGN games through the board and writing them back out.
+ */
+public class PgnTest {
+
+    private static final String GAMES =
+            "[Event \"Paris\"]\n"
+            + "[White \"Morphy, Paul\"]\n"
+            + "[Black \"Duke Karl / Count Isouard\"]\n"
+            + "[Result \"1-0\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Nf3 d6 3. d4 Bg4 {This is a weak move} 4. dxe5 Bxf3 5. Qxf3 dxe5\n"
+            + "6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 10. Nxb5 cxb5 11. Bxb5+ Nbd7\n"
+            + "12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8\n"
+            + "17. Rd8# 1-0\n"
+            + "\n"
+            + "[Event \"Variations\"]\n"
+            + "[SetUp \"1\"]\n"
+            + "[FEN \"4k3/8/8/8/8/8/4P3/4K3 w - - 0 1\"]\n"
+            + "\n"
+            + "1. e4 (1. e3 Kd7 (1... Ke7 $1) 2. e4) 1... Kd7 ; a comment\n"
+            + "2. e5 *\n"
+            + "\n"
+            + "[Event \"Broken\"]\n"
+            + "\n"
+            + "1. e4 e5 2. Ke3 Nc6 1/2-1/2\n"
+            + "\n"
+            + "1. d4 d5\n";
+
+    @Test
+    public void read_playsEveryGame() throws Exception {
+        Recorder recorder = new Recorder();
+        PgnReader reader = reader(GAMES);
+        assertEquals(4, reader.readAll(recorder));
+
+        assertEquals(4, recorder.mResults.size());
+        assertEquals("1-0", recorder.mResults.get(0));
+        assertEquals("Morphy, Paul", recorder.mTags.get("White"));
+        assertEquals(33 + 3 + 2 + 2, recorder.mMoves);
+        assertTrue(recorder.mComments.contains("This is a weak move"));
+        assertTrue(recorder.mComments.contains(" a comment"));
+
+        // Variations are played from before the move they replace
+        assertEquals(4, recorder.mVariationMoves);
+        assertEquals(2, recorder.mMaxDepth);
+
+        // The illegal king move stops the third game but not the fourth
+        assertEquals(1, recorder.mErrors.size());
+        assertTrue(recorder.mErrors.get(0).contains("Ke3"));
+        assertEquals("*", recorder.mResults.get(3));
+        assertEquals("rnbqkbnr/ppp1pppp/8/3p4/3P4/8/PPP1PPPP/RNBQKBNR w KQkq - 0 2",
+                recorder.mLastFen);
+    }
+
+    @Test
+    public void write_readsBackTheSameGame() throws Exception {
+        final List<Integer> moves = new ArrayList<>();
+        final Position[] start = new Position[1];
+        PgnReader reader = reader(GAMES);
+        reader.readGame(new PgnVisitor() {
+            @Override
+            public void onMove(GameBoard board, int move) {
+                if (start[0] == null) {
+                    start[0] = new Position(board.getPosition());
+                    start[0].unmakeMove();
+                }
+                moves.add(move);
+            }
+        });
+
+        int[] played = new int[moves.size()];
+        for (int i = 0; i < played.length; i++) {
+            played[i] = moves.get(i);
+        }
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("White", "Morphy, Paul");
+        tags.put("Annotator", "\"Anon\"");
+        StringWriter text = new StringWriter();
+        new PgnWriter(text).write(start[0], played, tags, "1-0");
+
+        String pgn = text.toString();
+        assertTrue(pgn.startsWith("[Event \"?\"]\n[Site \"?\"]\n[Date \"????.??.??\"]\n"));
+        assertTrue(pgn.contains("[Annotator \"\\\"Anon\\\"\"]"));
+        assertTrue(pgn.contains("11. Bxb5+ Nbd7 12. O-O-O"));
+        assertTrue(pgn.contains("17. Rd8# 1-0"));
+
+        Recorder recorder = new Recorder();
+        assertEquals(1, reader(pgn).readAll(recorder));
+        assertEquals(played.length, recorder.mMoves);
+        assertTrue(recorder.mErrors.isEmpty());
+        assertEquals("\"Anon\"", recorder.mTags.get("Annotator"));
+    }
+
+    private static PgnReader reader(String text) {
+        return new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(Charset.forName("ISO-8859-1")))));
+    }
+
+    // Keeps what the reader reports
+    private static class Recorder extends PgnVisitor {
+        final Map<String, String> mTags = new LinkedHashMap<>();
+        final List<String> mComments = new ArrayList<>();
+        final List<String> mErrors = new ArrayList<>();
+        final List<String> mResults = new ArrayList<>();
+        int mMoves;
+        int mVariationMoves;
+        int mMaxDepth;
+        String mLastFen;
+
+        @Override
+        public void onTag(CharSequence name, CharSequence value) {
+            mTags.put(name.toString(), value.toString());
+        }
+
+        @Override
+        public void onMove(GameBoard board, int move) {
+            mMoves++;
+            mLastFen = board.getFen();
+        }
+
+        @Override
+        public void onVariationMove(Position position, int move, int depth) {
+            mVariationMoves++;
+            mMaxDepth = Math.max(mMaxDepth, depth);
+        }
+
+        @Override
+        public void onComment(CharSequence comment) {
+            mComments.add(comment.toString());
+        }
+
+        @Override
+        public void onError(String message) {
+            mErrors.add(message);
+        }
+
+        @Override
+        public void onGameEnd(CharSequence result) {
+            mResults.add(result.toString());
+        }
+    }
+}
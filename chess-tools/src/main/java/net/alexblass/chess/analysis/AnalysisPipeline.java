@@ -0,0 +1,413 @@
+package net.alexblass.chess.analysis;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.Search;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.engine.SearchResult;
+import net.alexblass.chess.engine.TranspositionTable;
+import net.alexblass.chess.models.GameBoard;
+import net.alexblass.chess.pgn.PgnReader;
+import net.alexblass.chess.pgn.PgnVisitor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyses every position of every game in a PGN file.
+ *
+ * Games are read on their own thread and each position is handed to a pool of worker
+ * threads, each with its own board, search and transposition table, so they share
+ * nothing while they search. The results are written on the calling thread in the
+ * order the positions were read, whatever order they finish in, with one line for
+ * each move (see AnalysisWriter).
+ *
+ * At most a fixed number of positions are in flight at once, read but not written yet.
+ * When the workers or the writer fall behind, reading waits for them, so memory use
+ * stays the same however large the file is. Each position gets the same search limits.
+ */
+
+public class AnalysisPipeline {
+
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    private static final int DEFAULT_BLUNDER_THRESHOLD = 200;
+    private static final long DEFAULT_PROGRESS_INTERVAL_NANOS = 1000000000L;
+
+    // Told about progress from the writing thread, every so often and at the end
+    public interface Listener {
+        void onProgress(AnalysisPipeline pipeline);
+    }
+
+    private final int mThreads;
+    private final SearchLimits mLimits;
+    private int mHashMegabytes = DEFAULT_HASH_MEGABYTES;
+    private int mMaxPending;
+    private int mBlunderThreshold = DEFAULT_BLUNDER_THRESHOLD;
+    private Listener mListener;
+    private long mProgressIntervalNanos = DEFAULT_PROGRESS_INTERVAL_NANOS;
+
+    // Progress, counted as positions are written
+    private final AtomicLong mGames = new AtomicLong();
+    private final AtomicLong mPositions = new AtomicLong();
+    private final AtomicLong mNodes = new AtomicLong();
+    private final AtomicLong mSkippedGames = new AtomicLong();
+    private volatile long mBlunders;
+    private volatile long mStartNanos;
+
+    // Thrown out of the PGN reader when the writer gave up and interrupted reading
+    private static final class ReadCancelled extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    // Results waiting to be written, each at its sequence number modulo the size
+    private AnalysisTask[] mFinished;
+    private long mReadCount = -1;
+    private IOException mFailure;
+
+    // Search positions with the limits on this many threads at once
+    public AnalysisPipeline(int threads, SearchLimits limits) {
+        mThreads = Math.max(1, threads);
+        mLimits = limits;
+        mMaxPending = mThreads * 4;
+    }
+
+    // The size of each worker's transposition table
+    public AnalysisPipeline setHashMegabytes(int megabytes) {
+        this.mHashMegabytes = megabytes;
+        return this;
+    }
+
+    // How many positions may be read before the ones ahead of them are written
+    public AnalysisPipeline setMaxPending(int maxPending) {
+        this.mMaxPending = Math.max(1, maxPending);
+        return this;
+    }
+
+    // How many centipawns a move has to lose against the best move to be a blunder
+    public AnalysisPipeline setBlunderThreshold(int centipawns) {
+        this.mBlunderThreshold = centipawns;
+        return this;
+    }
+
+    public AnalysisPipeline setListener(Listener listener, long intervalMillis) {
+        this.mListener = listener;
+        this.mProgressIntervalNanos = intervalMillis * 1000000L;
+        return this;
+    }
+
+    public long getGameCount() {
+        return mGames.get();
+    }
+
+    public long getPositionCount() {
+        return mPositions.get();
+    }
+
+    public long getNodeCount() {
+        return mNodes.get();
+    }
+
+    // Games left out because a move couldn't be read
+    public long getSkippedGameCount() {
+        return mSkippedGames.get();
+    }
+
+    public long getBlunderCount() {
+        return mBlunders;
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - mStartNanos;
+    }
+
+    public long getPositionsPerSecond() {
+        long nanos = getElapsedNanos();
+        return nanos == 0 ? 0 : (long) (getPositionCount() * 1e9 / nanos);
+    }
+
+    @Override
+    public String toString() {
+        long seconds = Math.max(1, getElapsedNanos() / 1000000000L);
+        return getGameCount() + " games, " + getPositionCount() + " positions, "
+                + getBlunderCount() + " blunders in " + seconds + " s ("
+                + getPositionsPerSecond() + " positions/s, "
+                + getNodeCount() / seconds + " nodes/s)";
+    }
+
+    // Analyse every game the reader has left and write the results. Returns when
+    // they're all written.
+    public void run(final PgnReader reader, Writer out) throws IOException {
+        mStartNanos = System.nanoTime();
+        mFinished = new AnalysisTask[mMaxPending];
+        mReadCount = -1;
+        mFailure = null;
+        final Semaphore pending = new Semaphore(mMaxPending);
+        final BlockingQueue<AnalysisTask> queue = new ArrayBlockingQueue<>(mMaxPending + mThreads);
+
+        Thread[] workers = new Thread[mThreads];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(queue);
+                }
+            }, "analysis-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        Thread readThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read(reader, pending, queue);
+            }
+        }, "analysis-reader");
+        readThread.setDaemon(true);
+        readThread.start();
+
+        AnalysisWriter writer = new AnalysisWriter(out, mBlunderThreshold);
+        boolean finished = false;
+        try {
+            writer.writeHeader();
+            long nextReport = System.nanoTime() + mProgressIntervalNanos;
+            for (long sequence = 0; ; sequence++) {
+                AnalysisTask task = takeFinished(sequence);
+                if (task == null) {
+                    break;
+                }
+                writer.write(task);
+                pending.release();
+                mPositions.incrementAndGet();
+                mNodes.addAndGet(task.mResult.getNodes());
+                if (task.isLast()) {
+                    mGames.incrementAndGet();
+                }
+                mBlunders = writer.getBlunderCount();
+                if (mListener != null && System.nanoTime() > nextReport) {
+                    nextReport = System.nanoTime() + mProgressIntervalNanos;
+                    mListener.onProgress(this);
+                }
+            }
+            out.flush();
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Analysis interrupted", e);
+        } finally {
+            if (!finished) {
+                readThread.interrupt();
+            }
+            for (Thread worker : workers) {
+                worker.interrupt();
+            }
+        }
+        if (mListener != null) {
+            mListener.onProgress(this);
+        }
+    }
+
+    // The task with the sequence number once it's finished, or null if reading ended
+    // before it
+    private AnalysisTask takeFinished(long sequence) throws IOException, InterruptedException {
+        AnalysisTask[] finished = mFinished;
+        int slot = (int) (sequence % finished.length);
+        synchronized (finished) {
+            while (finished[slot] == null) {
+                if (mFailure != null) {
+                    throw mFailure;
+                }
+                if (mReadCount == sequence) {
+                    return null;
+                }
+                finished.wait();
+            }
+            AnalysisTask task = finished[slot];
+            finished[slot] = null;
+            return task;
+        }
+    }
+
+    // Read the games, handing out a task for each position
+    private void read(PgnReader reader, final Semaphore pending,
+            final BlockingQueue<AnalysisTask> queue) {
+        final long[] sequence = new long[1];
+        PgnVisitor visitor = new PgnVisitor() {
+            private Position mStart;
+            private int[] mMoves = new int[256];
+            private int mLength;
+            private boolean mValid;
+            private long mNumber;
+
+            @Override
+            public void onGameStart() {
+                // Each game keeps its own start, the tasks still use it after reading
+                mStart = new Position();
+                mStart.setStartPosition();
+                mLength = 0;
+                mValid = true;
+                mNumber++;
+            }
+
+            @Override
+            public void onTag(CharSequence name, CharSequence value) {
+                if (!"FEN".contentEquals(name)) {
+                    return;
+                }
+                try {
+                    Fen.parse(value, mStart);
+                } catch (IllegalArgumentException e) {
+                    mValid = false;
+                }
+            }
+
+            @Override
+            public void onMove(GameBoard board, int move) {
+                if (mLength == mMoves.length) {
+                    mMoves = Arrays.copyOf(mMoves, mLength * 2);
+                }
+                mMoves[mLength++] = move;
+            }
+
+            @Override
+            public void onError(String message) {
+                mValid = false;
+            }
+
+            @Override
+            public void onGameEnd(CharSequence result) {
+                // A game with no moves still has its start position to analyse
+                if (!mValid) {
+                    mSkippedGames.incrementAndGet();
+                    return;
+                }
+                AnalysisTask.Game game = new AnalysisTask.Game(mNumber, mStart,
+                        Arrays.copyOf(mMoves, mLength));
+                try {
+                    for (int ply = 0; ply <= mLength; ply++) {
+                        pending.acquire();
+                        queue.put(new AnalysisTask(game, ply, sequence[0]++));
+                    }
+                } catch (InterruptedException e) {
+                    throw new ReadCancelled();
+                }
+            }
+        };
+
+        IOException failure = null;
+        try {
+            reader.readAll(visitor);
+        } catch (ReadCancelled e) {
+            // The writer gave up, so nothing is waiting for the rest
+            return;
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            // Anything else ends the run with a failure rather than leaving it waiting
+            failure = new IOException("Reading failed", e);
+        }
+        synchronized (mFinished) {
+            if (failure != null) {
+                mFailure = failure;
+            }
+            mReadCount = sequence[0];
+            mFinished.notifyAll();
+        }
+        for (int i = 0; i < mThreads; i++) {
+            // There's always room, since only mMaxPending tasks are handed out at once
+            queue.offer(AnalysisTask.END);
+        }
+    }
+
+    // Search positions until there are no more
+    private void work(BlockingQueue<AnalysisTask> queue) {
+        Search search = new Search(new TranspositionTable(mHashMegabytes));
+        Position board = new Position();
+        AnalysisTask[] finished = mFinished;
+        try {
+            while (true) {
+                AnalysisTask task = queue.take();
+                if (task == AnalysisTask.END) {
+                    return;
+                }
+                task.setUp(board);
+                SearchResult result = search.search(board, mLimits);
+                synchronized (finished) {
+                    task.mResult = result;
+                    finished[(int) (task.mSequence % finished.length)] = task;
+                    finished.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Stopped early
+        } catch (RuntimeException e) {
+            synchronized (finished) {
+                mFailure = new IOException("Analysis failed", e);
+                finished.notifyAll();
+            }
+        }
+    }
+
+    // Usage: AnalysisPipeline <pgn file> <output file> [-depth n] [-nodes n]
+    //        [-movetime ms] [-threads n] [-hash mb] [-blunder cp]
+    public static void main(String[] args) throws IOException {
+        SearchLimits limits = new SearchLimits().setDepth(8);
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = DEFAULT_HASH_MEGABYTES;
+        int blunder = DEFAULT_BLUNDER_THRESHOLD;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            long value = Long.parseLong(args[i + 1]);
+            switch (args[i]) {
+                case "-depth":
+                    limits.setDepth((int) value);
+                    break;
+                case "-nodes":
+                    limits.setNodes(value);
+                    break;
+                case "-movetime":
+                    limits.setTimeMillis(value);
+                    break;
+                case "-threads":
+                    threads = (int) value;
+                    break;
+                case "-hash":
+                    hash = (int) value;
+                    break;
+                case "-blunder":
+                    blunder = (int) value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        AnalysisPipeline pipeline = new AnalysisPipeline(threads, limits)
+                .setHashMegabytes(hash)
+                .setBlunderThreshold(blunder)
+                .setListener(new Listener() {
+                    @Override
+                    public void onProgress(AnalysisPipeline pipeline) {
+                        System.err.println(pipeline);
+                    }
+                }, 5000);
+        PgnReader reader = PgnReader.open(new File(args[0]));
+        Writer out = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(args[1]), "UTF-8"));
+        try {
+            pipeline.run(reader, out);
+        } finally {
+            reader.close();
+            out.close();
+        }
+        if (pipeline.getSkippedGameCount() > 0) {
+            System.err.println(pipeline.getSkippedGameCount() + " games couldn't be read");
+        }
+    }
+}
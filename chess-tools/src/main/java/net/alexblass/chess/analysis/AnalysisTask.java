@@ -0,0 +1,56 @@
+package net.alexblass.chess.analysis;
+
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchResult;
+
+/**
+ * One position of one game waiting to be analysed, and the result once it has been.
+ */
+
+final class AnalysisTask {
+
+    // The moves of a game, shared by the tasks for each of its positions
+    static final class Game {
+        final long mNumber;
+        final Position mStart;
+        final int[] mMoves;
+
+        Game(long number, Position start, int[] moves) {
+            mNumber = number;
+            mStart = start;
+            mMoves = moves;
+        }
+    }
+
+    // Tells the workers there are no more tasks
+    static final AnalysisTask END = new AnalysisTask(null, 0, -1);
+
+    final Game mGame;
+
+    // The position after this many moves of the game
+    final int mPly;
+
+    // Where the task comes in the output
+    final long mSequence;
+
+    SearchResult mResult;
+
+    AnalysisTask(Game game, int ply, long sequence) {
+        mGame = game;
+        mPly = ply;
+        mSequence = sequence;
+    }
+
+    // Whether this is the position after the game's last move
+    boolean isLast() {
+        return mPly == mGame.mMoves.length;
+    }
+
+    // Set up the position on a board, with the moves before it so repetitions count
+    void setUp(Position board) {
+        board.copyFrom(mGame.mStart);
+        for (int i = 0; i < mPly; i++) {
+            board.makeMove(mGame.mMoves[i]);
+        }
+    }
+}
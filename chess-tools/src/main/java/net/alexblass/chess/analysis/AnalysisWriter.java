@@ -0,0 +1,110 @@
+package net.alexblass.chess.analysis;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.San;
+import net.alexblass.chess.engine.SearchResult;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes analysed positions as tab separated lines, one for each move played.
+ *
+ * A move's line needs the analysis of the positions before and after it: the score
+ * after the move, turned round to the side that played it, against the score of the
+ * best move shows how much the move lost. Tasks must come in game order.
+ */
+
+final class AnalysisWriter {
+
+    static final String HEADER = "game\tply\tmove\tbest\teval\tplayed\tloss\tflag\n";
+
+    // Scores are capped at this when working out how much a move lost, so missing a
+    // mate costs the same as losing a lot of material
+    private static final int SCORE_CAP = 1000;
+
+    private final Writer mOut;
+    private final int mBlunderThreshold;
+
+    private final San mSan = new San();
+    private final Position mBoard = new Position();
+    private final StringBuilder mLine = new StringBuilder(64);
+
+    // The position before the next move, waiting for the one after it
+    private AnalysisTask mPrevious;
+
+    private long mBlunders;
+
+    AnalysisWriter(Writer out, int blunderThreshold) {
+        mOut = out;
+        mBlunderThreshold = blunderThreshold;
+    }
+
+    void writeHeader() throws IOException {
+        mOut.write(HEADER);
+    }
+
+    void write(AnalysisTask task) throws IOException {
+        if (task.mPly == 0) {
+            mBoard.copyFrom(task.mGame.mStart);
+            mPrevious = null;
+        }
+        if (mPrevious != null && mPrevious.mGame == task.mGame) {
+            writeMove(mPrevious, task);
+        }
+        mPrevious = task.isLast() ? null : task;
+    }
+
+    long getBlunderCount() {
+        return mBlunders;
+    }
+
+    private void writeMove(AnalysisTask before, AnalysisTask after) throws IOException {
+        int move = before.mGame.mMoves[before.mPly];
+        int mover = mBoard.getSideToMove();
+        int bestScore = cap(before.mResult.getScore());
+        int playedScore = -cap(after.mResult.getScore());
+        int loss = Math.max(0, bestScore - playedScore);
+
+        StringBuilder line = mLine;
+        line.setLength(0);
+        line.append(before.mGame.mNumber).append('\t').append(before.mPly + 1).append('\t');
+        mSan.write(mBoard, move, line);
+        line.append('\t');
+        int best = before.mResult.getBestMove();
+        if (best == Move.NONE) {
+            line.append('-');
+        } else {
+            mSan.write(mBoard, best, line);
+        }
+        line.append('\t');
+        appendScore(line, before.mResult, mover);
+        line.append('\t');
+        appendScore(line, after.mResult, Pieces.opposite(mover));
+        line.append('\t').append(loss).append('\t');
+        if (loss >= mBlunderThreshold) {
+            line.append("??");
+            mBlunders++;
+        }
+        line.append('\n');
+        mOut.append(line);
+
+        mBoard.makeMove(move);
+    }
+
+    // The score from white's side, in centipawns or as "#3" for mate in 3 moves
+    private static void appendScore(StringBuilder line, SearchResult result, int sideToMove) {
+        int sign = sideToMove == Pieces.WHITE ? 1 : -1;
+        if (result.isMateScore()) {
+            line.append('#').append(sign * result.getMateIn());
+        } else {
+            line.append(sign * result.getScore());
+        }
+    }
+
+    private static int cap(int score) {
+        return Math.max(-SCORE_CAP, Math.min(SCORE_CAP, score));
+    }
+}
@@ -0,0 +1,398 @@
+package net.alexblass.chess.sessions;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.PositionCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Many games being played at once, each kept in a fixed SLOT_SIZE bytes rather than as
+ * objects, so a single JVM can hold hundreds of thousands of them.
+ *
+ * A slot is laid out as:
+ * - bytes 0-31: the position (see PositionCodec)
+ * - bytes 32-35: the generation, changed each time the slot is reused
+ * - bytes 36-37: the number of moves played, up to 65535
+ * - byte 38: the status, or FREE for an unused slot
+ * - byte 39: how many keys follow
+ * - bytes 40-103: the low 32 bits of the keys of the positions since the last capture
+ *   or pawn move, oldest first, up to REPETITION_KEYS of them
+ *
+ * Slots are stored in pages of bytes that are added as the games grow in number. A game
+ * id is the slot's generation and index together, so the id of a finished game that's
+ * been closed doesn't reach the game that reuses its slot.
+ *
+ * Games are locked in stripes by slot, so moves in games of different stripes are made
+ * at the same time. Each stripe has a position and move generator to make moves with,
+ * used only under its lock, rather than one for each game or thread. The locks are
+ * ReentrantLocks rather than monitors, so a virtual thread waiting for one unmounts
+ * instead of pinning its carrier thread.
+ *
+ * Repetitions are found among the last REPETITION_KEYS positions, which covers the
+ * repetitions that happen in practice while keeping the slot small. The keys are cut to
+ * 32 bits, so two different positions might very rarely be taken for a repetition.
+ */
+
+public class GameSessions {
+
+    // The status of a game
+    public static final int IN_PROGRESS = 0;
+    public static final int CHECKMATE = 1;
+    public static final int STALEMATE = 2;
+    public static final int REPETITION = 3;
+    public static final int FIFTY_MOVE_RULE = 4;
+    public static final int INSUFFICIENT_MATERIAL = 5;
+
+    // Returned by play() for moves it doesn't make
+    public static final int ILLEGAL_MOVE = -1;
+    public static final int NO_GAME = -2;
+
+    static final int REPETITION_KEYS = 16;
+
+    // The slot layout
+    private static final int GENERATION_OFFSET = PositionCodec.SIZE;
+    private static final int PLY_OFFSET = GENERATION_OFFSET + 4;
+    private static final int STATUS_OFFSET = PLY_OFFSET + 2;
+    private static final int KEY_COUNT_OFFSET = STATUS_OFFSET + 1;
+    private static final int KEYS_OFFSET = KEY_COUNT_OFFSET + 1;
+    public static final int SLOT_SIZE = KEYS_OFFSET + REPETITION_KEYS * 4;
+
+    private static final int FREE = 0xFF;
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_SLOTS = 1 << PAGE_SHIFT;
+
+    private static final int DEFAULT_STRIPES = 256;
+
+    // What each stripe needs to make moves, used under the stripe's lock
+    private static final class Stripe {
+        final ReentrantLock mLock = new ReentrantLock();
+        final Position mPosition = new Position();
+        final MoveGenerator mGenerator = new MoveGenerator();
+        final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+    }
+
+    private final Stripe[] mStripes;
+    private final int mStripeMask;
+
+    // Only added to, under mAllocationLock, and replaced rather than changed so
+    // other threads can read it without the lock
+    private volatile byte[][] mPages = new byte[0][];
+
+    // Guards the fields below
+    private final ReentrantLock mAllocationLock = new ReentrantLock();
+    private int mSlotCount;
+    private int[] mFreeSlots = new int[64];
+    private int mFreeCount;
+    private int mGameCount;
+    private int mNextGeneration = 1;
+
+    public GameSessions() {
+        this(DEFAULT_STRIPES);
+    }
+
+    // Lock games in this many stripes, rounded up to a power of 2
+    public GameSessions(int stripes) {
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        mStripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            mStripes[i] = new Stripe();
+        }
+        mStripeMask = count - 1;
+    }
+
+    int getStripeCount() {
+        return mStripes.length;
+    }
+
+    // Start a game from the start position and return its id
+    public long create() {
+        return create(null);
+    }
+
+    // Start a game from the position, or the start position if it's null, and return
+    // its id. The position's history is left behind.
+    public long create(Position start) {
+        int slot;
+        int generation;
+        mAllocationLock.lock();
+        try {
+            slot = mFreeCount > 0 ? mFreeSlots[--mFreeCount] : mSlotCount++;
+            if ((slot >> PAGE_SHIFT) == mPages.length) {
+                byte[][] pages = Arrays.copyOf(mPages, mPages.length + 1);
+                byte[] page = new byte[PAGE_SLOTS * SLOT_SIZE];
+                for (int i = 0; i < PAGE_SLOTS; i++) {
+                    page[i * SLOT_SIZE + STATUS_OFFSET] = (byte) FREE;
+                }
+                pages[pages.length - 1] = page;
+                mPages = pages;
+            }
+            generation = mNextGeneration++ & 0x7FFFFFFF;
+            mGameCount++;
+        } finally {
+            mAllocationLock.unlock();
+        }
+
+        Stripe stripe = mStripes[slot & mStripeMask];
+        byte[] page = mPages[slot >> PAGE_SHIFT];
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        stripe.mLock.lock();
+        try {
+            Position position = stripe.mPosition;
+            if (start == null) {
+                Fen.parse(Fen.START, position);
+            } else {
+                position.copyFrom(start);
+            }
+            encode(position, page, offset);
+            putInt(page, offset + GENERATION_OFFSET, generation);
+            putShort(page, offset + PLY_OFFSET, 0);
+            page[offset + KEY_COUNT_OFFSET] = 1;
+            putInt(page, offset + KEYS_OFFSET, (int) position.getKey());
+            page[offset + STATUS_OFFSET] = (byte) status(stripe, position);
+        } finally {
+            stripe.mLock.unlock();
+        }
+        return ((long) generation << 32) | slot;
+    }
+
+    // Make a move in the game, given by its squares and, for a pawn reaching the last
+    // row, the type it's promoted to. Returns the game's status after the move, or
+    // ILLEGAL_MOVE or NO_GAME if it isn't made.
+    public int play(long id, int from, int to, int promotion) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return NO_GAME;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        Stripe stripe = mStripes[slot & mStripeMask];
+        stripe.mLock.lock();
+        try {
+            if (!isGame(page, offset, id)) {
+                return NO_GAME;
+            }
+            if ((page[offset + STATUS_OFFSET] & 0xFF) != IN_PROGRESS) {
+                return ILLEGAL_MOVE;
+            }
+            Position position = stripe.mPosition;
+            PositionCodec.decode(page, offset, position);
+            int move = stripe.mGenerator.findMove(position, from, to, promotion, stripe.mMoves);
+            if (move == Move.NONE) {
+                return ILLEGAL_MOVE;
+            }
+            position.makeMove(move);
+            encode(position, page, offset);
+            int ply = getShort(page, offset + PLY_OFFSET);
+            putShort(page, offset + PLY_OFFSET, Math.min(0xFFFF, ply + 1));
+
+            int status = status(stripe, position);
+            int key = (int) position.getKey();
+            int count = position.getHalfmoveClock() == 0 ? 0 : page[offset + KEY_COUNT_OFFSET];
+            if (status == IN_PROGRESS && isThreefold(page, offset + KEYS_OFFSET, count, key)) {
+                status = REPETITION;
+            }
+            if (count == REPETITION_KEYS) {
+                System.arraycopy(page, offset + KEYS_OFFSET + 4, page, offset + KEYS_OFFSET,
+                        (REPETITION_KEYS - 1) * 4);
+                count--;
+            }
+            putInt(page, offset + KEYS_OFFSET + count * 4, key);
+            page[offset + KEY_COUNT_OFFSET] = (byte) (count + 1);
+            page[offset + STATUS_OFFSET] = (byte) status;
+            return status;
+        } finally {
+            stripe.mLock.unlock();
+        }
+    }
+
+    // Put the game's position into the one given. Returns false if there's no such game.
+    public boolean getPosition(long id, Position position) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return false;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        ReentrantLock lock = mStripes[slot & mStripeMask].mLock;
+        lock.lock();
+        try {
+            if (!isGame(page, offset, id)) {
+                return false;
+            }
+            PositionCodec.decode(page, offset, position);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The legal moves in the game, written to the array, and how many there are. 0 if
+    // there's no such game or it's over.
+    public int getLegalMoves(long id, int[] moves) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return 0;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        Stripe stripe = mStripes[slot & mStripeMask];
+        stripe.mLock.lock();
+        try {
+            if (!isGame(page, offset, id)
+                    || (page[offset + STATUS_OFFSET] & 0xFF) != IN_PROGRESS) {
+                return 0;
+            }
+            PositionCodec.decode(page, offset, stripe.mPosition);
+            return stripe.mGenerator.generate(stripe.mPosition, moves, MoveGenerator.ALL);
+        } finally {
+            stripe.mLock.unlock();
+        }
+    }
+
+    // The game's status, or NO_GAME if there's no such game
+    public int getStatus(long id) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return NO_GAME;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        ReentrantLock lock = mStripes[slot & mStripeMask].mLock;
+        lock.lock();
+        try {
+            return isGame(page, offset, id) ? page[offset + STATUS_OFFSET] & 0xFF : NO_GAME;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The number of moves played in the game, or -1 if there's no such game
+    public int getPly(long id) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return -1;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        ReentrantLock lock = mStripes[slot & mStripeMask].mLock;
+        lock.lock();
+        try {
+            return isGame(page, offset, id) ? getShort(page, offset + PLY_OFFSET) : -1;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // End the game and free its slot for another. Returns false if there's no such game.
+    public boolean close(long id) {
+        int slot = (int) id;
+        byte[] page = page(slot);
+        if (page == null) {
+            return false;
+        }
+        int offset = (slot & (PAGE_SLOTS - 1)) * SLOT_SIZE;
+        ReentrantLock lock = mStripes[slot & mStripeMask].mLock;
+        lock.lock();
+        try {
+            if (!isGame(page, offset, id)) {
+                return false;
+            }
+            page[offset + STATUS_OFFSET] = (byte) FREE;
+        } finally {
+            lock.unlock();
+        }
+        mAllocationLock.lock();
+        try {
+            if (mFreeCount == mFreeSlots.length) {
+                mFreeSlots = Arrays.copyOf(mFreeSlots, mFreeCount * 2);
+            }
+            mFreeSlots[mFreeCount++] = slot;
+            mGameCount--;
+        } finally {
+            mAllocationLock.unlock();
+        }
+        return true;
+    }
+
+    public int getGameCount() {
+        mAllocationLock.lock();
+        try {
+            return mGameCount;
+        } finally {
+            mAllocationLock.unlock();
+        }
+    }
+
+    // The bytes held for games, including free slots
+    public long getStorageBytes() {
+        return (long) mPages.length * PAGE_SLOTS * SLOT_SIZE;
+    }
+
+    // The page holding the slot, or null if it's never been used
+    private byte[] page(int slot) {
+        byte[][] pages = mPages;
+        int index = slot >> PAGE_SHIFT;
+        return slot >= 0 && index < pages.length ? pages[index] : null;
+    }
+
+    private static boolean isGame(byte[] page, int offset, long id) {
+        return (page[offset + STATUS_OFFSET] & 0xFF) != FREE
+                && getInt(page, offset + GENERATION_OFFSET) == (int) (id >>> 32);
+    }
+
+    // Whether the key was seen twice before among the count keys, with the same side to
+    // move. The newest key is the last, for the position before this one.
+    private static boolean isThreefold(byte[] page, int keys, int count, int key) {
+        int seen = 0;
+        for (int i = count - 2; i >= 0; i -= 2) {
+            if (getInt(page, keys + i * 4) == key && ++seen == 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The status of a game that's reached the position, leaving repetitions aside
+    private static int status(Stripe stripe, Position position) {
+        if (!stripe.mGenerator.hasLegalMove(position, stripe.mMoves)) {
+            return position.isInCheck() ? CHECKMATE : STALEMATE;
+        }
+        if (position.getHalfmoveClock() >= 100) {
+            return FIFTY_MOVE_RULE;
+        }
+        return position.hasInsufficientMaterial() ? INSUFFICIENT_MATERIAL : IN_PROGRESS;
+    }
+
+    private static void encode(Position position, byte[] page, int offset) {
+        ByteBuffer buffer = ByteBuffer.wrap(page);
+        buffer.position(offset);
+        PositionCodec.encode(position, buffer);
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return (bytes[offset] << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int getShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static void putShort(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 8);
+        bytes[offset + 1] = (byte) value;
+    }
+}
@@ -0,0 +1,183 @@
+package net.alexblass.chess.sessions;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Simulates players on a SessionService to see how many games one JVM can hold and how
+ * fast it makes moves.
+ *
+ * A fixed number of games are started, then random legal moves are requested in them
+ * one after another, with many requests in flight at once. Finished games are closed and
+ * replaced, so the number of live games stays the same. The heap used per game is
+ * measured after a garbage collection, before and after the games are started.
+ */
+
+public class SessionLoadDriver {
+
+    private final SessionService mService;
+    private final int mInFlight;
+
+    // The id of the live game in each seat
+    private AtomicLongArray mGames;
+
+    private final AtomicLong mFinishedGames = new AtomicLong();
+    private final AtomicLong mFailedRequests = new AtomicLong();
+    private volatile long mHeapPerGame;
+
+    // Make requests to the service, at most this many at once
+    public SessionLoadDriver(SessionService service, int inFlight) {
+        mService = service;
+        mInFlight = Math.max(1, inFlight);
+    }
+
+    // Start the games, measuring the heap they take
+    public void start(int games) throws InterruptedException {
+        long before = usedHeap();
+        mGames = new AtomicLongArray(games);
+        final Semaphore permits = new Semaphore(mInFlight);
+        for (int i = 0; i < games; i++) {
+            permits.acquire();
+            final int seat = i;
+            mService.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        mGames.set(seat, mService.getSessions().create());
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }
+            });
+        }
+        permits.acquire(mInFlight);
+        mHeapPerGame = (usedHeap() - before) / Math.max(1, games);
+    }
+
+    // Make random moves in the games for a while, and return how many were made
+    public long run(long millis) throws InterruptedException {
+        final int games = mGames.length();
+        final Semaphore permits = new Semaphore(mInFlight);
+        long startMoves = mService.getMoveCount();
+        long deadline = System.nanoTime() + millis * 1000000L;
+        Random seats = new Random(1);
+        while (System.nanoTime() < deadline) {
+            permits.acquire();
+            final int seat = seats.nextInt(games);
+            mService.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    try {
+                        playRandomMove(seat);
+                    } finally {
+                        permits.release();
+                    }
+                    return null;
+                }
+            });
+        }
+        permits.acquire(mInFlight);
+        return mService.getMoveCount() - startMoves;
+    }
+
+    public long getHeapPerGame() {
+        return mHeapPerGame;
+    }
+
+    public long getFinishedGames() {
+        return mFinishedGames.get();
+    }
+
+    // Requests that didn't make a move, because another got to the game first
+    public long getFailedRequests() {
+        return mFailedRequests.get();
+    }
+
+    private void playRandomMove(int seat) {
+        GameSessions sessions = mService.getSessions();
+        long id = mGames.get(seat);
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = sessions.getLegalMoves(id, moves);
+        int status = GameSessions.NO_GAME;
+        if (count > 0) {
+            int move = moves[ThreadLocalRandom.current().nextInt(count)];
+            status = mService.playNow(id, Move.toString(move));
+        }
+        if (status < 0) {
+            mFailedRequests.incrementAndGet();
+        }
+        if (status != GameSessions.IN_PROGRESS && status != GameSessions.ILLEGAL_MOVE
+                && sessions.close(id)) {
+            mFinishedGames.incrementAndGet();
+            mGames.compareAndSet(seat, id, sessions.create());
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Usage: SessionLoadDriver [-games n] [-seconds n] [-inflight n] [-stripes n]
+    //        [-threads n]
+    // -threads sizes the pool used where there are no virtual threads.
+    public static void main(String[] args) throws InterruptedException {
+        int games = 100000;
+        int seconds = 10;
+        int inFlight = 1000;
+        int stripes = 256;
+        int threads = Runtime.getRuntime().availableProcessors() * 2;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "-games":
+                    games = value;
+                    break;
+                case "-seconds":
+                    seconds = value;
+                    break;
+                case "-inflight":
+                    inFlight = value;
+                    break;
+                case "-stripes":
+                    stripes = value;
+                    break;
+                case "-threads":
+                    threads = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        SessionService service = new SessionService(new GameSessions(stripes), threads);
+        SessionLoadDriver driver = new SessionLoadDriver(service, inFlight);
+        System.out.println((service.isVirtual() ? "Virtual threads" : threads + " threads")
+                + ", " + inFlight + " requests in flight, " + stripes + " stripes");
+        long start = System.nanoTime();
+        driver.start(games);
+        System.out.println(String.format("%d games started in %d ms, %d bytes of heap each"
+                        + " (%d bytes in slots)", games, (System.nanoTime() - start) / 1000000L,
+                driver.getHeapPerGame(), GameSessions.SLOT_SIZE));
+
+        start = System.nanoTime();
+        long moves = driver.run(seconds * 1000L);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d moves in %.1f s, %.0f moves/s, %d games finished,"
+                        + " %d requests failed", moves, elapsed, moves / elapsed,
+                driver.getFinishedGames(), driver.getFailedRequests()));
+        service.shutdown();
+    }
+}
@@ -0,0 +1,146 @@
+package net.alexblass.chess.sessions;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.Pieces;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Takes requests for the games in a GameSessions and runs each on a thread of its own.
+ *
+ * On a JVM with virtual threads (Java 21 and later) each request gets a new virtual
+ * thread. The stripe locks in GameSessions are ReentrantLocks, so a request waiting for
+ * one unmounts rather than pinning its carrier, and ties up no platform thread. The
+ * executor is looked up by reflection, since the module is built for older JVMs too,
+ * which get a fixed pool of platform threads instead.
+ */
+
+public class SessionService {
+
+    private final GameSessions mSessions;
+    private final ExecutorService mExecutor;
+    private final boolean mVirtual;
+
+    private final AtomicLong mMoves = new AtomicLong();
+
+    // Serve the games with a thread per request, or with a pool of this many threads
+    // where there are no virtual threads
+    public SessionService(GameSessions sessions, int poolThreads) {
+        mSessions = sessions;
+        ExecutorService executor = newVirtualThreadExecutor();
+        mVirtual = executor != null;
+        mExecutor = mVirtual ? executor : newPool(poolThreads);
+    }
+
+    public GameSessions getSessions() {
+        return mSessions;
+    }
+
+    // Whether requests run on virtual threads
+    public boolean isVirtual() {
+        return mVirtual;
+    }
+
+    // The moves made so far
+    public long getMoveCount() {
+        return mMoves.get();
+    }
+
+    // Start a game from the start position. Gives its id.
+    public Future<Long> create() {
+        return mExecutor.submit(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return mSessions.create();
+            }
+        });
+    }
+
+    // Make a move in coordinate notation, such as "e2e4" or "e7e8q". Gives the game's
+    // status after the move, or GameSessions.ILLEGAL_MOVE or GameSessions.NO_GAME.
+    public Future<Integer> play(final long id, final String move) {
+        return mExecutor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return playNow(id, move);
+            }
+        });
+    }
+
+    // End a game. Gives false if there's no such game.
+    public Future<Boolean> close(final long id) {
+        return mExecutor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mSessions.close(id);
+            }
+        });
+    }
+
+    // Run any request on the service's threads
+    public <T> Future<T> submit(Callable<T> request) {
+        return mExecutor.submit(request);
+    }
+
+    // Stop taking requests. Those already taken are still run.
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    // Make a move in coordinate notation on the calling thread
+    int playNow(long id, String move) {
+        if (move.length() < 4 || move.length() > 5) {
+            return GameSessions.ILLEGAL_MOVE;
+        }
+        int from = parseSquare(move, 0);
+        int to = parseSquare(move, 2);
+        int promotion = move.length() == 5 ? "nbrq".indexOf(move.charAt(4)) : -1;
+        if (from < 0 || to < 0 || (move.length() == 5 && promotion < 0)) {
+            return GameSessions.ILLEGAL_MOVE;
+        }
+        int status = mSessions.play(id, from, to,
+                promotion < 0 ? Pieces.QUEEN : Pieces.KNIGHT + promotion);
+        if (status >= 0) {
+            mMoves.incrementAndGet();
+        }
+        return status;
+    }
+
+    private static int parseSquare(String text, int index) {
+        int col = text.charAt(index) - 'a';
+        int row = '8' - text.charAt(index + 1);
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            return -1;
+        }
+        return Bitboards.square(row, col);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor(), or null if this JVM doesn't have it
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPool(int threads) {
+        return Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "session-" + mCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
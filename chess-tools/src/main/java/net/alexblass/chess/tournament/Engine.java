@@ -0,0 +1,27 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchLimits;
+
+/**
+ * A player in a tournament. Each engine plays one game at a time on one thread; a
+ * tournament makes a pair of engines for each thread from their factories.
+ */
+
+public interface Engine {
+
+    // Makes a new engine with the same settings, for another thread
+    interface Factory {
+        Engine create();
+    }
+
+    // The name the engine plays under in the tournament's games
+    String getName();
+
+    // Forget anything learned in the last game
+    void newGame();
+
+    // The move to play in the position within the limits. The position, with the
+    // game's moves so far, mustn't be changed.
+    int chooseMove(Position position, SearchLimits limits);
+}
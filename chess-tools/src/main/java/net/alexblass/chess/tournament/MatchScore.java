@@ -0,0 +1,114 @@
+package net.alexblass.chess.tournament;
+
+/**
+ * The wins, draws and losses of one engine against another, with the Elo difference
+ * they suggest.
+ *
+ * The Elo difference comes from the score with the logistic model, and its error
+ * margin from the spread of the game results, to 95% confidence. The likelihood of
+ * superiority (LOS) is the chance the first engine is really the stronger one, going
+ * by the wins and losses alone.
+ */
+
+public class MatchScore {
+
+    // Standard deviations either side of the mean for 95% confidence
+    private static final double Z_95 = 1.959964;
+
+    private final int mWins;
+    private final int mDraws;
+    private final int mLosses;
+
+    public MatchScore(int wins, int draws, int losses) {
+        mWins = wins;
+        mDraws = draws;
+        mLosses = losses;
+    }
+
+    public int getWins() {
+        return mWins;
+    }
+
+    public int getDraws() {
+        return mDraws;
+    }
+
+    public int getLosses() {
+        return mLosses;
+    }
+
+    public int getGames() {
+        return mWins + mDraws + mLosses;
+    }
+
+    // The points scored per game, from 0 to 1
+    public double getScore() {
+        int games = getGames();
+        return games == 0 ? 0.5 : (mWins + mDraws * 0.5) / games;
+    }
+
+    public double getElo() {
+        return elo(getScore());
+    }
+
+    // Half the width of the 95% confidence interval around getElo()
+    public double getEloError() {
+        int games = getGames();
+        if (games == 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double score = getScore();
+        double deviation = Math.sqrt(getVariance() / games);
+        return (elo(score + Z_95 * deviation) - elo(score - Z_95 * deviation)) / 2;
+    }
+
+    // The likelihood of superiority, from 0 to 1
+    public double getLikelihoodOfSuperiority() {
+        if (mWins + mLosses == 0) {
+            return 0.5;
+        }
+        return 0.5 * (1 + erf((mWins - mLosses) / Math.sqrt(2.0 * (mWins + mLosses))));
+    }
+
+    // The variance of the points from one game
+    double getVariance() {
+        int games = getGames();
+        if (games == 0) {
+            return 0;
+        }
+        double score = getScore();
+        return (mWins * (1 - score) * (1 - score) + mDraws * (0.5 - score) * (0.5 - score)
+                + mLosses * score * score) / games;
+    }
+
+    // The Elo difference that gives the expected score
+    static double elo(double score) {
+        if (score <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        if (score >= 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    // The expected score for an Elo difference
+    static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    // The error function, to about 1e-7 (Abramowitz and Stegun 7.1.26)
+    private static double erf(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double y = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d games +%d =%d -%d, Elo %.1f +/- %.1f, LOS %.1f%%",
+                getGames(), mWins, mDraws, mLosses, getElo(), getEloError(),
+                getLikelihoodOfSuperiority() * 100);
+    }
+}
@@ -0,0 +1,52 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.Search;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.engine.Tablebase;
+import net.alexblass.chess.engine.TranspositionTable;
+
+/**
+ * The engine's own search as a tournament player, with its own transposition table.
+ */
+
+public class SearchEngine implements Engine {
+
+    private final String mName;
+    private final TranspositionTable mTable;
+    private final Search mSearch;
+
+    public SearchEngine(String name, int hashMegabytes) {
+        mName = name;
+        mTable = new TranspositionTable(hashMegabytes);
+        mSearch = new Search(mTable);
+    }
+
+    // A factory for engines with the same settings
+    public static Engine.Factory factory(final String name, final int hashMegabytes,
+            final Tablebase tablebase) {
+        return new Engine.Factory() {
+            @Override
+            public Engine create() {
+                SearchEngine engine = new SearchEngine(name, hashMegabytes);
+                engine.mSearch.setTablebase(tablebase);
+                return engine;
+            }
+        };
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public void newGame() {
+        mTable.clear();
+    }
+
+    @Override
+    public int chooseMove(Position position, SearchLimits limits) {
+        return mSearch.search(position, limits).getBestMove();
+    }
+}
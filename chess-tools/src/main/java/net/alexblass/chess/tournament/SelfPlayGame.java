@@ -0,0 +1,134 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.models.GameBoard;
+
+/**
+ * One game between two engines, played out on a GameBoard until it's over.
+ *
+ * Besides checkmate and stalemate, the game is drawn by threefold repetition, the
+ * fifty move rule and positions where neither side has the material to mate. With a
+ * clock, an engine that runs out of time or plays an illegal move loses.
+ */
+
+public class SelfPlayGame {
+
+    // Results, as written in PGN
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+
+    private final Position mStart;
+    private final Engine[] mEngines = new Engine[Pieces.COLORS];
+    private final TimeControl mTimeControl;
+
+    private final GameBoard mBoard = new GameBoard();
+    private final MoveGenerator mGenerator = new MoveGenerator();
+
+    private String mResult;
+    private String mTermination;
+
+    public SelfPlayGame(Position start, Engine white, Engine black, TimeControl timeControl) {
+        mStart = start;
+        mEngines[Pieces.WHITE] = white;
+        mEngines[Pieces.BLACK] = black;
+        mTimeControl = timeControl;
+    }
+
+    // Play the game to the end. Returns the result.
+    public String play() {
+        mBoard.setPosition(mStart);
+        Position position = mBoard.getPosition();
+        long[] clocks = {mTimeControl.getBaseMillis(), mTimeControl.getBaseMillis()};
+        mEngines[Pieces.WHITE].newGame();
+        mEngines[Pieces.BLACK].newGame();
+
+        while (!isOver(position)) {
+            int side = position.getSideToMove();
+            long start = System.nanoTime();
+            int move = mEngines[side].chooseMove(position,
+                    mTimeControl.limitsFor(clocks[side]));
+            if (mTimeControl.isClock()) {
+                clocks[side] -= (System.nanoTime() - start) / 1000000L;
+                if (clocks[side] < 0) {
+                    end(Pieces.opposite(side), "time forfeit");
+                    break;
+                }
+                clocks[side] += mTimeControl.getIncrementMillis();
+            }
+            if (move == Move.NONE || !mGenerator.isLegal(position, move)) {
+                end(Pieces.opposite(side), "illegal move");
+                break;
+            }
+            mBoard.makeMove(move);
+        }
+        return mResult;
+    }
+
+    // "1-0", "0-1" or "1/2-1/2", or null before the game is played
+    public String getResult() {
+        return mResult;
+    }
+
+    // Why the game ended, such as "checkmate" or "threefold repetition"
+    public String getTermination() {
+        return mTermination;
+    }
+
+    public Position getStartPosition() {
+        return mStart;
+    }
+
+    public Engine getEngine(int color) {
+        return mEngines[color];
+    }
+
+    // The moves played, from the start position
+    public int[] getMoves() {
+        Position position = mBoard.getPosition();
+        int[] moves = new int[position.getHistorySize() - mStart.getHistorySize()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = position.getMove(mStart.getHistorySize() + i);
+        }
+        return moves;
+    }
+
+    // Whether the game is over in the position, setting the result if it is
+    private boolean isOver(Position position) {
+        switch (mBoard.getStatus()) {
+            case GameBoard.CHECKMATE:
+                end(Pieces.opposite(position.getSideToMove()), "checkmate");
+                return true;
+            case GameBoard.STALEMATE:
+                end(Pieces.NONE, "stalemate");
+                return true;
+            default:
+                break;
+        }
+        if (position.getHalfmoveClock() >= 100) {
+            end(Pieces.NONE, "fifty move rule");
+        } else if (position.getRepetitionCount() >= 2) {
+            end(Pieces.NONE, "threefold repetition");
+        } else if (position.hasInsufficientMaterial()) {
+            end(Pieces.NONE, "insufficient material");
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private void end(int winner, String termination) {
+        mResult = winner == Pieces.WHITE ? WHITE_WINS : winner == Pieces.BLACK ? BLACK_WINS
+                : DRAW;
+        mTermination = termination;
+    }
+
+    @Override
+    public String toString() {
+        return mEngines[Pieces.WHITE].getName() + " - " + mEngines[Pieces.BLACK].getName()
+                + " " + mResult + " (" + mTermination + ", " + getMoves().length + " plies)";
+    }
+}
@@ -0,0 +1,75 @@
+package net.alexblass.chess.tournament;
+
+/**
+ * A sequential probability ratio test: whether the first engine is elo1 or more Elo
+ * stronger than the second (H1) rather than elo0 or less (H0), deciding as soon as the
+ * games played so far are enough.
+ *
+ * The log-likelihood ratio (LLR) is worked out from the score and its variance, as
+ * fishtest and cutechess do for a normal approximation to the trinomial results. The
+ * test passes when the LLR reaches log((1 - beta) / alpha) and fails when it drops
+ * to log(beta / (1 - alpha)), so alpha and beta are the chances of a false pass and a
+ * false fail.
+ */
+
+public class Sprt {
+
+    // The outcomes of the test so far
+    public static final int CONTINUE = 0;
+    public static final int PASSED = 1;
+    public static final int FAILED = 2;
+
+    private final double mElo0;
+    private final double mElo1;
+    private final double mLowerBound;
+    private final double mUpperBound;
+
+    public Sprt(double elo0, double elo1, double alpha, double beta) {
+        mElo0 = elo0;
+        mElo1 = elo1;
+        mLowerBound = Math.log(beta / (1 - alpha));
+        mUpperBound = Math.log((1 - beta) / alpha);
+    }
+
+    public double getLowerBound() {
+        return mLowerBound;
+    }
+
+    public double getUpperBound() {
+        return mUpperBound;
+    }
+
+    // The log-likelihood ratio of H1 against H0. 0 until there's some spread in the
+    // results to go on.
+    public double getLlr(MatchScore score) {
+        double variance = score.getVariance();
+        if (variance <= 0) {
+            return 0;
+        }
+        double score0 = MatchScore.expectedScore(mElo0);
+        double score1 = MatchScore.expectedScore(mElo1);
+        return score.getGames() * (score1 - score0) * (2 * score.getScore() - score0 - score1)
+                / (2 * variance);
+    }
+
+    // CONTINUE, PASSED or FAILED
+    public int getStatus(MatchScore score) {
+        double llr = getLlr(score);
+        if (llr >= mUpperBound) {
+            return PASSED;
+        }
+        return llr <= mLowerBound ? FAILED : CONTINUE;
+    }
+
+    // The LLR and where the test stands, such as "LLR 1.23 (-2.94, 2.94) [0, 5]"
+    public String toString(MatchScore score) {
+        int status = getStatus(score);
+        return String.format("LLR %.2f (%.2f, %.2f) [%s, %s]%s", getLlr(score), mLowerBound,
+                mUpperBound, format(mElo0), format(mElo1),
+                status == PASSED ? " H1 accepted" : status == FAILED ? " H0 accepted" : "");
+    }
+
+    private static String format(double elo) {
+        return elo == Math.rint(elo) ? String.valueOf((long) elo) : String.valueOf(elo);
+    }
+}
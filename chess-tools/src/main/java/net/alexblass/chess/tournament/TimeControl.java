@@ -0,0 +1,84 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Search;
+import net.alexblass.chess.engine.SearchLimits;
+
+/**
+ * How long each move of a tournament game may take: a fixed depth, a fixed number of
+ * nodes, or a clock with a starting time and an increment after each move.
+ *
+ * Fixed depths and nodes make games repeatable and independent of how busy the
+ * machine is, which suits running many games at once. With a clock, each move gets a
+ * share of the time left plus most of the increment, and running out of time loses.
+ */
+
+public class TimeControl {
+
+    // Moves left in the game, as far as sharing out the clock goes
+    private static final int MOVES_TO_GO = 30;
+
+    private final int mDepth;
+    private final long mNodes;
+    private final long mBaseMillis;
+    private final long mIncrementMillis;
+
+    private TimeControl(int depth, long nodes, long baseMillis, long incrementMillis) {
+        mDepth = depth;
+        mNodes = nodes;
+        mBaseMillis = baseMillis;
+        mIncrementMillis = incrementMillis;
+    }
+
+    public static TimeControl depth(int depth) {
+        return new TimeControl(depth, 0, 0, 0);
+    }
+
+    public static TimeControl nodes(long nodes) {
+        return new TimeControl(Search.MAX_PLY, nodes, 0, 0);
+    }
+
+    public static TimeControl clock(long baseMillis, long incrementMillis) {
+        return new TimeControl(Search.MAX_PLY, 0, baseMillis, incrementMillis);
+    }
+
+    // A clock written in seconds as "base+increment", such as "10+0.1"
+    public static TimeControl parse(String text) {
+        int plus = text.indexOf('+');
+        double base = Double.parseDouble(plus < 0 ? text : text.substring(0, plus));
+        double increment = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+        return clock((long) (base * 1000), (long) (increment * 1000));
+    }
+
+    public boolean isClock() {
+        return mBaseMillis > 0;
+    }
+
+    public long getBaseMillis() {
+        return mBaseMillis;
+    }
+
+    public long getIncrementMillis() {
+        return mIncrementMillis;
+    }
+
+    // The limits for the next move with the time left on the mover's clock
+    public SearchLimits limitsFor(long remainingMillis) {
+        SearchLimits limits = new SearchLimits().setDepth(mDepth);
+        if (mNodes > 0) {
+            limits.setNodes(mNodes);
+        }
+        if (isClock()) {
+            long budget = remainingMillis / MOVES_TO_GO + mIncrementMillis * 3 / 4;
+            limits.setTimeMillis(Math.max(1, Math.min(budget, remainingMillis / 2)));
+        }
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        if (isClock()) {
+            return mBaseMillis / 1000.0 + "+" + mIncrementMillis / 1000.0;
+        }
+        return mNodes > 0 ? "nodes " + mNodes : "depth " + mDepth;
+    }
+}
@@ -0,0 +1,316 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.pgn.PgnWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays two engines against each other, many games at once, to measure which is
+ * stronger.
+ *
+ * Each worker thread has its own pair of engines and plays one game at a time. Games
+ * go through the opening positions in turn, each one twice with the colors swapped,
+ * so neither engine gets the better of an opening. The score is kept from the first
+ * engine's side and the listener is told after every game. With an SPRT, the
+ * tournament stops as soon as the test passes or fails; games already being played
+ * are finished, and counted.
+ */
+
+public class Tournament {
+
+    // Positions a few moves into common openings, for when none are given
+    static final String[] DEFAULT_OPENINGS = {
+            "rnbqkbnr/pppp1ppp/8/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R b KQkq - 1 2",
+            "rnbqkbnr/pp1ppppp/8/2p5/4P3/8/PPPP1PPP/RNBQKBNR w KQkq c6 0 2",
+            "rnbqkbnr/pppp1ppp/4p3/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/pp1ppppp/2p5/8/4P3/8/PPPP1PPP/RNBQKBNR w KQkq - 0 2",
+            "rnbqkbnr/ppp1pppp/8/3p4/2PP4/8/PP2PPPP/RNBQKBNR b KQkq c3 0 2",
+            "rnbqkb1r/pppppp1p/5np1/8/2PP4/8/PP2PPPP/RNBQKBNR w KQkq - 0 3",
+            "rnbqkbnr/pppppppp/8/8/2P5/8/PP1PPPPP/RNBQKBNR b KQkq - 0 1",
+            "rnbqkbnr/ppp1pppp/8/3p4/8/5N2/PPPPPPPP/RNBQKB1R w KQkq - 0 2",
+    };
+
+    // Printed by main() when the options can't be read
+    private static final String USAGE = "Usage: Tournament [-games n] [-threads n]"
+            + " [-depth n | -nodes n | -tc base+inc] [-hash mb] [-openings file] [-pgn file]"
+            + " [-sprt elo0 elo1]";
+
+    // Told about each game as it finishes, from the thread that played it
+    public interface Listener {
+        void onGameFinished(Tournament tournament, SelfPlayGame game);
+    }
+
+    private final Engine.Factory mFirst;
+    private final Engine.Factory mSecond;
+    private final TimeControl mTimeControl;
+    private final List<Position> mOpenings = new ArrayList<>();
+    private final int mThreads;
+
+    private Sprt mSprt;
+    private PgnWriter mPgn;
+    private Listener mListener;
+
+    // The score so far, from the first engine's side
+    private int mWins;
+    private int mDraws;
+    private int mLosses;
+
+    private final AtomicInteger mNextGame = new AtomicInteger();
+    private volatile boolean mStopped;
+
+    // Play the engines from the factories against each other from the openings, given
+    // as FEN, on this many threads at once
+    public Tournament(Engine.Factory first, Engine.Factory second, TimeControl timeControl,
+            List<String> openings, int threads) {
+        mFirst = first;
+        mSecond = second;
+        mTimeControl = timeControl;
+        for (String fen : openings) {
+            Position position = new Position();
+            Fen.parse(fen, position);
+            mOpenings.add(position);
+        }
+        if (mOpenings.isEmpty()) {
+            throw new IllegalArgumentException("No openings");
+        }
+        mThreads = Math.max(1, threads);
+    }
+
+    // Stop as soon as the test passes or fails
+    public Tournament setSprt(Sprt sprt) {
+        this.mSprt = sprt;
+        return this;
+    }
+
+    // Write every game as PGN. The writer is only used by one thread at a time.
+    public Tournament setPgnWriter(PgnWriter pgn) {
+        this.mPgn = pgn;
+        return this;
+    }
+
+    public Tournament setListener(Listener listener) {
+        this.mListener = listener;
+        return this;
+    }
+
+    // The score so far, from the first engine's side
+    public synchronized MatchScore getScore() {
+        return new MatchScore(mWins, mDraws, mLosses);
+    }
+
+    public Sprt getSprt() {
+        return mSprt;
+    }
+
+    // Stop starting new games. May be called from any thread.
+    public void stop() {
+        mStopped = true;
+    }
+
+    // Play up to maxGames games, fewer if the SPRT decides first, and return the score.
+    // Blocks until the games being played are over.
+    public MatchScore run(final int maxGames) throws InterruptedException {
+        mNextGame.set(0);
+        mStopped = false;
+        Thread[] workers = new Thread[mThreads];
+        final RuntimeException[] failure = new RuntimeException[1];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        playGames(maxGames);
+                    } catch (RuntimeException e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                        stop();
+                    }
+                }
+            }, "tournament-" + i);
+            workers[i].start();
+        }
+        try {
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } finally {
+            stop();
+        }
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return getScore();
+    }
+
+    private void playGames(int maxGames) {
+        Engine first = mFirst.create();
+        Engine second = mSecond.create();
+        while (!mStopped) {
+            int number = mNextGame.getAndIncrement();
+            if (number >= maxGames) {
+                break;
+            }
+            // Each opening twice, the first engine playing white the first time
+            Position opening = mOpenings.get((number / 2) % mOpenings.size());
+            boolean firstIsWhite = (number & 1) == 0;
+            SelfPlayGame game = firstIsWhite
+                    ? new SelfPlayGame(opening, first, second, mTimeControl)
+                    : new SelfPlayGame(opening, second, first, mTimeControl);
+            String result = game.play();
+            record(game, number, result, firstIsWhite);
+        }
+    }
+
+    private void record(SelfPlayGame game, int number, String result, boolean firstIsWhite) {
+        synchronized (this) {
+            if (result.equals(SelfPlayGame.DRAW)) {
+                mDraws++;
+            } else if (result.equals(SelfPlayGame.WHITE_WINS) == firstIsWhite) {
+                mWins++;
+            } else {
+                mLosses++;
+            }
+            if (mSprt != null && mSprt.getStatus(getScore()) != Sprt.CONTINUE) {
+                stop();
+            }
+            if (mPgn != null) {
+                writeGame(game, number, result);
+            }
+        }
+        if (mListener != null) {
+            mListener.onGameFinished(this, game);
+        }
+    }
+
+    private void writeGame(SelfPlayGame game, int number, String result) {
+        Map<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "Self-play " + mTimeControl);
+        tags.put("Round", String.valueOf(number + 1));
+        tags.put("White", game.getEngine(Pieces.WHITE).getName());
+        tags.put("Black", game.getEngine(Pieces.BLACK).getName());
+        tags.put("Termination", game.getTermination());
+        try {
+            mPgn.write(game.getStartPosition(), game.getMoves(), tags, result);
+            mPgn.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't write game " + (number + 1), e);
+        }
+    }
+
+    // The FEN on each line of a file that isn't blank
+    public static List<String> readOpenings(File file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    openings.add(line.trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return openings;
+    }
+
+    // Usage: Tournament [-games n] [-threads n] [-depth n | -nodes n | -tc base+inc]
+    //        [-hash mb] [-openings file] [-pgn file] [-sprt elo0 elo1]
+    // Plays the engine against itself, as a check that the results come out even.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = 16;
+        TimeControl timeControl = TimeControl.nodes(20000);
+        List<String> openings = new ArrayList<>();
+        Sprt sprt = null;
+        File pgnFile = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-games":
+                    games = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-depth":
+                    timeControl = TimeControl.depth(Integer.parseInt(args[i + 1]));
+                    break;
+                case "-nodes":
+                    timeControl = TimeControl.nodes(Long.parseLong(args[i + 1]));
+                    break;
+                case "-tc":
+                    timeControl = TimeControl.parse(args[i + 1]);
+                    break;
+                case "-hash":
+                    hash = Integer.parseInt(args[i + 1]);
+                    break;
+                case "-openings":
+                    openings = readOpenings(new File(args[i + 1]));
+                    break;
+                case "-pgn":
+                    pgnFile = new File(args[i + 1]);
+                    break;
+                case "-sprt":
+                    if (i + 2 >= args.length) {
+                        System.err.println(USAGE);
+                        return;
+                    }
+                    sprt = new Sprt(Double.parseDouble(args[i + 1]),
+                            Double.parseDouble(args[i + 2]), 0.05, 0.05);
+                    i++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (openings.isEmpty()) {
+            for (String fen : DEFAULT_OPENINGS) {
+                openings.add(fen);
+            }
+        }
+
+        Tournament tournament = new Tournament(SearchEngine.factory("First", hash, null),
+                SearchEngine.factory("Second", hash, null), timeControl, openings, threads)
+                .setSprt(sprt)
+                .setListener(new Listener() {
+                    @Override
+                    public void onGameFinished(Tournament tournament, SelfPlayGame game) {
+                        MatchScore score = tournament.getScore();
+                        Sprt sprt = tournament.getSprt();
+                        System.out.println(game + "\n  " + score
+                                + (sprt == null ? "" : ", " + sprt.toString(score)));
+                    }
+                });
+        OutputStreamWriter pgn = null;
+        if (pgnFile != null) {
+            pgn = new OutputStreamWriter(new FileOutputStream(pgnFile), "UTF-8");
+            tournament.setPgnWriter(new PgnWriter(pgn));
+        }
+        try {
+            System.out.println(tournament.run(games));
+        } finally {
+            if (pgn != null) {
+                pgn.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.alexblass.chess.uci;
+
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.SearchLimits;
+
+/**
+ * The parameters of a UCI "go" command, and how long to search with them.
+ *
+ * With a clock, a move gets an even share of the time left over the moves to go (30
+ * if the GUI doesn't say) plus most of the increment, but never more than half the
+ * time left, less a little for the GUI and the pipe.
+ */
+
+final class GoCommand {
+
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+
+    // Kept back from each move's time for the GUI and the pipe
+    private static final long OVERHEAD_MILLIS = 20;
+
+    int mDepth;
+    long mNodes;
+    long mMoveTime;
+    final long[] mTime = new long[Pieces.COLORS];
+    final long[] mIncrement = new long[Pieces.COLORS];
+    int mMovesToGo;
+    boolean mInfinite;
+    boolean mPonder;
+
+    // The command from its words, the first being "go". Words it doesn't know are
+    // left out, as the protocol asks.
+    static GoCommand parse(String[] words) {
+        GoCommand go = new GoCommand();
+        for (int i = 1; i < words.length; i++) {
+            String word = words[i];
+            switch (word) {
+                case "infinite":
+                    go.mInfinite = true;
+                    continue;
+                case "ponder":
+                    go.mPonder = true;
+                    continue;
+                default:
+                    break;
+            }
+            if (i + 1 == words.length) {
+                break;
+            }
+            long value;
+            try {
+                value = Long.parseLong(words[i + 1]);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            switch (word) {
+                case "depth":
+                    go.mDepth = (int) value;
+                    break;
+                case "nodes":
+                    go.mNodes = value;
+                    break;
+                case "movetime":
+                    go.mMoveTime = value;
+                    break;
+                case "wtime":
+                    go.mTime[Pieces.WHITE] = value;
+                    break;
+                case "btime":
+                    go.mTime[Pieces.BLACK] = value;
+                    break;
+                case "winc":
+                    go.mIncrement[Pieces.WHITE] = value;
+                    break;
+                case "binc":
+                    go.mIncrement[Pieces.BLACK] = value;
+                    break;
+                case "movestogo":
+                    go.mMovesToGo = (int) value;
+                    break;
+                default:
+                    continue;
+            }
+            i++;
+        }
+        return go;
+    }
+
+    // Whether the best move has to wait for "stop" or "ponderhit", even if the
+    // search ends before then
+    boolean isOpenEnded() {
+        return mInfinite || mPonder;
+    }
+
+    // How long the side to move should search for, or 0 for as long as it takes
+    long getTimeMillis(int sideToMove) {
+        if (mInfinite) {
+            return 0;
+        }
+        if (mMoveTime > 0) {
+            return mMoveTime;
+        }
+        long left = mTime[sideToMove];
+        if (left <= 0) {
+            return 0;
+        }
+        int movesToGo = mMovesToGo > 0 ? mMovesToGo : DEFAULT_MOVES_TO_GO;
+        long time = left / movesToGo + mIncrement[sideToMove] * 3 / 4;
+        time = Math.min(time, left / 2) - OVERHEAD_MILLIS;
+        return Math.max(1, time);
+    }
+
+    // The limits to start the search with. A ponder search has no time limit until
+    // the opponent plays the move it's pondering on.
+    SearchLimits toLimits(int sideToMove) {
+        SearchLimits limits = new SearchLimits();
+        if (mDepth > 0) {
+            limits.setDepth(mDepth);
+        }
+        if (mNodes > 0) {
+            limits.setNodes(mNodes);
+        }
+        if (!mPonder) {
+            limits.setTimeMillis(getTimeMillis(sideToMove));
+        }
+        return limits;
+    }
+}
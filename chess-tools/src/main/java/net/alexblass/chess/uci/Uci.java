@@ -0,0 +1,387 @@
+package net.alexblass.chess.uci;
+
+import net.alexblass.chess.engine.Bitboards;
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.MoveGenerator;
+import net.alexblass.chess.engine.ParallelSearch;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.Search;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.engine.SearchResult;
+import net.alexblass.chess.engine.Tablebase;
+import net.alexblass.chess.engine.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Runs the engine under the Universal Chess Interface, reading commands from a GUI
+ * and writing the replies, so it can play in other programs' tournaments and analysis.
+ *
+ * Searches run on their own thread, so commands are still read and answered while one
+ * is going: "isready" gets its "readyok" straight away and "stop" or "ponderhit" reach
+ * the search. A command that changes the position or the options first stops the
+ * search and waits for its best move, so each "go" gets exactly one "bestmove".
+ *
+ * A "go infinite" or "go ponder" search holds its best move back until "stop", or
+ * "ponderhit" for pondering, even if it finishes first. A ponder search has no time
+ * limit; the time for the move starts when the opponent plays the move it's pondering.
+ */
+
+public class Uci {
+
+    static final String NAME = "chess";
+    static final String AUTHOR = "Alex Blass";
+
+    private static final int DEFAULT_HASH_MEGABYTES = 16;
+    private static final int MAX_HASH_MEGABYTES = 4096;
+    private static final int MAX_THREADS = 256;
+
+    private final PrintWriter mOut;
+    private final MoveGenerator mGenerator = new MoveGenerator();
+    private final int[] mMoves = new int[MoveGenerator.MAX_MOVES];
+
+    // The position from the last "position" command, searched from a copy
+    private final Position mPosition = new Position();
+
+    private int mHashMegabytes = DEFAULT_HASH_MEGABYTES;
+    private int mThreads = 1;
+    private Tablebase mTablebase;
+    private ParallelSearch mSearch;
+
+    // Stops ponder searches once the opponent has played the move
+    private final Timer mTimer = new Timer("uci-timer", true);
+    private TimerTask mStopTask;
+
+    // The last search started, and its command while it's running. Guarded by this.
+    private Thread mSearchThread;
+    private GoCommand mGo;
+    private boolean mHolding;
+
+    public Uci(Writer out) {
+        mOut = new PrintWriter(out);
+        Fen.parse(Fen.START, mPosition);
+    }
+
+    // Answer commands until "quit" or the end of the input
+    public void run(BufferedReader in) throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line)) {
+                    break;
+                }
+            }
+        } finally {
+            stopSearch();
+            if (mSearch != null) {
+                mSearch.shutdown();
+            }
+            mTimer.cancel();
+        }
+    }
+
+    // Carry out one command. Returns false for "quit".
+    public boolean execute(String line) {
+        String[] words = line.trim().split("\\s+");
+        switch (words[0]) {
+            case "":
+                break;
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + DEFAULT_HASH_MEGABYTES
+                        + " min 1 max " + MAX_HASH_MEGABYTES);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("option name TablebasePath type string default <empty>");
+                send("option name Clear Hash type button");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(line);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                if (mSearch != null) {
+                    mSearch.getTable().clear();
+                }
+                break;
+            case "position":
+                stopSearch();
+                setPosition(words);
+                break;
+            case "go":
+                stopSearch();
+                go(GoCommand.parse(words));
+                break;
+            case "ponderhit":
+                ponderHit();
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                stopSearch();
+                return false;
+            default:
+                send("info string Unknown command: " + words[0]);
+                break;
+        }
+        return true;
+    }
+
+    // "setoption name <name> [value <value>]", where the name and value may have spaces
+    private void setOption(String line) {
+        int nameStart = line.indexOf(" name ");
+        if (nameStart < 0) {
+            return;
+        }
+        int valueStart = line.indexOf(" value ", nameStart);
+        String name = (valueStart < 0 ? line.substring(nameStart + 6)
+                : line.substring(nameStart + 6, valueStart)).trim();
+        String value = valueStart < 0 ? "" : line.substring(valueStart + 7).trim();
+        try {
+            switch (name.toLowerCase()) {
+                case "hash":
+                    mHashMegabytes = Math.max(1, Math.min(MAX_HASH_MEGABYTES,
+                            Integer.parseInt(value)));
+                    discardSearch();
+                    break;
+                case "threads":
+                    mThreads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value)));
+                    discardSearch();
+                    break;
+                case "tablebasepath":
+                    mTablebase = value.isEmpty() || value.equals("<empty>") ? null
+                            : Tablebase.open(new File(value));
+                    if (mSearch != null) {
+                        mSearch.setTablebase(mTablebase);
+                    }
+                    if (mTablebase != null) {
+                        send("info string Found " + mTablebase.getTableCount()
+                                + " tables with up to " + mTablebase.getMaxPieces() + " pieces");
+                    }
+                    break;
+                case "clear hash":
+                    if (mSearch != null) {
+                        mSearch.getTable().clear();
+                    }
+                    break;
+                case "ponder":
+                    // Nothing to set up: the GUI decides when to ponder
+                    break;
+                default:
+                    send("info string Unknown option: " + name);
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            send("info string Bad value for " + name + ": " + value);
+        } catch (IOException e) {
+            send("info string Can't open tablebases: " + e.getMessage());
+        }
+    }
+
+    // "position [startpos | fen <fen>] [moves <move>...]"
+    private void setPosition(String[] words) {
+        int movesStart = words.length;
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].equals("moves")) {
+                movesStart = i;
+                break;
+            }
+        }
+        if (words.length > 1 && words[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (int i = 2; i < movesStart; i++) {
+                fen.append(words[i]).append(' ');
+            }
+            try {
+                Fen.parse(fen, mPosition);
+            } catch (RuntimeException e) {
+                Fen.parse(Fen.START, mPosition);
+                send("info string Bad FEN: " + fen.toString().trim());
+                return;
+            }
+            if (mPosition.getPieces(Pieces.WHITE, Pieces.KING) == 0
+                    || mPosition.getPieces(Pieces.BLACK, Pieces.KING) == 0) {
+                Fen.parse(Fen.START, mPosition);
+                send("info string Both sides need a king: " + fen.toString().trim());
+                return;
+            }
+        } else {
+            Fen.parse(Fen.START, mPosition);
+        }
+        for (int i = movesStart + 1; i < words.length; i++) {
+            int move = parseMove(words[i]);
+            if (move == Move.NONE) {
+                send("info string Illegal move: " + words[i]);
+                return;
+            }
+            mPosition.makeMove(move);
+        }
+    }
+
+    // The legal move in coordinate notation, such as "e2e4" or "e7e8q", or Move.NONE
+    private int parseMove(String text) {
+        if (text.length() < 4 || text.length() > 5) {
+            return Move.NONE;
+        }
+        int from = parseSquare(text, 0);
+        int to = parseSquare(text, 2);
+        int promotion = text.length() == 5 ? "nbrq".indexOf(text.charAt(4)) : -1;
+        if (from < 0 || to < 0 || (text.length() == 5 && promotion < 0)) {
+            return Move.NONE;
+        }
+        return mGenerator.findMove(mPosition, from, to,
+                promotion < 0 ? Pieces.QUEEN : Pieces.KNIGHT + promotion, mMoves);
+    }
+
+    private static int parseSquare(String text, int index) {
+        int col = text.charAt(index) - 'a';
+        int row = '8' - text.charAt(index + 1);
+        if (col < 0 || col > 7 || row < 0 || row > 7) {
+            return -1;
+        }
+        return Bitboards.square(row, col);
+    }
+
+    private void go(final GoCommand go) {
+        final ParallelSearch search = getSearch();
+        final Position position = new Position(mPosition);
+        final SearchLimits limits = go.toLimits(position.getSideToMove());
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                SearchResult result = search.search(position, limits);
+                sendBestMove(position, result);
+            }
+        }, "uci-search");
+        thread.setDaemon(true);
+        synchronized (this) {
+            mGo = go;
+            mHolding = go.isOpenEnded();
+            mSearchThread = thread;
+        }
+        thread.start();
+    }
+
+    // The opponent played the move being pondered, so the search is now for real
+    private void ponderHit() {
+        synchronized (this) {
+            if (mGo == null || !mGo.mPonder) {
+                return;
+            }
+            mGo.mPonder = false;
+            mHolding = false;
+            notifyAll();
+            long time = mGo.getTimeMillis(mPosition.getSideToMove());
+            if (time > 0) {
+                final ParallelSearch search = mSearch;
+                mStopTask = new TimerTask() {
+                    @Override
+                    public void run() {
+                        search.stop();
+                    }
+                };
+                mTimer.schedule(mStopTask, time);
+            }
+        }
+    }
+
+    // Stop the running search, if any, and wait for it to send its best move
+    private void stopSearch() {
+        Thread thread;
+        synchronized (this) {
+            thread = mSearchThread;
+            if (thread == null) {
+                return;
+            }
+            mHolding = false;
+            notifyAll();
+        }
+        try {
+            while (thread.isAlive()) {
+                // Again each time round, in case the search hadn't started the first time
+                mSearch.stop();
+                thread.join(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void sendBestMove(Position position, SearchResult result) {
+        synchronized (this) {
+            while (mHolding) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            if (mStopTask != null) {
+                mStopTask.cancel();
+                mStopTask = null;
+            }
+            mGo = null;
+        }
+        int[] line = result == null ? new int[0] : result.getPrincipalVariation();
+        int best = line.length > 0 ? line[0] : Move.NONE;
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        if (best == Move.NONE && new MoveGenerator().hasLegalMove(position, moves)) {
+            // Stopped before the first iteration finished: any legal move beats none
+            best = moves[0];
+        }
+        send("bestmove " + Move.toString(best)
+                + (line.length > 1 ? " ponder " + Move.toString(line[1]) : ""));
+    }
+
+    private ParallelSearch getSearch() {
+        if (mSearch == null) {
+            mSearch = new ParallelSearch(new TranspositionTable(mHashMegabytes), mThreads);
+            mSearch.setTablebase(mTablebase);
+            mSearch.setListener(new Search.Listener() {
+                @Override
+                public void onIteration(SearchResult result) {
+                    send("info " + result);
+                }
+            });
+        }
+        return mSearch;
+    }
+
+    // Let the next search be made with the new options
+    private void discardSearch() {
+        if (mSearch != null) {
+            mSearch.shutdown();
+            mSearch = null;
+        }
+    }
+
+    private void send(String line) {
+        synchronized (mOut) {
+            mOut.print(line);
+            mOut.print('\n');
+            mOut.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Uci uci = new Uci(new OutputStreamWriter(System.out, "US-ASCII"));
+        uci.run(new BufferedReader(new InputStreamReader(System.in, "US-ASCII")));
+    }
+}
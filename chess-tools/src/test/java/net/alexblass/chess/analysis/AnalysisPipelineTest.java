@@ -0,0 +1,126 @@
+package net.alexblass.chess.analysis;
+
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.pgn.PgnReader;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the pipeline writes every move in order and flags the blunders.
+ */
+
+public class AnalysisPipelineTest {
+
+    private static final String GAMES =
+            "[Event \"Scholar's mate\"]\n\n"
+            + "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0\n\n"
+            + "[FEN \"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1\"]\n\n"
+            + "1. Rd8# 1-0\n\n"
+            + "1. e4 Ke7?? 2. Kf3 *\n\n"
+            + "1. d4 d5 2. c4 1/2-1/2\n";
+
+    @Test
+    public void run_writesEveryMoveInOrder() throws Exception {
+        // Few positions in flight, so reading has to wait for the writer
+        AnalysisPipeline pipeline = new AnalysisPipeline(3, new SearchLimits().setDepth(3))
+                .setHashMegabytes(1)
+                .setMaxPending(2);
+        StringWriter out = new StringWriter();
+        pipeline.run(reader(GAMES), out);
+
+        String[] lines = out.toString().split("\n");
+        assertEquals(AnalysisWriter.HEADER.trim(), lines[0]);
+        assertEquals(1 + 7 + 1 + 3, lines.length);
+        assertEquals(3, pipeline.getGameCount());
+        assertEquals(8 + 2 + 4, pipeline.getPositionCount());
+        // The game with an illegal move is left out
+        assertEquals(1, pipeline.getSkippedGameCount());
+
+        String[] expected = {"1\t1\te4", "1\t2\te5", "1\t3\tQh5", "1\t4\tNc6", "1\t5\tBc4",
+                "1\t6\tNf6", "1\t7\tQxf7#", "2\t1\tRd8#", "4\t1\td4", "4\t2\td5", "4\t3\tc4"};
+        for (int i = 0; i < expected.length; i++) {
+            assertTrue(lines[i + 1], lines[i + 1].startsWith(expected[i] + "\t"));
+        }
+    }
+
+    @Test
+    public void run_flagsMovesThatAllowMate() throws Exception {
+        AnalysisPipeline pipeline = new AnalysisPipeline(2, new SearchLimits().setDepth(3))
+                .setHashMegabytes(1);
+        StringWriter out = new StringWriter();
+        pipeline.run(reader(GAMES), out);
+
+        String[] lines = out.toString().split("\n");
+        // 3... Nf6 allows mate in one, which the engine saw coming
+        String[] nf6 = lines[6].split("\t", -1);
+        assertEquals("Nf6", nf6[2]);
+        assertEquals("#1", nf6[5]);
+        assertEquals("??", nf6[7]);
+        // Mating is the best move there is
+        String[] mate = lines[7].split("\t", -1);
+        assertEquals("Qxf7#", mate[3]);
+        assertEquals("0", mate[6]);
+        assertEquals("", mate[7]);
+        assertTrue(pipeline.getBlunderCount() >= 1);
+    }
+
+    @Test
+    public void run_analysesGamesWithoutMoves() throws Exception {
+        AnalysisPipeline pipeline = new AnalysisPipeline(2, new SearchLimits().setDepth(2))
+                .setHashMegabytes(1);
+        StringWriter out = new StringWriter();
+        pipeline.run(reader("[FEN \"6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1\"]\n\n1-0\n\n"
+                + "1. d4 *\n"), out);
+
+        // Only the game with a move writes a line, but both positions were searched
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("2\t1\td4\t"));
+        assertEquals(2, pipeline.getGameCount());
+        assertEquals(1 + 2, pipeline.getPositionCount());
+        assertEquals(0, pipeline.getSkippedGameCount());
+    }
+
+    @Test(timeout = 30000)
+    public void run_failsWhenReadingThrows() throws Exception {
+        AnalysisPipeline pipeline = new AnalysisPipeline(2, new SearchLimits().setDepth(2))
+                .setHashMegabytes(1)
+                .setMaxPending(2);
+        InputStream broken = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("Disk went away");
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return read();
+            }
+        };
+        PgnReader reader = new PgnReader(Channels.newChannel(new SequenceInputStream(
+                new ByteArrayInputStream(GAMES.getBytes(Charset.forName("ISO-8859-1"))),
+                broken)));
+        try {
+            pipeline.run(reader, new StringWriter());
+            fail("Expected the read failure");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("Disk went away", e.getCause().getMessage());
+        }
+    }
+
+    private static PgnReader reader(String text) {
+        return new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(Charset.forName("ISO-8859-1")))));
+    }
+}
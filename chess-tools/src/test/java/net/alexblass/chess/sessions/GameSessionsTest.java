@@ -0,0 +1,147 @@
+package net.alexblass.chess.sessions;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Position;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that games are played by the rules in their packed slots, and that requests
+ * for many games at once keep each game to itself.
+ */
+
+public class GameSessionsTest {
+
+    @Test
+    public void play_endsInCheckmate() throws Exception {
+        SessionService service = new SessionService(new GameSessions(4), 2);
+        long id = service.create().get();
+        assertEquals(GameSessions.IN_PROGRESS, service.play(id, "f2f3").get().intValue());
+        assertEquals(GameSessions.IN_PROGRESS, service.play(id, "e7e5").get().intValue());
+        assertEquals(GameSessions.ILLEGAL_MOVE, service.play(id, "e2e5").get().intValue());
+        assertEquals(GameSessions.ILLEGAL_MOVE, service.play(id, "e2").get().intValue());
+        assertEquals(GameSessions.IN_PROGRESS, service.play(id, "g2g4").get().intValue());
+        assertEquals(GameSessions.CHECKMATE, service.play(id, "d8h4").get().intValue());
+        // No more moves once it's over
+        assertEquals(GameSessions.ILLEGAL_MOVE, service.play(id, "a2a3").get().intValue());
+
+        GameSessions sessions = service.getSessions();
+        assertEquals(4, sessions.getPly(id));
+        assertEquals(GameSessions.CHECKMATE, sessions.getStatus(id));
+        Position position = new Position();
+        assertTrue(sessions.getPosition(id, position));
+        assertEquals("rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w KQkq - 1 3",
+                Fen.toString(position));
+        assertEquals(4, service.getMoveCount());
+        service.shutdown();
+    }
+
+    @Test
+    public void stripes_roundUpToAPowerOfTwo() throws Exception {
+        assertEquals(1, new GameSessions(0).getStripeCount());
+        assertEquals(1, new GameSessions(1).getStripeCount());
+        assertEquals(2, new GameSessions(2).getStripeCount());
+        assertEquals(4, new GameSessions(3).getStripeCount());
+        assertEquals(64, new GameSessions(64).getStripeCount());
+        // One stripe still plays a game
+        GameSessions sessions = new GameSessions(1);
+        long id = sessions.create();
+        assertEquals(GameSessions.IN_PROGRESS, sessions.play(id, 52, 36, 0));
+    }
+
+    @Test
+    public void play_drawsByRepetition() throws Exception {
+        GameSessions sessions = new GameSessions();
+        long id = sessions.create();
+        int[][] knights = {{62, 45}, {6, 21}, {45, 62}, {21, 6}};
+        for (int i = 0; i < 7; i++) {
+            assertEquals(GameSessions.IN_PROGRESS,
+                    sessions.play(id, knights[i % 4][0], knights[i % 4][1], 0));
+        }
+        // The start position for the third time
+        assertEquals(GameSessions.REPETITION, sessions.play(id, 21, 6, 0));
+    }
+
+    @Test
+    public void create_findsDrawnPositions() throws Exception {
+        GameSessions sessions = new GameSessions();
+        Position position = new Position();
+        Fen.parse("8/8/4k3/8/8/3K4/8/5B2 w - - 0 1", position);
+        assertEquals(GameSessions.INSUFFICIENT_MATERIAL, sessions.getStatus(sessions.create(position)));
+        Fen.parse("8/8/4k3/8/8/3K4/8/R7 w - - 99 80", position);
+        long id = sessions.create(position);
+        assertEquals(GameSessions.FIFTY_MOVE_RULE, sessions.play(id, 56, 48, 0));
+    }
+
+    @Test
+    public void close_freesTheSlotForANewGame() throws Exception {
+        GameSessions sessions = new GameSessions();
+        long first = sessions.create();
+        assertTrue(sessions.close(first));
+        assertFalse(sessions.close(first));
+        assertEquals(0, sessions.getGameCount());
+
+        long second = sessions.create();
+        // The same slot, but the old id doesn't reach the new game
+        assertEquals((int) first, (int) second);
+        assertNotEquals(first, second);
+        assertEquals(GameSessions.NO_GAME, sessions.play(first, 52, 36, 0));
+        assertEquals(GameSessions.IN_PROGRESS, sessions.play(second, 52, 36, 0));
+        assertEquals(-1, sessions.getPly(first));
+        assertEquals(GameSessions.NO_GAME, sessions.play(12345, 52, 36, 0));
+    }
+
+    @Test
+    public void play_keepsManyGamesApart() throws Exception {
+        // More games than fit in one page, fewer stripes than threads
+        final SessionService service = new SessionService(new GameSessions(8), 8);
+        List<Future<Long>> created = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            created.add(service.create());
+        }
+        long[] ids = new long[created.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = created.get(i).get();
+        }
+        assertEquals(ids.length, service.getSessions().getGameCount());
+
+        // The same opening in every game, all at once
+        String[] moves = {"e2e4", "c7c5", "g1f3", "d7d6", "d2d4", "c5d4", "f3d4", "g8f6"};
+        for (String move : moves) {
+            List<Future<Integer>> played = new ArrayList<>();
+            for (long id : ids) {
+                played.add(service.play(id, move));
+            }
+            for (Future<Integer> status : played) {
+                assertEquals(GameSessions.IN_PROGRESS, status.get().intValue());
+            }
+        }
+        assertEquals(ids.length * moves.length, service.getMoveCount());
+        Position position = new Position();
+        for (long id : ids) {
+            assertTrue(service.getSessions().getPosition(id, position));
+            assertEquals("rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w KQkq - 1 5",
+                    Fen.toString(position));
+        }
+        service.shutdown();
+    }
+
+    @Test
+    public void driver_playsGamesToTheEnd() throws Exception {
+        SessionService service = new SessionService(new GameSessions(16), 4);
+        SessionLoadDriver driver = new SessionLoadDriver(service, 32);
+        driver.start(50);
+        assertEquals(50, service.getSessions().getGameCount());
+        assertTrue(driver.run(1000) > 0);
+        assertTrue(driver.getFinishedGames() > 0);
+        // Finished games are replaced
+        assertEquals(50, service.getSessions().getGameCount());
+        service.shutdown();
+    }
+}
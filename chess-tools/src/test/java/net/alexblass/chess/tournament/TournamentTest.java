@@ -0,0 +1,157 @@
+package net.alexblass.chess.tournament;
+
+import net.alexblass.chess.engine.Fen;
+import net.alexblass.chess.engine.Move;
+import net.alexblass.chess.engine.Pieces;
+import net.alexblass.chess.engine.Position;
+import net.alexblass.chess.engine.SearchLimits;
+import net.alexblass.chess.pgn.PgnWriter;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the scoring, the SPRT, the draw rules and that a tournament plays every game.
+ */
+
+public class TournamentTest {
+
+    @Test
+    public void matchScore_givesEloFromTheScore() throws Exception {
+        MatchScore score = new MatchScore(60, 20, 20);
+        assertEquals(0.7, score.getScore(), 1e-9);
+        assertEquals(147.2, score.getElo(), 0.1);
+        assertTrue(score.getEloError() > 0);
+        assertTrue(score.getLikelihoodOfSuperiority() > 0.99);
+
+        MatchScore even = new MatchScore(30, 40, 30);
+        assertEquals(0, even.getElo(), 1e-9);
+        assertEquals(0.5, even.getLikelihoodOfSuperiority(), 1e-9);
+    }
+
+    @Test
+    public void sprt_decidesOnClearResults() throws Exception {
+        Sprt sprt = new Sprt(0, 10, 0.05, 0.05);
+        assertEquals(Sprt.CONTINUE, sprt.getStatus(new MatchScore(3, 4, 2)));
+        assertEquals(Sprt.PASSED, sprt.getStatus(new MatchScore(300, 200, 100)));
+        assertEquals(Sprt.FAILED, sprt.getStatus(new MatchScore(100, 200, 300)));
+        // Even results are evidence against a 10 Elo gain
+        assertTrue(sprt.getLlr(new MatchScore(300, 400, 300)) < 0);
+    }
+
+    @Test
+    public void play_drawsWithOnlyABishop() throws Exception {
+        SelfPlayGame game = new SelfPlayGame(position("8/8/4k3/8/8/3K4/8/5B2 w - - 0 1"),
+                engine("White"), engine("Black"), TimeControl.depth(1));
+        assertEquals(SelfPlayGame.DRAW, game.play());
+        assertEquals("insufficient material", game.getTermination());
+        assertEquals(0, game.getMoves().length);
+    }
+
+    @Test
+    public void play_drawsByTheFiftyMoveRule() throws Exception {
+        SelfPlayGame game = new SelfPlayGame(position("8/8/4k3/8/8/3K4/8/R7 w - - 99 80"),
+                engine("White"), engine("Black"), TimeControl.depth(2));
+        assertEquals(SelfPlayGame.DRAW, game.play());
+        assertEquals("fifty move rule", game.getTermination());
+        assertEquals(1, game.getMoves().length);
+    }
+
+    @Test
+    public void play_endsInMate() throws Exception {
+        SelfPlayGame game = new SelfPlayGame(position("6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1"),
+                engine("White"), engine("Black"), TimeControl.depth(2));
+        assertEquals(SelfPlayGame.WHITE_WINS, game.play());
+        assertEquals("checkmate", game.getTermination());
+    }
+
+    @Test
+    public void run_playsEveryGameWithBothColors() throws Exception {
+        final List<String> whites = new ArrayList<>();
+        Tournament tournament = new Tournament(SearchEngine.factory("First", 1, null),
+                SearchEngine.factory("Second", 1, null), TimeControl.depth(1),
+                Arrays.asList(Tournament.DEFAULT_OPENINGS[0]), 2)
+                .setListener(new Tournament.Listener() {
+                    @Override
+                    public void onGameFinished(Tournament tournament, SelfPlayGame game) {
+                        synchronized (whites) {
+                            whites.add(game.getEngine(Pieces.WHITE).getName());
+                        }
+                    }
+                });
+        StringWriter pgn = new StringWriter();
+        tournament.setPgnWriter(new PgnWriter(pgn));
+        MatchScore score = tournament.run(4);
+
+        assertEquals(4, score.getGames());
+        assertEquals(4, whites.size());
+        assertEquals(2, count(whites, "First"));
+        assertEquals(2, count(whites, "Second"));
+        assertEquals(4, pgn.toString().split("\\[Round ", -1).length - 1);
+        assertTrue(pgn.toString().contains("[Termination "));
+    }
+
+    @Test
+    public void run_stopsWhenTheSprtDecides() throws Exception {
+        // An engine that gives up every other game loses to one that doesn't
+        Engine.Factory resigning = new Engine.Factory() {
+            @Override
+            public Engine create() {
+                return new Engine() {
+                    private final Engine mEngine = new SearchEngine("Resigning", 1);
+                    private int mGames;
+
+                    @Override
+                    public String getName() {
+                        return mEngine.getName();
+                    }
+
+                    @Override
+                    public void newGame() {
+                        mEngine.newGame();
+                        mGames++;
+                    }
+
+                    @Override
+                    public int chooseMove(Position position, SearchLimits limits) {
+                        return (mGames & 1) == 0 ? Move.NONE
+                                : mEngine.chooseMove(position, limits);
+                    }
+                };
+            }
+        };
+        Tournament tournament = new Tournament(SearchEngine.factory("First", 1, null),
+                resigning, TimeControl.depth(1), Arrays.asList(Tournament.DEFAULT_OPENINGS), 1)
+                .setSprt(new Sprt(0, 50, 0.05, 0.05));
+        MatchScore score = tournament.run(1000);
+        assertTrue(score.getGames() < 1000);
+        assertTrue(score.getWins() > score.getLosses());
+        assertEquals(Sprt.PASSED, tournament.getSprt().getStatus(score));
+    }
+
+    private static int count(List<String> names, String name) {
+        int count = 0;
+        for (String n : names) {
+            if (n.equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Engine engine(String name) {
+        return new SearchEngine(name, 1);
+    }
+
+    private static Position position(String fen) {
+        Position position = new Position();
+        Fen.parse(fen, position);
+        return position;
+    }
+}
@@ -0,0 +1,168 @@
+package net.alexblass.chess.uci;
+
+import net.alexblass.chess.engine.Pieces;
+
+import org.junit.Test;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the replies to UCI commands, and that commands are answered while searching.
+ */
+
+public class UciTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    @Test
+    public void uci_listsTheOptions() throws Exception {
+        Lines lines = new Lines();
+        Uci uci = new Uci(lines);
+        uci.execute("uci");
+        assertEquals("id name " + Uci.NAME, lines.get(0));
+        assertTrue(lines.await("option name Hash type spin").startsWith("option name Hash"));
+        assertEquals("option name Threads type spin default 1 min 1 max 256",
+                lines.await("option name Threads"));
+        lines.await("uciok");
+        uci.execute("isready");
+        lines.await("readyok");
+    }
+
+    @Test
+    public void go_findsTheMate() throws Exception {
+        Lines lines = new Lines();
+        Uci uci = new Uci(lines);
+        uci.execute("position fen 6k1/5ppp/8/8/8/8/5PPP/3R2K1 w - - 0 1");
+        uci.execute("go depth 3");
+        assertEquals("bestmove d1d8", lines.await("bestmove"));
+        assertTrue(lines.await("info depth 1").contains(" score mate 1 "));
+    }
+
+    @Test
+    public void position_playsTheMoves() throws Exception {
+        Lines lines = new Lines();
+        Uci uci = new Uci(lines);
+        // Scholar's mate, one move short
+        uci.execute("position startpos moves e2e4 e7e5 d1h5 b8c6 f1c4 g8f6");
+        uci.execute("go depth 2");
+        assertEquals("bestmove h5f7", lines.await("bestmove"));
+
+        uci.execute("position startpos moves e2e4 e7e9");
+        assertEquals("info string Illegal move: e7e9", lines.await("info string"));
+    }
+
+    @Test
+    public void go_answersWhileSearching() throws Exception {
+        Lines lines = new Lines();
+        Uci uci = new Uci(lines);
+        uci.execute("setoption name Threads value 2");
+        uci.execute("setoption name Hash value 1");
+        uci.execute("position startpos");
+        uci.execute("go infinite");
+        uci.execute("isready");
+        lines.await("readyok");
+        assertEquals(-1, lines.indexOf("bestmove"));
+
+        uci.execute("stop");
+        String best = lines.await("bestmove");
+        assertTrue(best, best.matches("bestmove [a-h][1-8][a-h][1-8]( ponder .*)?"));
+        assertTrue(uci.execute("isready"));
+        assertFalse(uci.execute("quit"));
+    }
+
+    @Test
+    public void ponderhit_startsTheClock() throws Exception {
+        Lines lines = new Lines();
+        Uci uci = new Uci(lines);
+        uci.execute("position startpos moves e2e4");
+        uci.execute("go ponder wtime 1000 btime 1000");
+        Thread.sleep(200);
+        // Still pondering: no move until the opponent plays
+        assertEquals(-1, lines.indexOf("bestmove"));
+
+        long start = System.nanoTime();
+        uci.execute("ponderhit");
+        lines.await("bestmove");
+        // Its share of a second, not the whole second
+        assertTrue((System.nanoTime() - start) / 1000000L < 500);
+    }
+
+    @Test
+    public void parse_sharesTheClock() throws Exception {
+        GoCommand go = GoCommand.parse("go wtime 60000 btime 30000 winc 1000 binc 0".split(" "));
+        assertEquals(60000 / 30 + 750 - 20, go.getTimeMillis(Pieces.WHITE));
+        assertEquals(30000 / 30 - 20, go.getTimeMillis(Pieces.BLACK));
+        assertEquals(60000 / 30 + 750 - 20,
+                go.toLimits(Pieces.WHITE).getTimeMillis());
+
+        go = GoCommand.parse("go wtime 1000 btime 1000 winc 2000 movestogo 5".split(" "));
+        assertEquals(500 - 20, go.getTimeMillis(Pieces.WHITE));
+
+        go = GoCommand.parse("go movetime 300 depth 7 nodes 5000 searchmoves e2e4".split(" "));
+        assertEquals(300, go.getTimeMillis(Pieces.BLACK));
+        assertEquals(7, go.toLimits(Pieces.BLACK).getDepth());
+        assertEquals(5000, go.toLimits(Pieces.BLACK).getNodes());
+
+        go = GoCommand.parse("go ponder wtime 1000 btime 1000".split(" "));
+        assertTrue(go.isOpenEnded());
+        assertFalse(go.toLimits(Pieces.WHITE).hasTimeLimit());
+    }
+
+    // The lines written so far, which a test can wait for
+    private static class Lines extends Writer {
+        private final StringBuilder mPartial = new StringBuilder();
+        private final List<String> mLines = new ArrayList<>();
+
+        @Override
+        public synchronized void write(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (chars[i] == '\n') {
+                    mLines.add(mPartial.toString());
+                    mPartial.setLength(0);
+                    notifyAll();
+                } else {
+                    mPartial.append(chars[i]);
+                }
+            }
+        }
+
+        synchronized String get(int index) {
+            return mLines.get(index);
+        }
+
+        synchronized int indexOf(String prefix) {
+            for (int i = 0; i < mLines.size(); i++) {
+                if (mLines.get(i).startsWith(prefix)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // The first line starting with the prefix, once it's been written
+        synchronized String await(String prefix) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            int index;
+            while ((index = indexOf(prefix)) < 0) {
+                long wait = deadline - System.currentTimeMillis();
+                if (wait <= 0) {
+                    fail("No line starting with \"" + prefix + "\" in " + mLines);
+                }
+                wait(wait);
+            }
+            return mLines.get(index);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}